@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.bench;
+
+import ch.qos.logback.classic.LoggerContext;
+import com.crashnote.jul.CrashHandler;
+import com.crashnote.logger.config.LoggerConfig;
+import com.crashnote.logger.report.LoggerReporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.LogRecord;
+
+/**
+ * Handing a log event to each logging framework's appender: errors make it into a report (sent
+ * on a background thread), anything below is rejected right away - usually the vast majority of
+ * a framework's events. Run with '-prof gc' to see that rejecting allocates nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AppenderBench {
+
+    // CONST ======================================================================================
+
+    private static final String FQCN = AppenderBench.class.getName();
+
+
+    // VARS =======================================================================================
+
+    private LoggerReporter reporter;
+
+    private com.crashnote.log4j.CrashAppender log4j;
+    private org.apache.log4j.spi.LoggingEvent log4jError;
+    private org.apache.log4j.spi.LoggingEvent log4jWarn;
+    private org.apache.log4j.spi.LoggingEvent log4jInfo;
+
+    private com.crashnote.logback.CrashAppender logback;
+    private ch.qos.logback.classic.spi.LoggingEvent logbackError;
+    private ch.qos.logback.classic.spi.LoggingEvent logbackWarn;
+    private ch.qos.logback.classic.spi.LoggingEvent logbackInfo;
+
+    private CrashHandler jul;
+    private LogRecord julError;
+    private LogRecord julWarn;
+    private LogRecord julInfo;
+
+
+    // SETUP ======================================================================================
+
+    @Setup
+    public void setUp() {
+        final LoggerConfig config = BenchConfig.create("sync = false, queue.engine = ringbuffer");
+        reporter = config.getReporter();
+        final Throwable th = Fixtures.deepException(32);
+
+        // log4j
+        log4j = new com.crashnote.log4j.CrashAppender(config, reporter);
+        final org.apache.log4j.Logger log4jLogger = org.apache.log4j.Logger.getLogger(Fixtures.LOGGER);
+        log4jError = new org.apache.log4j.spi.LoggingEvent(
+            FQCN, log4jLogger, org.apache.log4j.Level.ERROR, Fixtures.MESSAGE, th);
+        log4jWarn = new org.apache.log4j.spi.LoggingEvent(
+            FQCN, log4jLogger, org.apache.log4j.Level.WARN, "order 'A-1234' retried", th);
+        log4jInfo = new org.apache.log4j.spi.LoggingEvent(
+            FQCN, log4jLogger, org.apache.log4j.Level.INFO, "order 'A-1234' received", null);
+
+        // logback
+        final LoggerContext ctx = new LoggerContext();
+        logback = new com.crashnote.logback.CrashAppender(config, reporter);
+        logback.setContext(ctx);
+        logback.start();
+        final ch.qos.logback.classic.Logger logbackLogger = ctx.getLogger(Fixtures.LOGGER);
+        logbackError = new ch.qos.logback.classic.spi.LoggingEvent(
+            FQCN, logbackLogger, ch.qos.logback.classic.Level.ERROR, Fixtures.MESSAGE, th, null);
+        logbackWarn = new ch.qos.logback.classic.spi.LoggingEvent(
+            FQCN, logbackLogger, ch.qos.logback.classic.Level.WARN, "order 'A-1234' retried", th, null);
+        logbackInfo = new ch.qos.logback.classic.spi.LoggingEvent(
+            FQCN, logbackLogger, ch.qos.logback.classic.Level.INFO, "order {} received", null,
+            new Object[]{"A-1234"});
+
+        // JUL
+        jul = new CrashHandler(config, reporter);
+        julError = new LogRecord(java.util.logging.Level.SEVERE, Fixtures.MESSAGE);
+        julError.setLoggerName(Fixtures.LOGGER);
+        julError.setThrown(th);
+        julWarn = new LogRecord(java.util.logging.Level.WARNING, "order 'A-1234' retried");
+        julWarn.setLoggerName(Fixtures.LOGGER);
+        julWarn.setThrown(th);
+        julInfo = new LogRecord(java.util.logging.Level.INFO, "order 'A-1234' received");
+        julInfo.setLoggerName(Fixtures.LOGGER);
+    }
+
+    @TearDown
+    public void tearDown() {
+        log4j.close();
+        logback.stop();
+        jul.close();
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    @Benchmark
+    public void log4jError() {
+        log4j.doAppend(log4jError);
+    }
+
+    @Benchmark
+    public void log4jWarn() {
+        log4j.doAppend(log4jWarn);
+    }
+
+    @Benchmark
+    public void log4jRejected() {
+        log4j.doAppend(log4jInfo);
+    }
+
+    @Benchmark
+    public void logbackError() {
+        logback.doAppend(logbackError);
+    }
+
+    @Benchmark
+    public void logbackWarn() {
+        logback.doAppend(logbackWarn);
+    }
+
+    @Benchmark
+    public void logbackRejected() {
+        logback.doAppend(logbackInfo);
+    }
+
+    @Benchmark
+    public void julError() {
+        jul.publish(julError);
+    }
+
+    @Benchmark
+    public void julWarn() {
+        jul.publish(julWarn);
+    }
+
+    @Benchmark
+    public void julRejected() {
+        jul.publish(julInfo);
+    }
+}
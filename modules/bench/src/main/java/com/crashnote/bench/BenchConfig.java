@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.bench;
+
+import com.crashnote.core.config.ConfigLoader;
+import com.crashnote.core.send.Sender;
+import com.crashnote.external.config.Config;
+import com.crashnote.logger.config.LoggerConfig;
+
+/**
+ * Configuration of the benchmarks: the library's defaults plus the given settings, enabled and
+ * sending into a {@link NullSender}.
+ */
+public class BenchConfig
+    extends LoggerConfig {
+
+    // CONST ======================================================================================
+
+    private static final String BASE =
+        "crashnote { enabled = true, projectId = \"bench\", key = \"00000000-0000-0000-0000-000000000000\" }";
+
+
+    // SETUP ======================================================================================
+
+    public BenchConfig(final Config c) {
+        super(c);
+    }
+
+    /**
+     * @param settings HOCON settings below 'crashnote' (e.g. "sync = true, report.encoding = binary")
+     */
+    public static BenchConfig create(final String settings) {
+        final ConfigLoader loader = new ConfigLoader();
+        final Config conf = loader.fromString("crashnote { " + settings + " }")
+            .withFallback(loader.fromString(BASE))
+            .withFallback(loader.fromFile("crashnote.default"));
+        return new BenchConfig(conf);
+    }
+
+
+    // FACTORY ====================================================================================
+
+    @Override
+    public Sender getSender() {
+        return new NullSender(this);
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.bench;
+
+import com.crashnote.core.collect.Collector;
+import com.crashnote.core.model.data.DataObject;
+import com.crashnote.core.model.log.ILogSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning a session into a report: built in memory ('collectLog', as in non-streaming mode) and
+ * written field by field ('streamLog').
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CollectorBench {
+
+    // VARS =======================================================================================
+
+    @Param({"1", "5"})
+    public int events;
+
+    @Param({"32"})
+    public int depth;
+
+    private Collector collector;
+    private ILogSession session;
+    private NullWriter sink;
+
+
+    // SETUP ======================================================================================
+
+    @Setup
+    public void setUp() {
+        collector = BenchConfig.create("").getCollector();
+        collector.start();
+        session = Fixtures.session(events, depth);
+        sink = new NullWriter();
+    }
+
+    @TearDown
+    public void tearDown() {
+        collector.stop();
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    @Benchmark
+    public DataObject collectLog() {
+        return collector.collectLog(session);
+    }
+
+    @Benchmark
+    public long streamLog() throws IOException {
+        collector.streamLog(session).streamTo(sink);
+        return sink.getCount();
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.bench;
+
+import com.crashnote.core.build.Builder;
+import com.crashnote.core.build.ReportWriter;
+import com.crashnote.core.collect.impl.ExcpCollector;
+import com.crashnote.core.config.CrashConfig;
+import com.crashnote.core.model.data.DataArray;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reducing and serializing an exception with a deep stack (and a cause), with and without the
+ * cache of serialized frames; plus its fingerprint (for aggregation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ExcpCollectorBench {
+
+    // VARS =======================================================================================
+
+    @Param({"32", "128", "512"})
+    public int depth;
+
+    @Param({"4096", "0"})
+    public int frameCache;
+
+    private ExcpCollector collector;
+    private Throwable th;
+    private ReportWriter out;
+    private NullWriter sink;
+
+
+    // SETUP ======================================================================================
+
+    @Setup
+    public void setUp() {
+        final CrashConfig config = BenchConfig.create("report.frame-cache = " + frameCache);
+        collector = new ExcpCollector(config);
+        th = Fixtures.deepException(depth);
+        sink = new NullWriter();
+        out = new Builder().createReportWriter(sink);
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    @Benchmark
+    public DataArray collect() {
+        return collector.collect(th);
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        out.beginObject();
+        collector.write("exceptions", th, out);
+        out.endObject();
+        out.flush();
+        return sink.getCount();
+    }
+
+    @Benchmark
+    public long fingerprint() {
+        return collector.fingerprint(th);
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.bench;
+
+import com.crashnote.core.model.log.LogEvt;
+import com.crashnote.core.model.types.LogLevel;
+import com.crashnote.core.report.impl.ThrowableLogEvt;
+import com.crashnote.core.report.impl.session.SharedLogSession;
+
+/**
+ * Realistic input of the benchmarks: exceptions with deep stacks and a cause, and sessions with
+ * a request's context.
+ */
+public final class Fixtures {
+
+    // CONST ======================================================================================
+
+    public static final String LOGGER = "com.example.shop.OrderService";
+
+    public static final String MESSAGE = "unable to process order 'A-1234' of user 'jürgen'";
+
+
+    // SETUP ======================================================================================
+
+    private Fixtures() {
+        // static only
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * @return an exception thrown 'depth' frames deep, caused by one thrown at the very bottom
+     */
+    public static Throwable deepException(final int depth) {
+        try {
+            descend(Math.max(2, depth), Math.max(2, depth) / 2);
+        } catch (RuntimeException e) {
+            return e;
+        }
+        throw new AssertionError("unreachable");
+    }
+
+    /**
+     * @return an error event (as created by the appenders) of the given exception
+     */
+    public static LogEvt<?> event(final Throwable th) {
+        return new ThrowableLogEvt(Thread.currentThread(), th, LogLevel.ERROR, MESSAGE);
+    }
+
+    /**
+     * @return a session of a web request with the given number of error events
+     */
+    public static SharedLogSession session(final int events, final int depth) {
+        final SharedLogSession session = new SharedLogSession();
+        {
+            session.putCtx("url", "https://shop.example.com/api/orders/A-1234?expand=items");
+            session.putCtx("method", "POST");
+            session.putCtx("user", "jürgen@example.com");
+            session.putCtx("remote-ip", "192.0.2.17");
+            session.putCtx("request-id", "5f0c6a4e-2b1d-4f8a-9c3e-7d2a1b0e9f44");
+            session.putCtx("user-agent", "Mozilla/5.0 (X11; Linux x86_64; rv:24.0) Gecko/20100101 Firefox/24.0");
+
+            for (int i = 0; i < events; i++)
+                session.addEvent(event(deepException(depth)));
+        }
+        return session;
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private static void descend(final int depth, final int causeAt) {
+        if (depth <= 1)
+            throw new IllegalArgumentException("invalid order id: 'A-1234'");
+
+        if (depth == causeAt) {
+            try {
+                descend(depth - 1, causeAt);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException(MESSAGE, e);
+            }
+        } else {
+            descend(depth - 1, causeAt);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.bench;
+
+import com.crashnote.core.build.impl.JSONDataObject;
+import com.crashnote.core.model.data.DataObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a report that was built in memory (see {@link CollectorBench#collectLog()}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JSONDataObjectBench {
+
+    // VARS =======================================================================================
+
+    @Param({"1", "5"})
+    public int events;
+
+    private JSONDataObject report;
+    private NullWriter sink;
+
+
+    // SETUP ======================================================================================
+
+    @Setup
+    public void setUp() {
+        final DataObject data = BenchConfig.create("").getCollector().collectLog(Fixtures.session(events, 32));
+        report = (JSONDataObject) data;
+        sink = new NullWriter();
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    @Benchmark
+    public long streamTo() throws IOException {
+        report.streamTo(sink);
+        return sink.getCount();
+    }
+}
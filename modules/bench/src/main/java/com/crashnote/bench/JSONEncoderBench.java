@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.bench;
+
+import com.crashnote.core.build.impl.JSONDataObject;
+import com.crashnote.external.json.JSONEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a report into a byte stream: via an {@link OutputStreamWriter} compared to the
+ * UTF-8 {@link JSONEncoder} (re-used, as by the sender).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JSONEncoderBench {
+
+    // VARS =======================================================================================
+
+    @Param({"1", "5"})
+    public int events;
+
+    private JSONDataObject report;
+    private NullSender.NullStream sink;
+    private JSONEncoder encoder;
+
+
+    // SETUP ======================================================================================
+
+    @Setup
+    public void setUp() {
+        report = (JSONDataObject) BenchConfig.create("").getCollector().collectLog(Fixtures.session(events, 32));
+        sink = new NullSender.NullStream();
+        encoder = new JSONEncoder();
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    @Benchmark
+    public long viaWriter() throws IOException {
+        final Writer out = new OutputStreamWriter(sink, "UTF-8");
+        report.writeJSONString(out);
+        out.flush();
+        return sink.count;
+    }
+
+    @Benchmark
+    public long viaEncoder() throws IOException {
+        final Writer out = encoder.reset(sink).asWriter();
+        report.writeJSONString(out);
+        out.flush();
+        return sink.count;
+    }
+}
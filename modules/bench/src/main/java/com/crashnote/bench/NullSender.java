@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.bench;
+
+import com.crashnote.core.config.CrashConfig;
+import com.crashnote.core.send.Sender;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * {@link Sender} whose connections accept every request without a network: the body is written
+ * (and compressed) as usual, but into a sink that only counts the bytes.
+ */
+public class NullSender
+    extends Sender {
+
+    // VARS =======================================================================================
+
+    private final NullStream sink = new NullStream();
+
+
+    // SETUP ======================================================================================
+
+    public <C extends CrashConfig> NullSender(final C config) {
+        super(config);
+    }
+
+
+    // SHARED =====================================================================================
+
+    @Override
+    protected HttpURLConnection createConnection(final String url) throws IOException {
+        return new NullConnection(new URL(url), sink);
+    }
+
+
+    // GET ========================================================================================
+
+    /**
+     * @return number of bytes 'sent' so far
+     */
+    public long getBytesWritten() {
+        return sink.count;
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private static final class NullConnection
+        extends HttpURLConnection {
+
+        private final OutputStream sink;
+
+        NullConnection(final URL url, final OutputStream sink) {
+            super(url);
+            this.sink = sink;
+        }
+
+        @Override
+        public void connect() {
+            connected = true;
+        }
+
+        @Override
+        public void disconnect() {
+            connected = false;
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            connect();
+            return sink;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public int getResponseCode() {
+            return HTTP_ACCEPTED;
+        }
+    }
+
+    /**
+     * Stream that drops everything, shared by all connections (the count is only approximate
+     * when several threads send at once).
+     */
+    static final class NullStream
+        extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(final int b) {
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            count += len;
+        }
+
+        @Override
+        public void close() {
+            // keep it open for the next request
+        }
+    }
+}
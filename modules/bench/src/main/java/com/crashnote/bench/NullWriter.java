@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.bench;
+
+import java.io.Writer;
+
+/**
+ * Writer that drops everything but counts the characters.
+ */
+public class NullWriter
+    extends Writer {
+
+    // VARS =======================================================================================
+
+    private long count;
+
+
+    // INTERFACE ==================================================================================
+
+    @Override
+    public void write(final int c) {
+        count++;
+    }
+
+    @Override
+    public void write(final char[] buf, final int off, final int len) {
+        count += len;
+    }
+
+    @Override
+    public void write(final String str, final int off, final int len) {
+        count += len;
+    }
+
+    @Override
+    public void flush() {
+        // nothing to do
+    }
+
+    @Override
+    public void close() {
+        // nothing to do
+    }
+
+
+    // GET ========================================================================================
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.bench;
+
+import com.crashnote.core.report.Reporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reporting an error event from the application's threads: admission, session and hand-off
+ * to the processor - which sends it right away ('sync') or on a background thread ('ringbuffer',
+ * dropping what does not fit).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReporterBench {
+
+    // VARS =======================================================================================
+
+    @Param({"sync", "ringbuffer"})
+    public String queue;
+
+    @Param({"32"})
+    public int depth;
+
+    private Reporter reporter;
+
+
+    // SETUP ======================================================================================
+
+    @Setup
+    public void setUp() {
+        final String settings = "sync".equals(queue) ? "sync = true" : "sync = false, queue.engine = " + queue;
+        reporter = BenchConfig.create(settings).getReporter();
+        reporter.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        reporter.stop();
+    }
+
+    /**
+     * Each thread reports its own exception.
+     */
+    @State(Scope.Thread)
+    public static class Failure {
+
+        Throwable th;
+
+        @Setup
+        public void setUp(final ReporterBench bench) {
+            th = Fixtures.deepException(bench.depth);
+        }
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    @Benchmark
+    @Threads(1)
+    public void reportLog(final Failure err) {
+        reporter.reportLog(Fixtures.event(err.th));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void reportLog4(final Failure err) {
+        reporter.reportLog(Fixtures.event(err.th));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void reportLogMax(final Failure err) {
+        reporter.reportLog(Fixtures.event(err.th));
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.bench;
+
+import com.crashnote.core.collect.Collector;
+import com.crashnote.core.config.CrashConfig;
+import com.crashnote.core.model.log.LogReport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sending a streamed report: encoding, compression and writing into the request's stream, which
+ * goes nowhere (see {@link NullSender}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SenderBench {
+
+    // VARS =======================================================================================
+
+    @Param({"json", "binary"})
+    public String encoding;
+
+    @Param({"", "builtin"})
+    public String dictionary;
+
+    @Param({"1", "5"})
+    public int events;
+
+    private NullSender sender;
+    private LogReport report;
+
+
+    // SETUP ======================================================================================
+
+    @Setup
+    public void setUp() {
+        final CrashConfig config = BenchConfig.create(
+            "report.encoding = " + encoding + ", network.compression.dictionary = \"" + dictionary + "\"");
+        final Collector collector = config.getCollector();
+        report = collector.streamLog(Fixtures.session(events, 32));
+
+        sender = (NullSender) config.getSender();
+        sender.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        sender.stop();
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    @Benchmark
+    public long send() {
+        sender.send(report);
+        return sender.getBytesWritten();
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.build;
+
+import com.crashnote.core.build.impl.BinaryEncoder;
+import com.crashnote.core.build.impl.BinaryReportWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Customized {@link Builder} that sends reports in the compact binary format of the
+ * {@link BinaryEncoder} instead of JSON text. Data objects and the text form of a report
+ * (e.g. for logging) stay JSON.
+ */
+public class BinaryBuilder
+    extends Builder {
+
+    public static final String BINARY_TYPE = "application/x-crashnote-binary";
+
+    @Override
+    public ReportWriter createReportWriter(final OutputStream out) throws IOException {
+        return new BinaryReportWriter(out);
+    }
+
+    @Override
+    public String getContentType() {
+        return BINARY_TYPE;
+    }
+}
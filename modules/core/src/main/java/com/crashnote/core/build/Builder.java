@@ -17,15 +17,26 @@ package com.crashnote.core.build;
 
 import com.crashnote.core.build.impl.JSONDataArray;
 import com.crashnote.core.build.impl.JSONDataObject;
+import com.crashnote.core.build.impl.JSONFrozenDataObject;
+import com.crashnote.core.build.impl.JSONReportWriter;
+import com.crashnote.core.build.impl.JSONSymbol;
 import com.crashnote.core.model.data.DataArray;
 import com.crashnote.core.model.data.DataObject;
+import com.crashnote.external.json.JSONEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 
 /**
- * This class offers the factory methods to create a {@link DataArray} and {@link DataObject}.
+ * This class offers the factory methods to create a {@link DataArray} and {@link DataObject}
+ * as well as a streaming {@link ReportWriter}.
  * The internal implementation (JSON) is hidden from the accessing classes.
  */
 public class Builder {
 
+    public static final String JSON_TYPE = "application/json; charset=utf-8";
+
     public DataObject createDataObj() {
         return new JSONDataObject();
     }
@@ -33,4 +44,42 @@ public class Builder {
     public DataArray createDataArr() {
         return new JSONDataArray();
     }
+
+    /**
+     * Creates a read-only copy of the passed data object that is serialized once up-front.
+     */
+    public DataObject freezeDataObj(final DataObject data) {
+        return new JSONFrozenDataObject(data);
+    }
+
+    /**
+     * Creates a pre-encoded string value that can be added to a data array or object or written
+     * by a {@link ReportWriter}, for strings that are written over and over again. Its
+     * {@link Object#toString()} returns the passed string.
+     */
+    public Object createSymbol(final String text) {
+        return new JSONSymbol(text);
+    }
+
+    /**
+     * Creates a writer that serializes a report directly into the passed output.
+     */
+    public ReportWriter createReportWriter(final Writer out) {
+        return new JSONReportWriter(out);
+    }
+
+    /**
+     * Creates a writer that serializes a report into the passed stream, in the encoding that is
+     * sent to the server (see {@link #getContentType()}).
+     */
+    public ReportWriter createReportWriter(final OutputStream out) throws IOException {
+        return new JSONReportWriter(new JSONEncoder(out).asWriter());
+    }
+
+    /**
+     * @return the content type of the reports written into a stream
+     */
+    public String getContentType() {
+        return JSON_TYPE;
+    }
 }
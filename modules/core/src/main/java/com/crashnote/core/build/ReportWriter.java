@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.build;
+
+import java.io.IOException;
+
+/**
+ * Streaming counterpart to the {@link Builder}: collectors write a report field by field right
+ * into the output, without building a tree of data objects first.
+ * <p/>
+ * Like their data object equivalents, fields with a null value are skipped.
+ */
+public interface ReportWriter {
+
+    ReportWriter beginObject() throws IOException;
+
+    ReportWriter beginObject(String name) throws IOException;
+
+    ReportWriter endObject() throws IOException;
+
+    ReportWriter beginArray() throws IOException;
+
+    ReportWriter beginArray(String name) throws IOException;
+
+    ReportWriter endArray() throws IOException;
+
+    ReportWriter field(String name, String value) throws IOException;
+
+    ReportWriter field(String name, long value) throws IOException;
+
+    ReportWriter field(String name, double value) throws IOException;
+
+    /**
+     * Writes any value supported by the {@link Builder}'s containers (e.g. strings, numbers,
+     * maps, lists and data objects).
+     */
+    ReportWriter field(String name, Object value) throws IOException;
+
+    /**
+     * Writes a point in time: as ISO 8601 text (like the collectors) or, by binary writers, as
+     * raw epoch milliseconds.
+     */
+    ReportWriter timestamp(String name, long millis) throws IOException;
+
+    ReportWriter value(String value) throws IOException;
+
+    ReportWriter value(Object value) throws IOException;
+
+    /**
+     * Writes a stack frame as a single value (e.g. 'com.Foo:Foo.java:bar:42').
+     */
+    ReportWriter value(StackTraceElement frame) throws IOException;
+
+    void flush() throws IOException;
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.build.impl;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.*;
+
+import static com.crashnote.core.build.impl.BinaryEncoder.*;
+
+/**
+ * Reads documents written by the {@link BinaryEncoder} back into maps, lists and plain values.
+ * <p/>
+ * Stack frames are turned into the same string as within a JSON report
+ * ('com.Foo:Foo.java:bar:42'), timestamps into a {@link Date}.
+ */
+public class BinaryDecoder {
+
+    // CONST ======================================================================================
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // marks the end of a container while reading its values
+    private static final Object END_MARK = new Object();
+
+
+    // VARS =======================================================================================
+
+    private final byte[] data;
+    private final int limit;
+    private int pos;
+
+    private final List<String> table;
+
+
+    // SETUP ======================================================================================
+
+    public BinaryDecoder(final byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public BinaryDecoder(final byte[] data, final int off, final int len) {
+        this.data = data;
+        this.pos = off;
+        this.limit = off + len;
+        this.table = new ArrayList<String>();
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * @return the single document within the data
+     */
+    public static Object decode(final byte[] data) throws IOException {
+        final BinaryDecoder dec = new BinaryDecoder(data);
+        final Object doc = dec.readDocument();
+        if (dec.hasNext()) throw new IOException("unexpected data after document");
+        return doc;
+    }
+
+    /**
+     * @return all documents within the data (e.g. a batch)
+     */
+    public static List<Object> decodeAll(final byte[] data) throws IOException {
+        final BinaryDecoder dec = new BinaryDecoder(data);
+        final List<Object> docs = new ArrayList<Object>();
+        while (dec.hasNext())
+            docs.add(dec.readDocument());
+        return docs;
+    }
+
+    /**
+     * @return whether there is another document
+     */
+    public boolean hasNext() {
+        return pos < limit;
+    }
+
+    public Object readDocument() throws IOException {
+        for (final byte b : MAGIC)
+            if (read() != (b & 0xFF)) throw new IOException("not a binary report at " + (pos - 1));
+        table.clear();
+        return readValue();
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private Object readValue() throws IOException {
+        final Object value = readElement();
+        if (value == END_MARK) throw new IOException("unexpected end of container at " + (pos - 1));
+        return value;
+    }
+
+    private Object readElement() throws IOException {
+        final int type = read();
+        switch (type) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case INT:
+                final long v = readVarint();
+                return (v >>> 1) ^ -(v & 1);
+            case DOUBLE:
+                return Double.longBitsToDouble(readFixed64());
+            case TIMESTAMP:
+                return new Date(readFixed64());
+            case STRING:
+            case STRING_REF:
+                return readString(type);
+            case OBJECT:
+                final Map<String, Object> map = new LinkedHashMap<String, Object>();
+                for (Object key = readElement(); key != END_MARK; key = readElement()) {
+                    if (!(key instanceof String)) throw new IOException("invalid key at " + (pos - 1));
+                    map.put((String) key, readValue());
+                }
+                return map;
+            case ARRAY:
+                final List<Object> list = new ArrayList<Object>();
+                for (Object e = readElement(); e != END_MARK; e = readElement())
+                    list.add(e);
+                return list;
+            case END:
+                return END_MARK;
+            case FRAME:
+                final Object cls = readValue(), file = readValue(), method = readValue(), line = readValue();
+                return cls + ":" + file + ":" + method + ":" + line;
+            default:
+                throw new IOException("unknown type " + type + " at " + (pos - 1));
+        }
+    }
+
+    private String readString(final int type) throws IOException {
+        if (type == STRING_REF) {
+            final long ref = readVarint();
+            if (ref >= table.size()) throw new IOException("unknown string reference " + ref);
+            return table.get((int) ref);
+        }
+
+        final long len = readVarint();
+        if (len > limit - pos) throw new IOException("truncated string at " + pos);
+        final String s = new String(data, pos, (int) len, UTF8);
+        pos += (int) len;
+        if (len >= MIN_REF_LENGTH && table.size() < MAX_TABLE_SIZE)
+            table.add(s);
+        return s;
+    }
+
+    private long readVarint() throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = read();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("malformed varint at " + pos);
+    }
+
+    private long readFixed64() throws IOException {
+        long v = 0;
+        for (int i = 0; i < 8; i++)
+            v = (v << 8) | read();
+        return v;
+    }
+
+    private int read() throws IOException {
+        if (pos >= limit) throw new IOException("unexpected end of data");
+        return data[pos++] & 0xFF;
+    }
+}
@@ -0,0 +1,333 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.build.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes reports in a compact binary format (similar to CBOR) into a reusable buffer, which is
+ * drained into an {@link OutputStream} whenever it is full.
+ * <p/>
+ * A document starts with the {@link #MAGIC} bytes followed by a single value. Each value starts
+ * with a type byte:
+ * <ul>
+ * <li>{@link #NULL}, {@link #FALSE}, {@link #TRUE}</li>
+ * <li>{@link #INT}: zig-zag encoded varint (7 bits per byte, least significant first)</li>
+ * <li>{@link #DOUBLE}: 8 bytes IEEE 754, big-endian</li>
+ * <li>{@link #TIMESTAMP}: epoch milliseconds as raw 8 bytes, big-endian</li>
+ * <li>{@link #STRING}: varint length and UTF-8 bytes; strings of at least
+ * {@link #MIN_REF_LENGTH} bytes are added to the document's string table</li>
+ * <li>{@link #STRING_REF}: varint index of a string in the table (e.g. a repeated key or frame)</li>
+ * <li>{@link #OBJECT}: pairs of key (a string) and value, until {@link #END}</li>
+ * <li>{@link #ARRAY}: values until {@link #END}</li>
+ * <li>{@link #FRAME}: a stack frame as class, file (or null), method and line</li>
+ * </ul>
+ * Documents are self-contained, a request body may hold several of them in a row.
+ * An instance is not thread-safe.
+ */
+@SuppressWarnings("rawtypes")
+public class BinaryEncoder {
+
+    // CONST ======================================================================================
+
+    public static final byte[] MAGIC = {'C', 'N', 'B', 1};
+
+    public static final int NULL = 0x00;
+    public static final int FALSE = 0x01;
+    public static final int TRUE = 0x02;
+    public static final int INT = 0x03;
+    public static final int DOUBLE = 0x04;
+    public static final int TIMESTAMP = 0x05;
+    public static final int STRING = 0x06;
+    public static final int STRING_REF = 0x07;
+    public static final int OBJECT = 0x08;
+    public static final int ARRAY = 0x09;
+    public static final int END = 0x0A;
+    public static final int FRAME = 0x0B;
+
+    // shorter strings are cheaper to repeat than to refer to
+    public static final int MIN_REF_LENGTH = 2;
+
+    // limits the memory of the encoder (and the decoder) for large documents
+    public static final int MAX_TABLE_SIZE = 4096;
+
+    private static final int DEFAULT_SIZE = 8192;
+
+    // type byte plus the longest varint
+    private static final int MAX_HEADER = 1 + 10;
+
+
+    // VARS =======================================================================================
+
+    private OutputStream out;
+    private byte[] buf;
+    private int pos;
+
+    private final Map<String, Integer> table;
+
+
+    // SETUP ======================================================================================
+
+    public BinaryEncoder() {
+        this(null);
+    }
+
+    public BinaryEncoder(final OutputStream out) {
+        this.out = out;
+        this.buf = new byte[DEFAULT_SIZE];
+        this.table = new HashMap<String, Integer>();
+    }
+
+    /**
+     * Discards any buffered output and the string table and directs the encoder to a new stream,
+     * keeping the buffer.
+     */
+    public BinaryEncoder reset(final OutputStream out) {
+        this.out = out;
+        this.pos = 0;
+        this.table.clear();
+        return this;
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * Starts a new document, with an empty string table.
+     */
+    public void writeHeader() throws IOException {
+        table.clear();
+        ensure(MAGIC.length);
+        System.arraycopy(MAGIC, 0, buf, pos, MAGIC.length);
+        pos += MAGIC.length;
+    }
+
+    /**
+     * Encodes any value: maps, lists, arrays, strings, numbers, booleans and stack frames; other
+     * objects (e.g. symbols) are written as their string value.
+     */
+    public void writeValue(final Object value) throws IOException {
+        if (value == null) writeType(NULL);
+        else if (value instanceof String) writeString((String) value);
+        else if (value instanceof Double || value instanceof Float)
+            writeDouble(((Number) value).doubleValue());
+        else if (value instanceof Number) writeLong(((Number) value).longValue());
+        else if (value instanceof Boolean) writeBoolean((Boolean) value);
+        else if (value instanceof java.util.Date) writeTimestamp(((java.util.Date) value).getTime());
+        else if (value instanceof Map) writeMap((Map) value);
+        else if (value instanceof List) writeList((List) value);
+        else if (value instanceof Object[]) writeArray((Object[]) value);
+        else if (value instanceof StackTraceElement) writeFrame((StackTraceElement) value);
+        else writeString(value.toString());
+    }
+
+    public void writeMap(final Map map) throws IOException {
+        writeType(OBJECT);
+        for (final Iterator iter = map.entrySet().iterator(); iter.hasNext(); ) {
+            final Map.Entry entry = (Map.Entry) iter.next();
+            writeString(String.valueOf(entry.getKey()));
+            writeValue(entry.getValue());
+        }
+        writeType(END);
+    }
+
+    public void writeList(final List list) throws IOException {
+        writeType(ARRAY);
+        for (final Iterator iter = list.iterator(); iter.hasNext(); )
+            writeValue(iter.next());
+        writeType(END);
+    }
+
+    public void writeArray(final Object[] arr) throws IOException {
+        writeType(ARRAY);
+        for (final Object o : arr)
+            writeValue(o);
+        writeType(END);
+    }
+
+    public void writeType(final int type) throws IOException {
+        ensure(1);
+        buf[pos++] = (byte) type;
+    }
+
+    public void writeBoolean(final boolean value) throws IOException {
+        writeType(value ? TRUE : FALSE);
+    }
+
+    public void writeLong(final long value) throws IOException {
+        ensure(MAX_HEADER);
+        buf[pos++] = INT;
+        varint((value << 1) ^ (value >> 63));
+    }
+
+    public void writeDouble(final double value) throws IOException {
+        ensure(9);
+        buf[pos++] = DOUBLE;
+        fixed64(Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Writes a point in time as raw epoch milliseconds (no formatting, no varint loop).
+     */
+    public void writeTimestamp(final long millis) throws IOException {
+        ensure(9);
+        buf[pos++] = TIMESTAMP;
+        fixed64(millis);
+    }
+
+    /**
+     * Writes the string, or a reference to it if it was written before.
+     */
+    public void writeString(final String s) throws IOException {
+        final Integer ref = table.get(s);
+        if (ref != null) {
+            ensure(MAX_HEADER);
+            buf[pos++] = STRING_REF;
+            varint(ref);
+            return;
+        }
+
+        final int len = utf8Length(s);
+        if (len >= MIN_REF_LENGTH && table.size() < MAX_TABLE_SIZE)
+            table.put(s, table.size());
+
+        ensure(MAX_HEADER + len);
+        buf[pos++] = STRING;
+        varint(len);
+        if (buf.length - pos >= len) {
+            encode(s);
+        } else {
+            // larger than the buffer
+            out.write(buf, 0, pos);
+            pos = 0;
+            out.write(s.getBytes("UTF-8"));
+        }
+    }
+
+    public void writeFrame(final StackTraceElement frame) throws IOException {
+        writeType(FRAME);
+        writeString(frame.getClassName());
+        if (frame.getFileName() == null) writeType(NULL);
+        else writeString(frame.getFileName());
+        writeString(frame.getMethodName());
+        writeLong(frame.getLineNumber());
+    }
+
+    /**
+     * Drains the buffer into the stream and flushes it.
+     */
+    public void flush() throws IOException {
+        if (out != null) {
+            if (pos > 0) out.write(buf, 0, pos);
+            pos = 0;
+            out.flush();
+        }
+    }
+
+    /**
+     * @return number of bytes currently in the buffer
+     */
+    public int size() {
+        return pos;
+    }
+
+    public byte[] toByteArray() {
+        final byte[] res = new byte[pos];
+        System.arraycopy(buf, 0, res, 0, pos);
+        return res;
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    /**
+     * Makes room for the given number of bytes: drains the buffer into the stream or, without a
+     * stream, grows it. With a stream the room might still be too small afterwards.
+     */
+    private void ensure(final int len) throws IOException {
+        if (buf.length - pos >= len) return;
+        if (out != null) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        } else {
+            final byte[] grown = new byte[Math.max(buf.length * 2, pos + len)];
+            System.arraycopy(buf, 0, grown, 0, pos);
+            buf = grown;
+        }
+    }
+
+    private void varint(long v) {
+        while ((v & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+    }
+
+    private void fixed64(final long v) {
+        for (int shift = 56; shift >= 0; shift -= 8)
+            buf[pos++] = (byte) (v >>> shift);
+    }
+
+    private void encode(final String s) {
+        final int len = s.length();
+        for (int i = 0; i < len; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (isSurrogate(c)) {
+                buf[pos++] = '?'; // unpaired surrogate (same as String#getBytes)
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static int utf8Length(final String s) {
+        final int len = s.length();
+        int n = len;
+        for (int i = 0; i < len; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) continue;
+            if (c < 0x800) n += 1;
+            else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                n += 2; // 4 bytes for 2 chars
+                i++;
+            } else if (!isSurrogate(c)) n += 2;
+        }
+        return n;
+    }
+
+    private static boolean isSurrogate(final char c) {
+        return c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE;
+    }
+}
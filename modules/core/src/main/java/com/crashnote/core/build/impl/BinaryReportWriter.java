@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.build.impl;
+
+import com.crashnote.core.build.ReportWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a report as a document of the {@link BinaryEncoder}'s format.
+ */
+public class BinaryReportWriter
+    implements ReportWriter {
+
+    // VARS =======================================================================================
+
+    private final BinaryEncoder enc;
+    private int depth;
+
+
+    // SETUP ======================================================================================
+
+    public BinaryReportWriter(final OutputStream out) throws IOException {
+        this(new BinaryEncoder(out));
+    }
+
+    public BinaryReportWriter(final BinaryEncoder enc) throws IOException {
+        this.enc = enc;
+        enc.writeHeader();
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    @Override
+    public ReportWriter beginObject() throws IOException {
+        return open(BinaryEncoder.OBJECT);
+    }
+
+    @Override
+    public ReportWriter beginObject(final String name) throws IOException {
+        enc.writeString(name);
+        return open(BinaryEncoder.OBJECT);
+    }
+
+    @Override
+    public ReportWriter endObject() throws IOException {
+        return close();
+    }
+
+    @Override
+    public ReportWriter beginArray() throws IOException {
+        return open(BinaryEncoder.ARRAY);
+    }
+
+    @Override
+    public ReportWriter beginArray(final String name) throws IOException {
+        enc.writeString(name);
+        return open(BinaryEncoder.ARRAY);
+    }
+
+    @Override
+    public ReportWriter endArray() throws IOException {
+        return close();
+    }
+
+    @Override
+    public ReportWriter field(final String name, final String value) throws IOException {
+        if (value != null) {
+            enc.writeString(name);
+            enc.writeString(value);
+        }
+        return this;
+    }
+
+    @Override
+    public ReportWriter field(final String name, final long value) throws IOException {
+        enc.writeString(name);
+        enc.writeLong(value);
+        return this;
+    }
+
+    @Override
+    public ReportWriter field(final String name, final double value) throws IOException {
+        enc.writeString(name);
+        enc.writeDouble(value);
+        return this;
+    }
+
+    @Override
+    public ReportWriter field(final String name, final Object value) throws IOException {
+        if (value != null) {
+            enc.writeString(name);
+            enc.writeValue(value);
+        }
+        return this;
+    }
+
+    @Override
+    public ReportWriter timestamp(final String name, final long millis) throws IOException {
+        enc.writeString(name);
+        enc.writeTimestamp(millis);
+        return this;
+    }
+
+    @Override
+    public ReportWriter value(final String value) throws IOException {
+        if (value != null) enc.writeString(value);
+        return this;
+    }
+
+    @Override
+    public ReportWriter value(final Object value) throws IOException {
+        if (value != null) enc.writeValue(value);
+        return this;
+    }
+
+    @Override
+    public ReportWriter value(final StackTraceElement frame) throws IOException {
+        enc.writeFrame(frame);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        enc.flush();
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private ReportWriter open(final int type) throws IOException {
+        enc.writeType(type);
+        depth++;
+        return this;
+    }
+
+    private ReportWriter close() throws IOException {
+        if (depth == 0) throw new IllegalStateException("no open container");
+        depth--;
+        enc.writeType(BinaryEncoder.END);
+        return this;
+    }
+}
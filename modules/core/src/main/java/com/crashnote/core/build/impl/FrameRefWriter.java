@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.build.impl;
+
+import com.crashnote.core.build.ReportWriter;
+import com.crashnote.core.model.log.FrameDictionary;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Decorates a {@link ReportWriter} so that stack frames are written as their ID within the
+ * {@link FrameDictionary}. The frames defined by this report (i.e. not known to the endpoint
+ * yet) are kept and written by {@link #writeDefinitions()}:
+ * <pre>
+ * "frames": {"epoch": "5c1f..", "defs": {"17": "com.Foo:Foo.java:bar:42", ..}}
+ * </pre>
+ * They are only marked as defined once the endpoint took the report (see
+ * {@link #getDefinitions()}).
+ */
+public class FrameRefWriter
+    implements ReportWriter {
+
+    // VARS =======================================================================================
+
+    private final ReportWriter out;
+    private final FrameDictionary dict;
+
+    private final Set<FrameDictionary.Entry> defined;
+    private boolean referenced;
+
+
+    // SETUP ======================================================================================
+
+    public FrameRefWriter(final ReportWriter out, final FrameDictionary dict) {
+        this.out = out;
+        this.dict = dict;
+        this.defined = new LinkedHashSet<FrameDictionary.Entry>();
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    @Override
+    public ReportWriter value(final StackTraceElement frame) throws IOException {
+        final FrameDictionary.Entry entry = dict.lookup(frame);
+        if (entry == null) {
+            out.value(frame);
+        } else {
+            out.value(Integer.valueOf(entry.getId()));
+            if (!entry.isDefined()) defined.add(entry);
+            referenced = true;
+        }
+        return this;
+    }
+
+    /**
+     * Writes the dictionary's epoch and the frames defined by this report - if it refers to any.
+     */
+    public void writeDefinitions() throws IOException {
+        if (!referenced) return;
+        out.beginObject("frames");
+        {
+            out.field("epoch", dict.getEpoch());
+            if (!defined.isEmpty()) {
+                out.beginObject("defs");
+                for (final FrameDictionary.Entry entry : defined)
+                    out.field(Integer.toString(entry.getId()), entry.getText());
+                out.endObject();
+            }
+        }
+        out.endObject();
+    }
+
+    /**
+     * @return the frames defined by this report
+     */
+    public Collection<FrameDictionary.Entry> getDefinitions() {
+        return defined;
+    }
+
+    @Override
+    public ReportWriter beginObject() throws IOException {
+        out.beginObject();
+        return this;
+    }
+
+    @Override
+    public ReportWriter beginObject(final String name) throws IOException {
+        out.beginObject(name);
+        return this;
+    }
+
+    @Override
+    public ReportWriter endObject() throws IOException {
+        out.endObject();
+        return this;
+    }
+
+    @Override
+    public ReportWriter beginArray() throws IOException {
+        out.beginArray();
+        return this;
+    }
+
+    @Override
+    public ReportWriter beginArray(final String name) throws IOException {
+        out.beginArray(name);
+        return this;
+    }
+
+    @Override
+    public ReportWriter endArray() throws IOException {
+        out.endArray();
+        return this;
+    }
+
+    @Override
+    public ReportWriter field(final String name, final String value) throws IOException {
+        out.field(name, value);
+        return this;
+    }
+
+    @Override
+    public ReportWriter field(final String name, final long value) throws IOException {
+        out.field(name, value);
+        return this;
+    }
+
+    @Override
+    public ReportWriter field(final String name, final double value) throws IOException {
+        out.field(name, value);
+        return this;
+    }
+
+    @Override
+    public ReportWriter field(final String name, final Object value) throws IOException {
+        out.field(name, value);
+        return this;
+    }
+
+    @Override
+    public ReportWriter timestamp(final String name, final long millis) throws IOException {
+        out.timestamp(name, millis);
+        return this;
+    }
+
+    @Override
+    public ReportWriter value(final String value) throws IOException {
+        out.value(value);
+        return this;
+    }
+
+    @Override
+    public ReportWriter value(final Object value) throws IOException {
+        out.value(value);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
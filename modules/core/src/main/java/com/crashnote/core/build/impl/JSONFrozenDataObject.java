@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.build.impl;
+
+import com.crashnote.core.model.data.DataArray;
+import com.crashnote.core.model.data.DataObject;
+import com.crashnote.external.json.JSONEncoder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * Read-only {@link DataObject} whose JSON representation is rendered once on creation and then
+ * written verbatim, e.g. for data that is part of every report but rarely changes. When written
+ * into a {@link JSONEncoder} the pre-encoded UTF-8 bytes are copied.
+ */
+public class JSONFrozenDataObject
+    extends JSONDataObject {
+
+    private static final long serialVersionUID = 1L;
+
+    // VARS =======================================================================================
+
+    private final boolean frozen;
+    private final String json;
+    private final byte[] utf8;
+
+
+    // SETUP ======================================================================================
+
+    public JSONFrozenDataObject(final Map<String, Object> data) {
+        super();
+        super.putAll(data);
+
+        this.json = super.toJSONString();
+        this.utf8 = json.getBytes(Charset.forName("UTF-8"));
+        this.frozen = true;
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    @Override
+    public void streamTo(final Writer out) throws IOException {
+        writeJSONString(out);
+    }
+
+    @Override
+    public void writeJSONString(final Writer out) throws IOException {
+        if (out instanceof JSONEncoder.EncoderWriter)
+            ((JSONEncoder.EncoderWriter) out).getEncoder().writeRaw(utf8, 0, utf8.length);
+        else
+            out.write(json);
+    }
+
+    @Override
+    public String toJSONString() {
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+
+    // ==== Mutators
+
+    @Override
+    public Object put(final String key, final Object value) {
+        checkWritable();
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(final Map<? extends String, ?> m) {
+        checkWritable();
+        super.putAll(m);
+    }
+
+    @Override
+    public Object remove(final Object key) {
+        checkWritable();
+        return super.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        super.clear();
+    }
+
+    @Override
+    public void appendTo(final String key, final Object data) {
+        checkWritable();
+        super.appendTo(key, data);
+    }
+
+    @Override
+    public Object putArr(final String key, final DataArray value) {
+        checkWritable();
+        return super.putArr(key, value);
+    }
+
+    @Override
+    public Object putObj(final String key, final DataObject value) {
+        checkWritable();
+        return super.putObj(key, value);
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private void checkWritable() {
+        if (frozen) throw new UnsupportedOperationException("data object is frozen");
+    }
+}
@@ -0,0 +1,308 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.build.impl;
+
+import com.crashnote.core.build.ReportWriter;
+import com.crashnote.external.json.JSONEncoder;
+import com.crashnote.external.json.JSONValue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Implementation of a {@link ReportWriter} that writes JSON text to a {@link Writer}. Its output
+ * equals the serialization of the according {@link JSONDataObject}s.
+ * <p/>
+ * If the writer belongs to a {@link JSONEncoder}, the values are handed to the encoder directly.
+ */
+public class JSONReportWriter
+    implements ReportWriter {
+
+    // CONST ======================================================================================
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    // same format as the collectors' (see BaseCollector), formats are not thread-safe
+    private static final ThreadLocal<DateFormat> ISO8601 = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            final DateFormat fmt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm'Z'");
+            fmt.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return fmt;
+        }
+    };
+
+
+    // VARS =======================================================================================
+
+    private final Writer out;
+    private final JSONEncoder enc;
+
+    // whether the next element is the first within the container, per nesting level
+    private boolean[] first;
+    private int depth;
+
+
+    // SETUP ======================================================================================
+
+    public JSONReportWriter(final Writer out) {
+        this.out = out;
+        this.enc = out instanceof JSONEncoder.EncoderWriter
+            ? ((JSONEncoder.EncoderWriter) out).getEncoder() : null;
+        this.first = new boolean[16];
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    @Override
+    public ReportWriter beginObject() throws IOException {
+        separate();
+        return open('{');
+    }
+
+    @Override
+    public ReportWriter beginObject(final String name) throws IOException {
+        name(name);
+        return open('{');
+    }
+
+    @Override
+    public ReportWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    @Override
+    public ReportWriter beginArray() throws IOException {
+        separate();
+        return open('[');
+    }
+
+    @Override
+    public ReportWriter beginArray(final String name) throws IOException {
+        name(name);
+        return open('[');
+    }
+
+    @Override
+    public ReportWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    @Override
+    public ReportWriter field(final String name, final String value) throws IOException {
+        if (value != null) {
+            name(name);
+            string(value);
+        }
+        return this;
+    }
+
+    @Override
+    public ReportWriter field(final String name, final long value) throws IOException {
+        name(name);
+        number(value);
+        return this;
+    }
+
+    @Override
+    public ReportWriter field(final String name, final double value) throws IOException {
+        name(name);
+        number(value);
+        return this;
+    }
+
+    @Override
+    public ReportWriter field(final String name, final Object value) throws IOException {
+        if (value != null) {
+            name(name);
+            any(value);
+        }
+        return this;
+    }
+
+    @Override
+    public ReportWriter timestamp(final String name, final long millis) throws IOException {
+        return field(name, ISO8601.get().format(new Date(millis)));
+    }
+
+    @Override
+    public ReportWriter value(final String value) throws IOException {
+        if (value != null) {
+            separate();
+            string(value);
+        }
+        return this;
+    }
+
+    @Override
+    public ReportWriter value(final Object value) throws IOException {
+        if (value != null) {
+            separate();
+            any(value);
+        }
+        return this;
+    }
+
+    @Override
+    public ReportWriter value(final StackTraceElement frame) throws IOException {
+        separate();
+        write('"');
+        escape(frame.getClassName());
+        write(':');
+        escape(String.valueOf(frame.getFileName()));
+        write(':');
+        escape(frame.getMethodName());
+        write(':');
+        number(frame.getLineNumber());
+        write('"');
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private ReportWriter open(final char c) throws IOException {
+        write(c);
+        if (depth == first.length) {
+            final boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(first, 0, grown, 0, depth);
+            first = grown;
+        }
+        first[depth++] = true;
+        return this;
+    }
+
+    private ReportWriter close(final char c) throws IOException {
+        if (depth == 0) throw new IllegalStateException("no open container");
+        depth--;
+        write(c);
+        return this;
+    }
+
+    private void separate() throws IOException {
+        if (depth > 0) {
+            if (first[depth - 1]) first[depth - 1] = false;
+            else write(',');
+        }
+    }
+
+    private void name(final String name) throws IOException {
+        separate();
+        string(name);
+        write(':');
+    }
+
+    private void any(final Object value) throws IOException {
+        if (value instanceof String) string((String) value);
+        else JSONValue.writeJSONString(value, out);
+    }
+
+    private void write(final char c) throws IOException {
+        if (enc != null) enc.writeAscii(c);
+        else out.write(c);
+    }
+
+    private void number(final long value) throws IOException {
+        if (enc != null) enc.writeLong(value);
+        else out.write(Long.toString(value));
+    }
+
+    private void number(final double value) throws IOException {
+        if (enc != null) enc.writeDouble(value);
+        else if (Double.isNaN(value) || Double.isInfinite(value)) out.write("null");
+        else out.write(Double.toString(value));
+    }
+
+    private void string(final String s) throws IOException {
+        if (enc != null) {
+            enc.writeString(s);
+        } else {
+            out.write('"');
+            escape(s);
+            out.write('"');
+        }
+    }
+
+    /**
+     * Writes the string with the same escaping as {@link JSONValue#escape(String)}, but copies
+     * runs of unescaped characters in one go instead of building a new string.
+     */
+    private void escape(final String s) throws IOException {
+        if (enc != null) {
+            enc.writeEscaped(s);
+            return;
+        }
+
+        final int len = s.length();
+        int start = 0;
+        for (int i = 0; i < len; i++) {
+            final char ch = s.charAt(i);
+            final String esc;
+            switch (ch) {
+                case '"':
+                    esc = "\\\"";
+                    break;
+                case '\\':
+                    esc = "\\\\";
+                    break;
+                case '\b':
+                    esc = "\\b";
+                    break;
+                case '\f':
+                    esc = "\\f";
+                    break;
+                case '\n':
+                    esc = "\\n";
+                    break;
+                case '\r':
+                    esc = "\\r";
+                    break;
+                case '\t':
+                    esc = "\\t";
+                    break;
+                case '/':
+                    esc = "\\/";
+                    break;
+                default:
+                    if (ch <= '\u001F' || (ch >= '\u007F' && ch <= '\u009F') || (ch >= '\u2000' && ch <= '\u20FF')) {
+                        if (i > start) out.write(s, start, i - start);
+                        out.write('\\');
+                        out.write('u');
+                        out.write(HEX[(ch >> 12) & 0xF]);
+                        out.write(HEX[(ch >> 8) & 0xF]);
+                        out.write(HEX[(ch >> 4) & 0xF]);
+                        out.write(HEX[ch & 0xF]);
+                        start = i + 1;
+                    }
+                    continue;
+            }
+            if (i > start) out.write(s, start, i - start);
+            out.write(esc);
+            start = i + 1;
+        }
+        if (len > start) out.write(s, start, len - start);
+    }
+}
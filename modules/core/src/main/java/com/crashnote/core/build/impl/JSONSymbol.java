@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.build.impl;
+
+import com.crashnote.external.json.JSONAware;
+import com.crashnote.external.json.JSONEncoder;
+import com.crashnote.external.json.JSONStreamAware;
+import com.crashnote.external.json.JSONValue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * A string value that is escaped and encoded once and then written verbatim, e.g. for stack
+ * frames that recur in many reports. Its {@link #toString()} returns the plain string.
+ */
+public class JSONSymbol
+    implements JSONAware, JSONStreamAware {
+
+    // VARS =======================================================================================
+
+    private final String text;
+    private final String json;
+    private final byte[] utf8;
+
+
+    // SETUP ======================================================================================
+
+    public JSONSymbol(final String text) {
+        this.text = text;
+        this.json = '"' + JSONValue.escape(text) + '"';
+        this.utf8 = json.getBytes(Charset.forName("UTF-8"));
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    @Override
+    public void writeJSONString(final Writer out) throws IOException {
+        if (out instanceof JSONEncoder.EncoderWriter)
+            ((JSONEncoder.EncoderWriter) out).getEncoder().writeRaw(utf8, 0, utf8.length);
+        else
+            out.write(json);
+    }
+
+    @Override
+    public String toJSONString() {
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || (o instanceof JSONSymbol && text.equals(((JSONSymbol) o).text));
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+}
@@ -16,12 +16,14 @@
 package com.crashnote.core.collect;
 
 import com.crashnote.core.build.Builder;
+import com.crashnote.core.build.ReportWriter;
 import com.crashnote.core.config.CrashConfig;
 import com.crashnote.core.log.LogLog;
 import com.crashnote.core.model.data.DataArray;
 import com.crashnote.core.model.data.DataObject;
 import com.crashnote.core.util.SystemUtil;
 
+import java.io.Writer;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -69,6 +71,18 @@ public abstract class BaseCollector {
         return builder.createDataArr();
     }
 
+    protected DataObject freezeDataObj(final DataObject data) {
+        return builder.freezeDataObj(data);
+    }
+
+    protected Object createSymbol(final String text) {
+        return builder.createSymbol(text);
+    }
+
+    protected ReportWriter createReportWriter(final Writer out) {
+        return builder.createReportWriter(out);
+    }
+
     protected DataArray createDataArr(final Object[] values) {
         final DataArray arr = createDataArr();
         {
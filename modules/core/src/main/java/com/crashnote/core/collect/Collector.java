@@ -16,13 +16,24 @@
 package com.crashnote.core.collect;
 
 import com.crashnote.core.Lifecycle;
+import com.crashnote.core.build.ReportWriter;
+import com.crashnote.core.build.impl.FrameRefWriter;
 import com.crashnote.core.collect.impl.EnvCollector;
 import com.crashnote.core.collect.impl.LogCollector;
 import com.crashnote.core.config.CrashConfig;
+import com.crashnote.core.model.data.DataArray;
 import com.crashnote.core.model.data.DataObject;
+import com.crashnote.core.model.log.FrameDictionary;
 import com.crashnote.core.model.log.ILogSession;
+import com.crashnote.core.model.log.LogAggregate;
 import com.crashnote.core.model.log.LogEvt;
+import com.crashnote.core.model.log.LogEnv;
+import com.crashnote.core.model.log.LogReport;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +41,15 @@ import java.util.Map;
  * This class provides the functionality to transform events, state, properties and context data
  * into a structured form that can be parsed by an external API. The structure is based on
  * abstract object and array containers.
+ * <p/>
+ * Alternatively, a session can be streamed: then the same structure is written field by field
+ * into the output via a {@link ReportWriter} when the report is sent.
+ * <p/>
+ * With delta-encoding of the environment, only the first report (and the first after a change)
+ * carries the full environment, the others just its hash (see {@link LogEnv}).
+ * <p/>
+ * With the frame dictionary, streamed reports refer to stack frames by ID (see
+ * {@link FrameDictionary}).
  */
 public class Collector
     extends BaseCollector implements Lifecycle {
@@ -41,6 +61,12 @@ public class Collector
     private final EnvCollector env_c;
     private final LogCollector log_c;
 
+    // configuration settings:
+    private final boolean envDelta;
+
+    // process-wide frame dictionary (null if disabled)
+    private final FrameDictionary frames;
+
 
     // SETUP ======================================================================================
 
@@ -49,6 +75,8 @@ public class Collector
 
         this.env_c = createEnvColl(config);
         this.log_c = createLogColl(config);
+        this.envDelta = config.isEnvironmentDelta();
+        this.frames = config.isFrameDictionary() ? createFrameDictionary() : null;
     }
 
 
@@ -90,15 +118,177 @@ public class Collector
                 for (final Map.Entry<String, Object> entry : map.entrySet())
                     ctx.put(entry.getKey(), entry.getValue());
             }
-            data.putObj("context", ctx);
+            if (!ctx.isEmpty()) data.putObj("context", ctx);
 
             // environment
-            data.putObj("environment", env_c.collect());
+            final LogEnv env = getEnv();
+            if (env == null) {
+                final DataObject envData = env_c.collect();
+                if (envData != null && !envData.isEmpty()) data.putObj("environment", envData);
+            } else {
+                if (sendEnv(env)) data.putObj("environment", env.getData());
+                data.put("environmentHash", env.getHash());
+            }
+
+            // aggregate
+            final LogAggregate aggregate = session.getAggregate();
+            if (aggregate != null)
+                data.putObj("aggregate", collectAggregate(aggregate));
         }
         return data;
     }
 
 
+    /**
+     * Creates a report that writes the session straight into the output when it is sent, the
+     * session must therefore not change until then.
+     */
+    public LogReport streamLog(final ILogSession session) {
+        // decide up-front, so the report is the same no matter how often it is written
+        final LogEnv env = getEnv();
+        final boolean fullEnv = env == null || sendEnv(env);
+        return new LogReport(new LogReport.StructuredSource() {
+            private volatile Collection<FrameDictionary.Entry> defs = Collections.emptyList();
+
+            @Override
+            public void writeTo(final Writer out) throws IOException {
+                defs = writeLog(session, createReportWriter(out), env, fullEnv);
+            }
+
+            @Override
+            public void writeTo(final ReportWriter out) throws IOException {
+                defs = writeLog(session, out, env, fullEnv);
+            }
+
+            @Override
+            public Collection<FrameDictionary.Entry> getFrameDefinitions() {
+                return defs;
+            }
+        }, env);
+    }
+
+    /**
+     * Streaming variant of {@link #collectLog(ILogSession)}.
+     */
+    public void writeLog(final ILogSession session, final ReportWriter out) throws IOException {
+        final LogEnv env = getEnv();
+        writeLog(session, out, env, env == null || sendEnv(env));
+    }
+
+    /**
+     * @return the environment snapshot, if it is delta-encoded (null otherwise)
+     */
+    public LogEnv getEnv() {
+        return envDelta ? env_c.collectEnv() : null;
+    }
+
+
+    // SHARED =====================================================================================
+
+    /**
+     * @return the frames of the dictionary defined by the report (see {@link FrameRefWriter})
+     */
+    protected Collection<FrameDictionary.Entry> writeLog(final ILogSession session, final ReportWriter out,
+                                                         final LogEnv env, final boolean fullEnv)
+        throws IOException {
+        Collection<FrameDictionary.Entry> defs = Collections.emptyList();
+        out.beginObject();
+        {
+            // log(s)
+            if (frames == null) {
+                log_c.write("errors", session.getEvents(), out);
+            } else {
+                final FrameRefWriter refs = new FrameRefWriter(out, frames);
+                log_c.write("errors", session.getEvents(), refs);
+                refs.writeDefinitions();
+                defs = refs.getDefinitions();
+            }
+
+            // context
+            final Map<String, Object> ctx = session.getContext();
+            if (ctx != null && !ctx.isEmpty()) {
+                out.beginObject("context");
+                for (final Map.Entry<String, Object> entry : ctx.entrySet())
+                    out.field(entry.getKey(), entry.getValue());
+                out.endObject();
+            }
+
+            // environment
+            if (env == null) {
+                final DataObject data = env_c.collect();
+                if (data != null && !data.isEmpty())
+                    out.field("environment", data);
+            } else {
+                if (fullEnv) out.field("environment", env.getData());
+                out.field("environmentHash", env.getHash());
+            }
+
+            // aggregate
+            final LogAggregate aggregate = session.getAggregate();
+            if (aggregate != null)
+                writeAggregate(aggregate, out);
+        }
+        out.endObject();
+        return defs;
+    }
+
+    protected void writeAggregate(final LogAggregate aggregate, final ReportWriter out)
+        throws IOException {
+        out.beginObject("aggregate");
+        {
+            out.field("fingerprint", Long.toHexString(aggregate.getFingerprint()));
+            out.field("count", aggregate.getCount());
+            out.timestamp("firstSeenAt", aggregate.getFirstSeen());
+            out.timestamp("lastSeenAt", aggregate.getLastSeen());
+
+            final List<Map<String, Object>> samples = aggregate.getSamples();
+            if (!samples.isEmpty()) {
+                out.beginArray("samples");
+                for (final Map<String, Object> sample : samples) {
+                    out.beginObject();
+                    for (final Map.Entry<String, Object> entry : sample.entrySet())
+                        out.field(entry.getKey(), entry.getValue());
+                    out.endObject();
+                }
+                out.endArray();
+            }
+        }
+        out.endObject();
+    }
+
+    protected DataObject collectAggregate(final LogAggregate aggregate) {
+        final DataObject data = createDataObj();
+        {
+            data.put("fingerprint", Long.toHexString(aggregate.getFingerprint()));
+            data.put("count", aggregate.getCount());
+            data.put("firstSeenAt", formatTimestamp(aggregate.getFirstSeen()));
+            data.put("lastSeenAt", formatTimestamp(aggregate.getLastSeen()));
+
+            final DataArray samples = createDataArr();
+            for (final Map<String, Object> sample : aggregate.getSamples()) {
+                final DataObject ctx = createDataObj();
+                for (final Map.Entry<String, Object> entry : sample.entrySet())
+                    ctx.put(entry.getKey(), entry.getValue());
+                samples.add(ctx);
+            }
+            data.putArr("samples", samples);
+        }
+        return data;
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    /**
+     * @return whether the environment has to be sent in full (it is then considered as sent)
+     */
+    private boolean sendEnv(final LogEnv env) {
+        if (env_c.isSent(env.getHash())) return false;
+        env_c.setSent(env.getHash());
+        return true;
+    }
+
+
     // FACTORY ====================================================================================
 
     protected EnvCollector createEnvColl(final CrashConfig config) {
@@ -109,6 +299,10 @@ public class Collector
         return new LogCollector(config);
     }
 
+    protected FrameDictionary createFrameDictionary() {
+        return FrameDictionary.getShared();
+    }
+
 
     // GET ========================================================================================
 
@@ -119,4 +313,8 @@ public class Collector
     public LogCollector getLogCollector() {
         return log_c;
     }
+
+    public FrameDictionary getFrameDictionary() {
+        return frames;
+    }
 }
@@ -18,7 +18,11 @@ package com.crashnote.core.collect.impl;
 import com.crashnote.core.collect.BaseCollector;
 import com.crashnote.core.config.CrashConfig;
 import com.crashnote.core.model.data.DataObject;
+import com.crashnote.core.model.log.LogEnv;
 
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.List;
 
 import static com.crashnote.core.util.FilterUtil.doFilter;
@@ -26,6 +30,14 @@ import static com.crashnote.core.util.FilterUtil.doFilter;
 /**
  * Collector to transform an application's environment data (e.g. version, system hardware etc.)
  * into a structured form.
+ *
+ * Since the environment hardly ever changes, it is collected and serialized only once and then
+ * re-used for every report. The snapshot is rebuilt when the timezone, the system properties or
+ * the (asynchronously resolved) host identity changes, or when {@link #invalidate()} is called
+ * (e.g. after changing anything else that is part of the environment).
+ * <p/>
+ * Each snapshot has a hash of its content: with delta-encoding, a report only carries the hash
+ * once the full environment of that hash was sent.
  */
 public class EnvCollector
     extends BaseCollector {
@@ -40,6 +52,12 @@ public class EnvCollector
     private final String clientInfo;
     private final List<String> envFilters;
 
+    // cached snapshot:
+    private volatile Snapshot snapshot;
+
+    // hash of the last environment that was sent in full
+    private volatile String sentHash;
+
 
     // SETUP ======================================================================================
 
@@ -57,7 +75,52 @@ public class EnvCollector
 
     // INTERFACE ==================================================================================
 
+    /**
+     * Returns the (cached) snapshot of the environment.
+     */
     public DataObject collect() {
+        return collectEnv().getData();
+    }
+
+    /**
+     * Returns the (cached) snapshot of the environment along with its hash.
+     */
+    public LogEnv collectEnv() {
+        final int stamp = getStamp();
+        Snapshot s = snapshot;
+        if (s == null || s.stamp != stamp) {
+            final DataObject data = freezeDataObj(collectFresh());
+            s = new Snapshot(stamp, new LogEnv(hash(data.toString()), data));
+            snapshot = s;
+        }
+        return s.env;
+    }
+
+    /**
+     * @return whether the full environment of the given hash was sent already
+     */
+    public boolean isSent(final String hash) {
+        return hash != null && hash.equals(sentHash);
+    }
+
+    /**
+     * Remember that the full environment of the given hash was sent.
+     */
+    public void setSent(final String hash) {
+        sentHash = hash;
+    }
+
+    /**
+     * Discards the cached snapshot so that the next report collects the environment anew.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+
+    // SHARED =====================================================================================
+
+    protected DataObject collectFresh() {
         final DataObject data = createDataObj();
         {
             data.putObj("app", getAppData());
@@ -68,8 +131,21 @@ public class EnvCollector
         return data;
     }
 
-
-    // SHARED =====================================================================================
+    /**
+     * Cheap fingerprint of the environment values that may change at runtime.
+     */
+    protected int getStamp() {
+        int stamp = 0;
+        for (final Object key : getSysUtil().getPropertyKeys()) {
+            final String name = key.toString();
+            stamp += name.hashCode() ^ String.valueOf(getSysUtil().getProperty(name)).hashCode();
+        }
+        stamp = 31 * stamp + String.valueOf(getSysUtil().getTimezoneId()).hashCode();
+        stamp = 31 * stamp + (int) getSysUtil().getTimezoneOffset();
+        stamp = 31 * stamp + String.valueOf(getSysUtil().getHostName()).hashCode();
+        stamp = 31 * stamp + String.valueOf(getSysUtil().getHostAddress()).hashCode();
+        return stamp;
+    }
 
     protected DataObject getAppData() {
         final DataObject appData = createDataObj();
@@ -160,6 +236,39 @@ public class EnvCollector
     }
 
 
+    // INTERNALS ==================================================================================
+
+    /**
+     * @return the first 64 bits of the content's SHA-1 as hex
+     */
+    protected static String hash(final String content) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(content.getBytes("UTF-8"));
+            final StringBuilder sb = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                sb.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(content.hashCode());
+        } catch (UnsupportedEncodingException e) {
+            return Integer.toHexString(content.hashCode());
+        }
+    }
+
+    private static final class Snapshot {
+
+        private final int stamp;
+        private final LogEnv env;
+
+        private Snapshot(final int stamp, final LogEnv env) {
+            this.stamp = stamp;
+            this.env = env;
+        }
+    }
+
+
     // GET / SET ==================================================================================
 
     public Long getStartTime() {
@@ -15,21 +15,65 @@
  */
 package com.crashnote.core.collect.impl;
 
+import com.crashnote.core.build.ReportWriter;
 import com.crashnote.core.collect.BaseCollector;
 import com.crashnote.core.config.CrashConfig;
 import com.crashnote.core.model.data.DataArray;
 import com.crashnote.core.model.data.DataObject;
+import com.crashnote.core.model.data.LruCache;
+
+import java.io.IOException;
+import java.util.List;
 
 /**
  * Collector for serializing a {@link Throwable} into a structured form.
+ * <p/>
+ * The throwable is reduced first (see {@link TraceReducer}), e.g. cause frames that equal the
+ * enclosing ones are cut off and replaced by a count.
+ * <p/>
+ * It can also compute a fingerprint of a {@link Throwable} to recognize identical errors.
+ * <p/>
+ * Since the same stack frames show up again and again, their serialized form is kept in a
+ * bounded cache so that recurring frames cost a lookup instead of new strings. With the frame
+ * dictionary enabled, the streamed frames are left to the writer instead, which refers to them
+ * by ID (see {@link com.crashnote.core.build.impl.FrameRefWriter}).
  */
 public class ExcpCollector
     extends BaseCollector {
 
+    // CONST ======================================================================================
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * limits the walk along the cause chain
+     */
+    private static final int MAX_CAUSES = 32;
+
+
+    // VARS =======================================================================================
+
+    // configuration settings:
+    private final int fingerprintFrames;
+    private final boolean frameRefs;
+
+    private final TraceReducer reducer;
+
+    // serialized frames (null if disabled):
+    private final LruCache<StackTraceElement, Object> frames;
+
+
     // SETUP ======================================================================================
 
     public <C extends CrashConfig> ExcpCollector(final C config) {
         super(config);
+        this.fingerprintFrames = config.getAggregateFrames();
+        this.frameRefs = config.isFrameDictionary();
+        this.reducer = createTraceReducer(config);
+
+        final int cacheSize = config.getFrameCacheSize();
+        this.frames = cacheSize > 0 ? new LruCache<StackTraceElement, Object>(cacheSize) : null;
     }
 
 
@@ -37,36 +81,145 @@ public class ExcpCollector
 
     public DataArray collect(final Throwable th) {
         if (th == null) return null;
+        final List<TraceReducer.Trace> traces = reducer.reduce(th);
         final DataArray excps = createDataArr();
         {
-            Throwable t = th;
-            while (t != null) {
+            for (int i = 0; i < traces.size(); i++) {
+                final TraceReducer.Trace trace = traces.get(i);
+                final Throwable t = trace.getThrowable();
                 final DataObject excp = createDataObj();
                 {
                     excp.put("message", simplifyMessage(t.getMessage()));
                     excp.put("class", t.getClass().getName());
 
-                    final DataArray trace = createDataArr();
-                    for (final StackTraceElement element : t.getStackTrace()) {
-                        final int line = element.getLineNumber();
-                        final String method = element.getMethodName();
-                        final String file = element.getFileName();
-                        final String cls = element.getClassName();
-                        trace.add(cls + ':' + file + ":" + method + ":" + line);
-                    }
-                    excp.put("stacktrace", trace);
+                    final DataArray frames = createDataArr();
+                    for (final StackTraceElement element : trace.getFrames())
+                        frames.add(frame(element).toString());
+                    excp.put("stacktrace", frames);
+
+                    if (trace.getCommonFrames() > 0) excp.put("commonFrames", trace.getCommonFrames());
+                    if (trace.getOmittedFrames() > 0) excp.put("omittedFrames", trace.getOmittedFrames());
+                    if (trace.isSuppressed()) excp.put("suppressedBy", trace.getParent());
+                    else if (trace.getParent() != i - 1) excp.put("causeOf", trace.getParent());
+                    if (trace.isCircular()) excp.put("circular", true);
                 }
                 excps.add(excp);
-                t = t.getCause();
             }
         }
         if (excps.size() == 0) return null;
         return excps;
     }
 
+    /**
+     * Streaming variant of {@link #collect(Throwable)}, writes the array under the given name.
+     */
+    public void write(final String name, final Throwable th, final ReportWriter out) throws IOException {
+        if (th == null) return;
+        final List<TraceReducer.Trace> traces = reducer.reduce(th);
+        out.beginArray(name);
+        {
+            for (int i = 0; i < traces.size(); i++) {
+                final TraceReducer.Trace trace = traces.get(i);
+                final Throwable t = trace.getThrowable();
+                out.beginObject();
+                {
+                    out.field("message", simplifyMessage(t.getMessage()));
+                    out.field("class", t.getClass().getName());
+
+                    out.beginArray("stacktrace");
+                    for (final StackTraceElement element : trace.getFrames()) {
+                        if (frameRefs) out.value(element);
+                        else out.value(frame(element));
+                    }
+                    out.endArray();
+
+                    if (trace.getCommonFrames() > 0) out.field("commonFrames", trace.getCommonFrames());
+                    if (trace.getOmittedFrames() > 0) out.field("omittedFrames", trace.getOmittedFrames());
+                    if (trace.isSuppressed()) out.field("suppressedBy", trace.getParent());
+                    else if (trace.getParent() != i - 1) out.field("causeOf", trace.getParent());
+                    if (trace.isCircular()) out.field("circular", Boolean.TRUE);
+                }
+                out.endObject();
+            }
+        }
+        out.endArray();
+    }
+
+
+    /**
+     * Computes a 64-bit fingerprint of the throwable and its causes. It is made up of each
+     * exception's class and its top stack frames (class and method, but not the line number);
+     * generated class name suffixes (e.g. '$$EnhancerByCGLIB$$1a2b') are ignored.
+     * No strings are built in the process.
+     */
+    public long fingerprint(final Throwable th) {
+        long h = FNV_OFFSET;
+        Throwable t = th;
+        for (int depth = 0; t != null && depth < MAX_CAUSES; depth++) {
+            h = mix(h, normalizedHash(t.getClass().getName()));
+
+            final StackTraceElement[] trace = t.getStackTrace();
+            if (trace != null) {
+                final int frames = Math.min(trace.length, fingerprintFrames);
+                for (int i = 0; i < frames; i++) {
+                    h = mix(h, normalizedHash(trace[i].getClassName()));
+                    h = mix(h, trace[i].getMethodName().hashCode());
+                }
+            }
+            t = t.getCause();
+        }
+        return h;
+    }
+
+
+    // FACTORY ====================================================================================
+
+    protected <C extends CrashConfig> TraceReducer createTraceReducer(final C config) {
+        return new TraceReducer(config);
+    }
+
 
     // INTERNALS ==================================================================================
 
+    /**
+     * @return the serialized frame (e.g. 'com.Foo:Foo.java:bar:42'), its string form is the text
+     */
+    private Object frame(final StackTraceElement element) {
+        if (frames == null) return createSymbol(formatFrame(element));
+
+        Object symbol = frames.get(element);
+        if (symbol == null) {
+            symbol = createSymbol(formatFrame(element));
+            frames.put(element, symbol);
+        }
+        return symbol;
+    }
+
+    private static String formatFrame(final StackTraceElement element) {
+        final int line = element.getLineNumber();
+        final String method = element.getMethodName();
+        final String file = element.getFileName();
+        final String cls = element.getClassName();
+        return cls + ':' + file + ":" + method + ":" + line;
+    }
+
+    private static long mix(final long h, final int v) {
+        return (h ^ (v & 0xffffffffL)) * FNV_PRIME;
+    }
+
+    /**
+     * @return hash code of the name up to the first '$$' (marker of generated classes)
+     */
+    private static int normalizedHash(final String name) {
+        final int end = name.indexOf("$$");
+        if (end == -1) return name.hashCode();
+
+        int h = 0;
+        for (int i = 0; i < end; i++)
+            h = 31 * h + name.charAt(i);
+        return h;
+    }
+
     private String simplifyMessage(final String msg) {
         if (msg == null) return msg;
         else {
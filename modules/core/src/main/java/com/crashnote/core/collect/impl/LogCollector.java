@@ -15,12 +15,14 @@
  */
 package com.crashnote.core.collect.impl;
 
+import com.crashnote.core.build.ReportWriter;
 import com.crashnote.core.collect.BaseCollector;
 import com.crashnote.core.config.CrashConfig;
 import com.crashnote.core.model.data.DataArray;
 import com.crashnote.core.model.data.DataObject;
 import com.crashnote.core.model.log.LogEvt;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -53,6 +55,23 @@ public class LogCollector
         return collectEvts(evts);
     }
 
+    /**
+     * Streaming variant of {@link #collect(List)}, writes the array under the given name.
+     */
+    public void write(final String name, final List<LogEvt<?>> evts, final ReportWriter out)
+        throws IOException {
+        if (evts == null || evts.isEmpty()) return;
+        out.beginArray(name);
+        {
+            for (final LogEvt<?> evt : evts) {
+                out.beginObject();
+                writeEvt(evt, out);
+                out.endObject();
+            }
+        }
+        out.endArray();
+    }
+
 
     // FACTORY ====================================================================================
 
@@ -74,6 +93,11 @@ public class LogCollector
             res.put("level", evt.getLevel().toString());
             res.put("id", evt.getID());
 
+            // sampling (so that counts can be extrapolated)
+            final double sampleRate = evt.getSampleRate();
+            if (sampleRate > 0 && sampleRate < 1)
+                res.put("sampleRate", sampleRate);
+
             final Object[] msgArgs = evt.getArgs();
             if (msgArgs != null && msgArgs.length > 0) {
                 final DataArray args = createDataArr();
@@ -101,6 +125,45 @@ public class LogCollector
     }
 
 
+    protected void writeEvt(final LogEvt<?> evt, final ReportWriter out) throws IOException {
+
+        // meta data
+        out.timestamp("occurredAt", evt.getTimeStamp());
+        out.field("message", evt.getMessage());
+        out.field("source", evt.getLoggerName());
+        out.field("thread", evt.getThreadName());
+        out.field("level", evt.getLevel().toString());
+        out.field("id", evt.getID());
+
+        // sampling (so that counts can be extrapolated)
+        final double sampleRate = evt.getSampleRate();
+        if (sampleRate > 0 && sampleRate < 1)
+            out.field("sampleRate", sampleRate);
+
+        final Object[] msgArgs = evt.getArgs();
+        if (msgArgs != null && msgArgs.length > 0) {
+            out.beginArray("messageArgs");
+            for (final Object obj : msgArgs)
+                out.value(obj.toString());
+            out.endArray();
+        }
+
+        // context
+        if (evt.isExcp()) {
+            final Map<String, Object> ctx = evt.getMDC();
+            if (ctx != null && ctx.size() > 0) {
+                out.beginObject("context");
+                for (final String key : ctx.keySet())
+                    out.field(key, ctx.get(key).toString());
+                out.endObject();
+            }
+        }
+
+        // exception data
+        excpCollector.write("exceptions", evt.getThrowable(), out);
+    }
+
+
     // INTERNALS ==================================================================================
 
     private DataArray collectEvts(final List<LogEvt<?>> evts) {
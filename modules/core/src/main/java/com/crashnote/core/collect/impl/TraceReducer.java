@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.collect.impl;
+
+import com.crashnote.core.config.CrashConfig;
+import com.crashnote.core.util.ClassFilter;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reduces a {@link Throwable} with its causes and suppressed exceptions to the frames worth
+ * reporting:
+ * <ul>
+ * <li>each exception is visited once (by identity), so circular causes do not loop forever</li>
+ * <li>frames an exception has in common with its enclosing one are cut off and only counted</li>
+ * <li>frames of excluded classes (e.g. reflection and proxies) are left out, unless included</li>
+ * <li>the number of frames per exception and the number of exceptions are capped</li>
+ * </ul>
+ * The exceptions are listed in the order of {@link Throwable#printStackTrace()}: an exception,
+ * its suppressed exceptions (with their causes) and then its cause.
+ */
+public class TraceReducer {
+
+    // CONST ======================================================================================
+
+    /**
+     * max number of exceptions per throwable (causes and suppressed)
+     */
+    public static final int MAX_THROWABLES = 32;
+
+    private static final Throwable[] NONE = new Throwable[0];
+    private static final StackTraceElement[] NO_FRAMES = new StackTraceElement[0];
+
+    /**
+     * 'Throwable.getSuppressed()', null if not available (before Java 7)
+     */
+    private static final Method GET_SUPPRESSED;
+
+    static {
+        Method m = null;
+        try {
+            m = Throwable.class.getMethod("getSuppressed");
+        } catch (Exception ignored) {
+            // not available
+        }
+        GET_SUPPRESSED = m;
+    }
+
+
+    // VARS =======================================================================================
+
+    // configuration settings:
+    private final int maxFrames;
+    private final boolean elideCommon;
+    private final ClassFilter excludes;
+    private final ClassFilter includes;
+
+
+    // SETUP ======================================================================================
+
+    public <C extends CrashConfig> TraceReducer(final C config) {
+        this.maxFrames = config.getTraceMaxFrames();
+        this.elideCommon = config.isTraceElidingCommon();
+        this.excludes = new ClassFilter(config.getTraceExcludes());
+        this.includes = new ClassFilter(config.getTraceIncludes());
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    public List<Trace> reduce(final Throwable th) {
+        final List<Trace> res = new ArrayList<Trace>();
+        if (th != null)
+            walk(th, null, -1, false, res, new IdentityHashMap<Throwable, Boolean>());
+        return res;
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private void walk(final Throwable th, final StackTraceElement[] enclosing, final int parent,
+                      final boolean suppressed, final List<Trace> res, final Map<Throwable, Boolean> seen) {
+        Throwable t = th;
+        StackTraceElement[] outer = enclosing;
+        int up = parent;
+        boolean supp = suppressed;
+
+        while (t != null && res.size() < MAX_THROWABLES) {
+            if (seen.put(t, Boolean.TRUE) != null) {
+                if (up >= 0) res.get(up).circular = true;
+                return;
+            }
+
+            final StackTraceElement[] frames = t.getStackTrace();
+            final int idx = res.size();
+            res.add(reduce(t, frames == null ? NO_FRAMES : frames, outer, up, supp));
+
+            for (final Throwable s : getSuppressed(t))
+                walk(s, frames, idx, true, res, seen);
+
+            outer = frames;
+            up = idx;
+            supp = false;
+            t = t.getCause();
+        }
+    }
+
+    private Trace reduce(final Throwable t, final StackTraceElement[] frames,
+                         final StackTraceElement[] enclosing, final int parent, final boolean suppressed) {
+
+        // cut off the frames in common with the enclosing trace (compared from the bottom)
+        int last = frames.length - 1;
+        if (elideCommon && enclosing != null) {
+            int n = enclosing.length - 1;
+            while (last >= 0 && n >= 0 && frames[last].equals(enclosing[n])) {
+                last--;
+                n--;
+            }
+        }
+        final int common = frames.length - 1 - last;
+
+        // filter and cap the remaining frames
+        final boolean filtering = !excludes.isEmpty();
+        final int cap = maxFrames > 0 ? maxFrames : Integer.MAX_VALUE;
+        final List<StackTraceElement> kept = new ArrayList<StackTraceElement>(Math.min(last + 1, cap));
+        int omitted = 0;
+        for (int i = 0; i <= last; i++) {
+            final StackTraceElement frame = frames[i];
+            if (kept.size() >= cap
+                || (filtering && excludes.matches(frame.getClassName()) && !includes.matches(frame.getClassName())))
+                omitted++;
+            else
+                kept.add(frame);
+        }
+
+        return new Trace(t, kept.toArray(new StackTraceElement[kept.size()]), common, omitted, parent, suppressed);
+    }
+
+    private static Throwable[] getSuppressed(final Throwable t) {
+        if (GET_SUPPRESSED == null) return NONE;
+        try {
+            final Throwable[] res = (Throwable[]) GET_SUPPRESSED.invoke(t);
+            return res == null ? NONE : res;
+        } catch (Exception ignored) {
+            return NONE;
+        }
+    }
+
+    /**
+     * A single (reduced) exception of a throwable.
+     */
+    public static final class Trace {
+
+        private final Throwable throwable;
+        private final StackTraceElement[] frames;
+        private final int commonFrames;
+        private final int omittedFrames;
+        private final int parent;
+        private final boolean suppressed;
+        private boolean circular;
+
+        private Trace(final Throwable throwable, final StackTraceElement[] frames, final int commonFrames,
+                      final int omittedFrames, final int parent, final boolean suppressed) {
+            this.throwable = throwable;
+            this.frames = frames;
+            this.commonFrames = commonFrames;
+            this.omittedFrames = omittedFrames;
+            this.parent = parent;
+            this.suppressed = suppressed;
+        }
+
+        public Throwable getThrowable() {
+            return throwable;
+        }
+
+        /**
+         * @return the frames to report
+         */
+        public StackTraceElement[] getFrames() {
+            return frames;
+        }
+
+        /**
+         * @return number of frames at the bottom that equal the ones of the enclosing exception
+         */
+        public int getCommonFrames() {
+            return commonFrames;
+        }
+
+        /**
+         * @return number of frames left out by the filters and the cap
+         */
+        public int getOmittedFrames() {
+            return omittedFrames;
+        }
+
+        /**
+         * @return index of the enclosing exception (whose cause or suppressed exception this is),
+         *         -1 for the top one
+         */
+        public int getParent() {
+            return parent;
+        }
+
+        public boolean isSuppressed() {
+            return suppressed;
+        }
+
+        /**
+         * @return whether a cause or suppressed exception refers back to a reported exception
+         */
+        public boolean isCircular() {
+            return circular;
+        }
+    }
+}
@@ -15,19 +15,25 @@
  */
 package com.crashnote.core.config;
 
+import com.crashnote.core.build.BinaryBuilder;
 import com.crashnote.core.build.Builder;
 import com.crashnote.core.collect.Collector;
 import com.crashnote.core.log.LogLog;
 import com.crashnote.core.log.LogLogFactory;
 import com.crashnote.core.model.excp.CrashnoteException;
 import com.crashnote.core.model.types.LogLevel;
+import com.crashnote.core.model.types.OverflowPolicy;
 import com.crashnote.core.report.Reporter;
+import com.crashnote.core.send.BatchSender;
 import com.crashnote.core.send.Sender;
+import com.crashnote.core.stats.Statistics;
+import com.crashnote.core.util.HostResolver;
 import com.crashnote.core.util.SystemUtil;
 import com.crashnote.external.config.Config;
 import com.crashnote.external.config.ConfigException;
 import com.crashnote.external.config.ConfigRenderOptions;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -74,6 +80,11 @@ public class CrashConfig {
      */
     protected LogLogFactory logFactory;
 
+    /**
+     * statistics of the modules created from this configuration
+     */
+    private Statistics statistics;
+
 
     // SETUP ======================================================================================
 
@@ -132,6 +143,8 @@ public class CrashConfig {
      * Create an instance of module 'Sender'
      */
     public Sender getSender() {
+        if (isBatchSending())
+            return new BatchSender(this);
         return new Sender(this);
     }
 
@@ -146,6 +159,7 @@ public class CrashConfig {
      * Create an instance of module 'Builder'
      */
     public Builder getBuilder() {
+        if ("binary".equalsIgnoreCase(getReportEncoding())) return new BinaryBuilder();
         return new Builder();
     }
 
@@ -153,7 +167,15 @@ public class CrashConfig {
      * Create an instance of the system utility
      */
     public SystemUtil getSystemUtil() {
-        return new SystemUtil();
+        return new SystemUtil(HostResolver.getShared(getResolveTTL()));
+    }
+
+    /**
+     * Get the statistics shared by all modules created from this configuration
+     */
+    public synchronized Statistics getStatistics() {
+        if (statistics == null) statistics = new Statistics();
+        return statistics;
     }
 
     /**
@@ -201,8 +223,10 @@ public class CrashConfig {
     protected boolean getBool(final String name, final boolean def) {
         try {
             return conf.getBoolean(getConfName(name));
-        } catch (Exception ignored) {
+        } catch (ConfigException.Missing ignored) {
             return def;
+        } catch (ConfigException.WrongType e) {
+            throw new CrashnoteException("type of config key '" + name + "' is not 'bool'", e);
         }
     }
 
@@ -219,8 +243,20 @@ public class CrashConfig {
     protected int getOptInt(final String name, final int defaultValue) {
         try {
             return conf.getInt(getConfName(name));
-        } catch (Exception ignored) {
+        } catch (ConfigException.Missing ignored) {
             return defaultValue;
+        } catch (ConfigException.WrongType e) {
+            throw new CrashnoteException("type of config key '" + name + "' is not 'int'", e);
+        }
+    }
+
+    protected double getOptDouble(final String name, final double defaultValue) {
+        try {
+            return conf.getDouble(getConfName(name));
+        } catch (ConfigException.Missing ignored) {
+            return defaultValue;
+        } catch (ConfigException.WrongType e) {
+            throw new CrashnoteException("type of config key '" + name + "' is not 'double'", e);
         }
     }
 
@@ -234,6 +270,20 @@ public class CrashConfig {
         }
     }
 
+    protected long getMillis(final String name, final long def) {
+        return conf.hasPath(getConfName(name)) ? getMillis(name) : def;
+    }
+
+    protected long getBytes(final String name, final long def) {
+        try {
+            return conf.getBytes(getConfName(name));
+        } catch (ConfigException.Missing ignored) {
+            return def;
+        } catch (ConfigException e) {
+            throw new CrashnoteException("type of config key '" + name + "' is not a size in bytes", e);
+        }
+    }
+
     protected String getString(final String name) {
         try {
             return conf.getString(getConfName(name));
@@ -252,8 +302,10 @@ public class CrashConfig {
     protected String getOptString(final String name) {
         try {
             return conf.getString(getConfName(name));
-        } catch (Exception ignored) {
+        } catch (ConfigException.Missing ignored) {
             return null;
+        } catch (ConfigException.WrongType e) {
+            throw new CrashnoteException("type of config key '" + name + "' is not 'string'", e);
         }
     }
 
@@ -270,8 +322,10 @@ public class CrashConfig {
     protected List<String> getStrings(final String name, final List<String> def) {
         try {
             return conf.getStringList(getConfName(name));
-        } catch (Exception ignored) {
+        } catch (ConfigException.Missing ignored) {
             return def;
+        } catch (ConfigException.WrongType e) {
+            throw new CrashnoteException("config key '" + name + "' is not a list of strings", e);
         }
     }
 
@@ -375,7 +429,221 @@ public class CrashConfig {
         return getMillis("network.timeout").intValue();
     }
 
+    public boolean isKeepAlive() {
+        return getBool("network.keep-alive", true);
+    }
+
+    public boolean isStreamingRequests() {
+        return getBool("network.streaming", true);
+    }
+
+    public int getChunkSize() {
+        return (int) getBytes("network.chunk-size", 0);
+    }
+
+    public int getCompressionLevel() {
+        return getOptInt("network.compression.level", -1);
+    }
+
+    public int getCompressionThreshold() {
+        return (int) getBytes("network.compression.threshold", 1024);
+    }
+
+    public int getCompressionPool() {
+        return getOptInt("network.compression.pool", 4);
+    }
+
+    public String getCompressionDictionary() {
+        return getString("network.compression.dictionary", "");
+    }
+
     public boolean isDebug() {
         return getBool("debug", false);
     }
+
+    public boolean isBatchSending() {
+        return getBool("network.batch.enabled", false);
+    }
+
+    public int getBatchMaxCount() {
+        return getOptInt("network.batch.max-count", 50);
+    }
+
+    public long getBatchMaxSize() {
+        return getBytes("network.batch.max-size", 512 * 1024);
+    }
+
+    public long getBatchLinger() {
+        return getMillis("network.batch.linger", 2000);
+    }
+
+    public String getBatchFormat() {
+        return getString("network.batch.format", "array");
+    }
+
+    /**
+     * @return how often to repeat a failed request - by default not at all in sync mode, where
+     * the request is sent on the application's logging thread
+     */
+    public int getRetryMax() {
+        final int retries = getOptInt("network.retry.max-retries", -1);
+        if (retries >= 0) return retries;
+        return isSync() ? 0 : 2;
+    }
+
+    public long getRetryBackoff() {
+        return getMillis("network.retry.backoff", 250);
+    }
+
+    public long getRetryMaxBackoff() {
+        return getMillis("network.retry.max-backoff", 5000);
+    }
+
+    public int getCircuitFailures() {
+        return getOptInt("network.circuit.failures", 5);
+    }
+
+    public long getCircuitOpenTime() {
+        return getMillis("network.circuit.open-time", 30000);
+    }
+
+    public boolean isSpooling() {
+        return getBool("network.spool.enabled", false);
+    }
+
+    public File getSpoolDir() {
+        final String dir = getString("network.spool.dir", "");
+        if (dir == null || dir.length() == 0)
+            return new File(System.getProperty("java.io.tmpdir"), "crashnote-spool");
+        return new File(dir);
+    }
+
+    public long getSpoolSegmentSize() {
+        return getBytes("network.spool.segment-size", 1024 * 1024);
+    }
+
+    public long getSpoolMaxSize() {
+        return getBytes("network.spool.max-size", 16 * 1024 * 1024);
+    }
+
+    public long getSpoolMaxAge() {
+        return getMillis("network.spool.max-age", 3 * 24 * 60 * 60 * 1000L);
+    }
+
+    public long getSpoolInterval() {
+        return getMillis("network.spool.interval", 30000);
+    }
+
+    public boolean isAdmissionControl() {
+        return getBool("admission.enabled", false);
+    }
+
+    public double getAdmissionRate() {
+        return getOptDouble("admission.rate", 50);
+    }
+
+    public int getAdmissionBurst() {
+        return getOptInt("admission.burst", 100);
+    }
+
+    public double getAdmissionLoggerRate() {
+        return getOptDouble("admission.logger-rate", 10);
+    }
+
+    public int getAdmissionLoggerBurst() {
+        return getOptInt("admission.logger-burst", 20);
+    }
+
+    public double getAdmissionClassRate() {
+        return getOptDouble("admission.class-rate", 10);
+    }
+
+    public int getAdmissionClassBurst() {
+        return getOptInt("admission.class-burst", 20);
+    }
+
+    public long getAdmissionSampleTarget() {
+        return getOptInt("admission.sample-target", 20);
+    }
+
+    public boolean isAggregating() {
+        return getBool("aggregate.enabled", false);
+    }
+
+    public long getAggregateWindow() {
+        return getMillis("aggregate.window", 60000);
+    }
+
+    public int getAggregateFrames() {
+        return getOptInt("aggregate.frames", 5);
+    }
+
+    public int getAggregateCapacity() {
+        return getOptInt("aggregate.capacity", 256);
+    }
+
+    public int getAggregateSamples() {
+        return getOptInt("aggregate.samples", 3);
+    }
+
+    public boolean isRingBufferQueue() {
+        return "ringbuffer".equalsIgnoreCase(getString("queue.engine", "executor"));
+    }
+
+    public int getQueueSize() {
+        return getOptInt("queue.size", 1024);
+    }
+
+    public OverflowPolicy getQueueOverflowPolicy() {
+        final OverflowPolicy p = OverflowPolicy.fromCode(getOptString("queue.overflow"));
+        return p == null ? OverflowPolicy.DROP_NEWEST : p;
+    }
+
+    public long getQueueTimeout() {
+        return getMillis("queue.timeout", 100);
+    }
+
+    public boolean isStreamingReports() {
+        return getBool("report.streaming", false);
+    }
+
+    public int getFrameCacheSize() {
+        return getOptInt("report.frame-cache", 4096);
+    }
+
+    public String getReportEncoding() {
+        return getString("report.encoding", "json");
+    }
+
+    public boolean isEnvironmentDelta() {
+        return getBool("report.environment-delta", false);
+    }
+
+    public boolean isFrameDictionary() {
+        return getBool("report.frame-dictionary", false);
+    }
+
+    public boolean isJmxEnabled() {
+        return getBool("stats.jmx", true);
+    }
+
+    public int getTraceMaxFrames() {
+        return getOptInt("report.trace.max-frames", 256);
+    }
+
+    public boolean isTraceElidingCommon() {
+        return getBool("report.trace.elide-common", true);
+    }
+
+    public List<String> getTraceExcludes() {
+        return getOptStrings("report.trace.exclude");
+    }
+
+    public List<String> getTraceIncludes() {
+        return getOptStrings("report.trace.keep");
+    }
+
+    public long getResolveTTL() {
+        return getMillis("system.resolve-ttl", HostResolver.DEFAULT_TTL);
+    }
 }
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.model.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values (e.g. latencies or sizes) for concurrent use, with buckets of
+ * powers of two: bucket 0 counts zeros, bucket i the values in [2^(i-1), 2^i). Quantiles are
+ * therefore approximate (the upper bound of their bucket, at most the maximum value).
+ * <p/>
+ * Recording takes a few atomic adds on striped cells (see {@link StripedCounter}), no locks and no
+ * allocation, so it can stay on in production.
+ */
+public class Histogram {
+
+    // CONST ======================================================================================
+
+    public static final int BUCKETS = 64;
+
+    // buckets of a stripe plus padding, so stripes do not share a cache line
+    private static final int STRIDE = BUCKETS + 16;
+
+
+    // VARS =======================================================================================
+
+    private final AtomicLongArray counts;
+    private final StripedCounter sum;
+    private final AtomicLong max;
+
+
+    // SETUP ======================================================================================
+
+    public Histogram() {
+        this.counts = new AtomicLongArray(StripedCounter.STRIPES * STRIDE);
+        this.sum = new StripedCounter();
+        this.max = new AtomicLong();
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    public void record(final long value) {
+        final long v = Math.max(0, value);
+        counts.getAndIncrement(StripedCounter.stripe() * STRIDE + bucket(v));
+        sum.add(v);
+
+        long m = max.get();
+        while (v > m && !max.compareAndSet(m, v))
+            m = max.get();
+    }
+
+    /**
+     * @param q quantile, between 0 and 1 (e.g. 0.99)
+     * @return (upper bound of) the value that the given share of the recorded values does not
+     * exceed, or 0 if there are none
+     */
+    public long getQuantile(final double q) {
+        final long[] merged = new long[BUCKETS];
+        long total = 0;
+        for (int s = 0; s < StripedCounter.STRIPES; s++)
+            for (int b = 0; b < BUCKETS; b++) {
+                final long n = counts.get(s * STRIDE + b);
+                merged[b] += n;
+                total += n;
+            }
+        if (total == 0) return 0;
+
+        final long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += merged[b];
+            if (seen >= rank)
+                return Math.min(upperBound(b), getMax());
+        }
+        return getMax();
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int s = 0; s < StripedCounter.STRIPES; s++)
+            for (int b = 0; b < BUCKETS; b++)
+                total += counts.get(s * STRIDE + b);
+        return total;
+    }
+
+    public double getMean() {
+        final long count = getCount();
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++)
+            counts.set(i, 0);
+        sum.reset();
+        max.set(0);
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private static int bucket(final long v) {
+        return 64 - Long.numberOfLeadingZeros(v);
+    }
+
+    private static long upperBound(final int bucket) {
+        return bucket == 0 ? 0 : (bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1);
+    }
+
+
+    // GET ========================================================================================
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+}
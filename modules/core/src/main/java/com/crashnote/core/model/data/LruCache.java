@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.model.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded map for concurrent use which evicts the least recently used entries. To keep
+ * contention low, it is split into segments that each hold a part of the entries and their own
+ * LRU order under their own lock.
+ *
+ * @param <K> type of key
+ * @param <V> type of value
+ */
+public class LruCache<K, V> {
+
+    // VARS =======================================================================================
+
+    private final int capacity;
+    private final int mask;
+    private final Segment<K, V>[] segments;
+
+
+    // SETUP ======================================================================================
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public LruCache(final int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+
+        // small caches use a single segment to keep the LRU order exact
+        final int count = capacity >= 256 ? 16 : 1;
+        this.mask = count - 1;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++)
+            segments[i] = new Segment<K, V>((capacity + count - 1) / count);
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    public V get(final K key) {
+        final Segment<K, V> seg = segmentFor(key);
+        synchronized (seg) {
+            return seg.get(key);
+        }
+    }
+
+    public V put(final K key, final V value) {
+        final Segment<K, V> seg = segmentFor(key);
+        synchronized (seg) {
+            return seg.put(key, value);
+        }
+    }
+
+    public void clear() {
+        for (final Segment<K, V> seg : segments) {
+            synchronized (seg) {
+                seg.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (final Segment<K, V> seg : segments) {
+            synchronized (seg) {
+                size += seg.size();
+            }
+        }
+        return size;
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private Segment<K, V> segmentFor(final Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        h ^= (h >>> 7);
+        return segments[h & mask];
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Segment<K, V>
+        extends LinkedHashMap<K, V> {
+
+        private final int max;
+
+        private Segment(final int max) {
+            super(16, 0.75f, true); // access order
+            this.max = max;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+            return size() > max;
+        }
+    }
+
+
+    // GET ========================================================================================
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.model.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A preallocated, bounded queue that never takes a lock. Each slot carries a sequence number
+ * which tells producers and consumers whether it is free to be written or ready to be read, so
+ * both sides only need a single CAS on their respective cursor.
+ * <p/>
+ * It is meant to be used by many producers and a single consumer, but {@link #poll()} is safe to
+ * call from producers as well (e.g. to make room by evicting the oldest element).
+ *
+ * The capacity is rounded up to a power of two (with a minimum of two).
+ *
+ * @param <E> type of the elements
+ */
+public class RingBuffer<E> {
+
+    // VARS =======================================================================================
+
+    private final int mask;
+
+    private final AtomicReferenceArray<E> items;
+    private final AtomicLongArray sequences;
+
+    /**
+     * position of the next element to read
+     */
+    private final AtomicLong head;
+
+    /**
+     * position of the next slot to write
+     */
+    private final AtomicLong tail;
+
+
+    // SETUP ======================================================================================
+
+    public RingBuffer(final int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive");
+
+        final int size = roundToPowerOfTwo(capacity);
+        this.mask = size - 1;
+        this.items = new AtomicReferenceArray<E>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+
+        this.head = new AtomicLong(0);
+        this.tail = new AtomicLong(0);
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * Appends the element if there is a free slot.
+     *
+     * @return false if the buffer is full
+     */
+    public boolean offer(final E e) {
+        if (e == null)
+            throw new IllegalArgumentException("argument must be non-null");
+
+        long pos = tail.get();
+        while (true) {
+            final int idx = (int) pos & mask;
+            final long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items.set(idx, e);
+                    sequences.set(idx, pos + 1); // publish
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // slot still occupied by an unread element
+            } else {
+                pos = tail.get(); // another producer claimed the slot
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the oldest element.
+     *
+     * @return null if the buffer is empty
+     */
+    public E poll() {
+        long pos = head.get();
+        while (true) {
+            final int idx = (int) pos & mask;
+            final long diff = sequences.get(idx) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    final E e = items.get(idx);
+                    items.set(idx, null);
+                    sequences.set(idx, pos + mask + 1); // release slot for the next lap
+                    return e;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null; // slot not yet published
+            } else {
+                pos = head.get(); // another consumer took the element
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return approximate number of elements, exact only when the buffer is quiescent
+     */
+    public int size() {
+        final long size = tail.get() - head.get();
+        if (size < 0) return 0;
+        return size > capacity() ? capacity() : (int) size;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private static int roundToPowerOfTwo(final int value) {
+        int size = 2; // a single slot can not tell 'published' from 'released'
+        while (size < value) size <<= 1;
+        return size;
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.model.data;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter for concurrent use that spreads its updates over several cells (like Java 8's
+ * {@code LongAdder}): each thread adds to the cell picked by its ID, so threads counting at the
+ * same time rarely contend for the same cache line. Reading sums up all cells, it is thus not an
+ * atomic snapshot of concurrent updates.
+ */
+public class StripedCounter {
+
+    // CONST ======================================================================================
+
+    /**
+     * number of cells, a power of two
+     */
+    static final int STRIPES = stripes();
+
+    // distance of two cells (in longs): 128 bytes keep them off each other's cache line
+    private static final int PAD = 16;
+
+
+    // VARS =======================================================================================
+
+    private final AtomicLongArray cells;
+
+
+    // SETUP ======================================================================================
+
+    public StripedCounter() {
+        this.cells = new AtomicLongArray(STRIPES * PAD);
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    public void increment() {
+        cells.getAndIncrement(stripe() * PAD);
+    }
+
+    public void add(final long x) {
+        cells.getAndAdd(stripe() * PAD, x);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++)
+            sum += cells.get(i * PAD);
+        return sum;
+    }
+
+    public void reset() {
+        for (int i = 0; i < STRIPES; i++)
+            cells.set(i * PAD, 0);
+    }
+
+    /**
+     * @return the current value
+     */
+    public long sumThenReset() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++)
+            sum += cells.getAndSet(i * PAD, 0);
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+
+
+    // SHARED =====================================================================================
+
+    /**
+     * @return the stripe of the current thread, a stable hash of its ID
+     */
+    static int stripe() {
+        final long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9e3779b97f4a7c15L) >>> 32) & (STRIPES - 1);
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private static int stripes() {
+        final int cpus = Runtime.getRuntime().availableProcessors();
+        int n = 2;
+        while (n < cpus && n < 64)
+            n <<= 1;
+        return n;
+    }
+}
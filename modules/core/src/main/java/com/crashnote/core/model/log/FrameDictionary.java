@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.model.log;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide table of stack frames, so a report can refer to a frame by a small integer ID
+ * instead of repeating its text. The definition of a frame ('com.Foo:Foo.java:bar:42') is sent
+ * with the reports that refer to it, until the endpoint took one of them.
+ * <p/>
+ * The IDs are only valid within the dictionary's epoch (random per process). An endpoint that
+ * does not know the epoch (or an ID of it) answers with 409, then the whole dictionary is
+ * registered again.
+ * <p/>
+ * The dictionary is bounded: once it is full, further frames are not assigned an ID (and are
+ * written as text).
+ */
+public class FrameDictionary {
+
+    // CONST ======================================================================================
+
+    public static final int MAX_SIZE = 16 * 1024;
+
+    private static FrameDictionary shared;
+
+
+    // VARS =======================================================================================
+
+    private final int maxSize;
+    private final String epoch;
+
+    private final ConcurrentMap<StackTraceElement, Entry> entries;
+    private final AtomicInteger nextId;
+
+
+    // SETUP ======================================================================================
+
+    public FrameDictionary(final int maxSize) {
+        this.maxSize = maxSize;
+        this.epoch = Long.toHexString(new SecureRandom().nextLong() & Long.MAX_VALUE);
+        this.entries = new ConcurrentHashMap<StackTraceElement, Entry>();
+        this.nextId = new AtomicInteger();
+    }
+
+    /**
+     * Returns the dictionary shared by all collectors and senders in this JVM.
+     */
+    public static synchronized FrameDictionary getShared() {
+        if (shared == null)
+            shared = new FrameDictionary(MAX_SIZE);
+        return shared;
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * @return the entry of the frame, created on first use (null if the dictionary is full)
+     */
+    public Entry lookup(final StackTraceElement frame) {
+        final Entry entry = entries.get(frame);
+        if (entry != null || entries.size() >= maxSize) return entry;
+
+        final Entry created = new Entry(nextId.getAndIncrement(), format(frame));
+        final Entry prev = entries.putIfAbsent(frame, created);
+        return prev != null ? prev : created;
+    }
+
+    /**
+     * @return all entries, ordered by ID
+     */
+    public List<Entry> getEntries() {
+        final List<Entry> res = new ArrayList<Entry>(entries.values());
+        Collections.sort(res, new Comparator<Entry>() {
+            @Override
+            public int compare(final Entry a, final Entry b) {
+                return a.id < b.id ? -1 : (a.id == b.id ? 0 : 1);
+            }
+        });
+        return res;
+    }
+
+    /**
+     * @return the text of a frame (e.g. 'com.Foo:Foo.java:bar:42'), the same as within a report
+     */
+    public static String format(final StackTraceElement frame) {
+        return frame.getClassName() + ':' + frame.getFileName() + ':' + frame.getMethodName() + ':'
+            + frame.getLineNumber();
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    /**
+     * A frame's ID and text.
+     */
+    public static final class Entry {
+
+        private final int id;
+        private final String text;
+        private final AtomicBoolean defined;
+
+        Entry(final int id, final String text) {
+            this.id = id;
+            this.text = text;
+            this.defined = new AtomicBoolean();
+        }
+
+        /**
+         * Marks the entry as defined, i.e. the endpoint took a request with its definition.
+         *
+         * @return whether it was not defined before - only a single caller gets true
+         */
+        public boolean define() {
+            return defined.compareAndSet(false, true);
+        }
+
+        /**
+         * @return whether the endpoint knows the entry (no need to send it with a report anymore)
+         */
+        public boolean isDefined() {
+            return defined.get();
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+
+    // GET ========================================================================================
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -52,4 +52,11 @@ public interface ILogSession {
 
     public boolean hasContext();
 
+
+    // ==== AGGREGATE
+
+    LogAggregate getAggregate();
+
+    void setAggregate(final LogAggregate aggregate);
+
 }
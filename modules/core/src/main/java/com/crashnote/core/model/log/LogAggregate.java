@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.model.log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of identical errors (= same fingerprint) that were folded into a single crash report:
+ * how often they occurred, when they were first and last seen and a few sample contexts.
+ */
+public class LogAggregate {
+
+    // VARS =======================================================================================
+
+    private final long fingerprint;
+    private final int maxSamples;
+
+    private int count;
+    private long firstSeen;
+    private long lastSeen;
+
+    private final List<Map<String, Object>> samples;
+
+
+    // SETUP ======================================================================================
+
+    public LogAggregate(final long fingerprint, final int maxSamples) {
+        this.fingerprint = fingerprint;
+        this.maxSamples = maxSamples;
+        this.samples = new ArrayList<Map<String, Object>>(Math.max(0, maxSamples));
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * Count another occurrence and remember its context if there is still room for a sample.
+     */
+    public void add(final long timestamp, final Map<String, Object> context) {
+        if (count == 0 || timestamp < firstSeen) firstSeen = timestamp;
+        if (timestamp > lastSeen) lastSeen = timestamp;
+        count++;
+
+        if (context != null && !context.isEmpty() && samples.size() < maxSamples)
+            samples.add(new HashMap<String, Object>(context));
+    }
+
+
+    // GET ========================================================================================
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getFirstSeen() {
+        return firstSeen;
+    }
+
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    public List<Map<String, Object>> getSamples() {
+        return samples;
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.model.log;
+
+import com.crashnote.core.model.data.DataObject;
+
+/**
+ * Snapshot of the process environment together with a hash of its content. With delta-encoding
+ * a report only carries the hash, once the endpoint knows the full environment.
+ */
+public class LogEnv {
+
+    // VARS =======================================================================================
+
+    private final String hash;
+    private final DataObject data;
+
+
+    // SETUP ======================================================================================
+
+    public LogEnv(final String hash, final DataObject data) {
+        this.hash = hash;
+        this.data = data;
+    }
+
+
+    // GET ========================================================================================
+
+    public String getHash() {
+        return hash;
+    }
+
+    public DataObject getData() {
+        return data;
+    }
+}
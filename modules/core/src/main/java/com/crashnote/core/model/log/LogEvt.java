@@ -15,6 +15,8 @@
  */
 package com.crashnote.core.model.log;
 
+import com.crashnote.core.util.IDUtil;
+
 import java.util.Map;
 
 /**
@@ -28,12 +30,19 @@ public abstract class LogEvt<E>
 
     // VARS =======================================================================================
 
-    private final String id;
+    // time-ordered, see IDUtil (the text is rendered on first use, when the event is written)
+    private final long id;
+    private String idText;
 
     protected final E event;
 
     protected Map<String, Object> mdc;
 
+    /**
+     * probability with which the event was sampled (1 = not sampled)
+     */
+    private double sampleRate = 1.0;
+
 
     // SETUP ======================================================================================
 
@@ -47,7 +56,7 @@ public abstract class LogEvt<E>
 
         this.event = event;
         this.mdc = null; //context;
-        this.id = Long.toHexString(Double.doubleToLongBits(Math.random()));
+        this.id = IDUtil.nextID();
     }
 
 
@@ -72,6 +81,23 @@ public abstract class LogEvt<E>
 
     @Override
     public String getID() {
+        if (idText == null)
+            idText = IDUtil.format(id);
+        return idText;
+    }
+
+    /**
+     * @return the ID as a number (see {@link IDUtil})
+     */
+    public long getIDValue() {
         return id;
     }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(final double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
 }
@@ -15,40 +15,125 @@
  */
 package com.crashnote.core.model.log;
 
+import com.crashnote.core.build.ReportWriter;
 import com.crashnote.core.model.data.DataObject;
 
 import java.io.*;
+import java.util.Collection;
+import java.util.Collections;
 
 /**
  * This class represents the crash report that is sent to the server.
- * Internally it uses a {@link DataObject} that holds the actual data.
+ * Internally it uses a {@link DataObject} that holds the actual data, or a {@link Source} that
+ * writes the data straight into the output when the report is sent.
  */
 public class LogReport {
 
     // VARS =======================================================================================
 
     private final DataObject dataObj;
+    private final Source source;
+
+    // environment the report refers to (e.g. by its hash only)
+    private final LogEnv env;
 
 
     // SETUP ======================================================================================
 
     public LogReport(final DataObject data) {
+        this(data, null);
+    }
+
+    public LogReport(final DataObject data, final LogEnv env) {
         this.dataObj = data;
+        this.source = null;
+        this.env = env;
+    }
+
+    public LogReport(final Source source) {
+        this(source, null);
+    }
+
+    public LogReport(final Source source, final LogEnv env) {
+        this.dataObj = null;
+        this.source = source;
+        this.env = env;
     }
 
 
     // INTERFACE ==================================================================================
 
     public boolean isEmpty() {
-        return dataObj.isEmpty();
+        return dataObj != null && dataObj.isEmpty();
     }
 
     @Override
     public String toString() {
-        return dataObj.toString();
+        if (dataObj != null) return dataObj.toString();
+
+        final StringWriter out = new StringWriter();
+        try {
+            source.writeTo(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("unable to write report", e);
+        }
+        return out.toString();
     }
 
     public void streamTo(final Writer writer) throws IOException {
-        dataObj.streamTo(writer);
+        if (dataObj != null) dataObj.streamTo(writer);
+        else source.writeTo(writer);
+    }
+
+    /**
+     * Writes the report via the passed writer, e.g. in a binary encoding. A {@link Source} has to
+     * be a {@link StructuredSource} for this.
+     */
+    public void writeTo(final ReportWriter out) throws IOException {
+        if (dataObj != null) out.value(dataObj);
+        else if (source instanceof StructuredSource) ((StructuredSource) source).writeTo(out);
+        else throw new IOException("report can only be written as text");
+    }
+
+    /**
+     * @return the environment of the report (null if unknown)
+     */
+    public LogEnv getEnv() {
+        return env;
+    }
+
+    /**
+     * @return the frames of the {@link FrameDictionary} that the report defined when it was
+     * written last - to be marked as defined once the endpoint took it
+     */
+    public Collection<FrameDictionary.Entry> getFrameDefinitions() {
+        if (source instanceof StructuredSource)
+            return ((StructuredSource) source).getFrameDefinitions();
+        return Collections.emptyList();
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    /**
+     * Writes the content of a report, may be called more than once.
+     */
+    public interface Source {
+
+        void writeTo(Writer out) throws IOException;
+    }
+
+    /**
+     * A source that writes the content field by field, independent of the encoding.
+     */
+    public interface StructuredSource
+        extends Source {
+
+        void writeTo(ReportWriter out) throws IOException;
+
+        /**
+         * @return the frames defined by the content written last (see {@link FrameDictionary})
+         */
+        Collection<FrameDictionary.Entry> getFrameDefinitions();
     }
 }
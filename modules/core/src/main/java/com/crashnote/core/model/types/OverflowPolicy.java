@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.model.types;
+
+/**
+ * Enumeration to define what a bounded queue does when it is full and a new element arrives.
+ */
+public enum OverflowPolicy {
+
+    DROP_NEWEST("drop-newest"),     // reject the incoming element
+    DROP_OLDEST("drop-oldest"),     // evict the oldest queued element to make room
+    BLOCK("block");                 // wait up to a timeout for room, then reject
+
+
+    // SETUP ======================================================================================
+
+    OverflowPolicy(final String code) {
+        this.code = code;
+    }
+
+
+    // FIELDS =====================================================================================
+
+    private final String code;
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * Parses the policy from its config representation (e.g. "drop-oldest").
+     *
+     * @return the matching policy or null if there is none
+     */
+    public static OverflowPolicy fromCode(final String code) {
+        if (code != null)
+            for (final OverflowPolicy p : values())
+                if (p.code.equalsIgnoreCase(code.trim()))
+                    return p;
+        return null;
+    }
+
+
+    // GET ========================================================================================
+
+    public String getCode() {
+        return code;
+    }
+}
@@ -21,10 +21,14 @@ import com.crashnote.core.log.LogLog;
 import com.crashnote.core.model.log.ILogSession;
 import com.crashnote.core.model.log.LogEvt;
 import com.crashnote.core.report.impl.ThrowableLogEvt;
+import com.crashnote.core.report.impl.admission.AdmissionControl;
 import com.crashnote.core.report.impl.processor.Processor;
+import com.crashnote.core.report.impl.processor.impl.AggregateProcessor;
 import com.crashnote.core.report.impl.processor.impl.AsyncProcessor;
+import com.crashnote.core.report.impl.processor.impl.RingBufferProcessor;
 import com.crashnote.core.report.impl.processor.impl.SyncProcessor;
 import com.crashnote.core.report.impl.session.LocalLogSession;
+import com.crashnote.core.stats.Statistics;
 
 /**
  * The Grand Central station of the library, every log event passes through here.
@@ -46,6 +50,8 @@ public class Reporter
 
     private final ILogSession session;
     private final Processor processor;
+    private final AdmissionControl admission;
+    private final Statistics stats;
 
     // configuration settings:
     private final boolean enabled;
@@ -58,8 +64,10 @@ public class Reporter
         this.enabled = config.isEnabled();
 
         this.logger = config.getLogger(this.getClass());
+        this.stats = createStatistics(config);
         this.session = createSessionStore(config);
         this.processor = createProcessor(config);
+        this.admission = createAdmissionControl(config);
     }
 
     // LIFECYCLE ==================================================================================
@@ -137,8 +145,17 @@ public class Reporter
 
     public void reportLog(final LogEvt<?> evt) {
         if (isOperable()) {
+            stats.eventReceived();
+
+            // drop event if it exceeds the rate limits or is not sampled
+            if (!isAdmitted(evt)) {
+                stats.eventRejected();
+                return;
+            }
+
             // add event to session
             session.addEvent(evt);
+            stats.eventAccepted();
 
             // decide whether to send it immediately
             if (isAutoFlush()) endSession();
@@ -190,6 +207,10 @@ public class Reporter
         return initialized;
     }
 
+    protected boolean isAdmitted(final LogEvt<?> evt) {
+        return admission == null || !evt.isExcp() || admission.admit(evt);
+    }
+
 
     // FACTORY ====================================================================================
 
@@ -198,13 +219,26 @@ public class Reporter
     }
 
     protected <C extends CrashConfig> Processor createProcessor(final C config) {
-        final SyncProcessor syncPrc = new SyncProcessor(config);
+        final Processor syncPrc = config.isAggregating()
+            ? new AggregateProcessor(config, new SyncProcessor(config))
+            : new SyncProcessor(config);
         if (config.isSync())
             return syncPrc;
+        else if (config.isRingBufferQueue())
+            return new RingBufferProcessor(config, syncPrc);
         else
             return new AsyncProcessor(config, syncPrc);
     }
 
+    protected <C extends CrashConfig> AdmissionControl createAdmissionControl(final C config) {
+        return config.isAdmissionControl() ? new AdmissionControl(config) : null;
+    }
+
+    protected <C extends CrashConfig> Statistics createStatistics(final C config) {
+        final Statistics s = config.getStatistics();
+        return s != null ? s : new Statistics();
+    }
+
 
     // INTERNAL ===================================================================================
 
@@ -237,6 +271,14 @@ public class Reporter
         return session;
     }
 
+    public AdmissionControl getAdmissionControl() {
+        return admission;
+    }
+
+    public Statistics getStatistics() {
+        return stats;
+    }
+
     public LogLog getLogger() {
         return logger;
     }
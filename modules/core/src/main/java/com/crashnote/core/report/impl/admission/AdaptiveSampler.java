@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.report.impl.admission;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Probabilistic sampler that adapts to the event volume: as long as fewer events than the
+ * target arrive per second, all of them are kept; above that, the probability to keep an event is
+ * lowered to 'target / volume' of the previous second, so that roughly 'target' events pass.
+ */
+public class AdaptiveSampler {
+
+    // CONST ======================================================================================
+
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+
+    // VARS =======================================================================================
+
+    private volatile long target;
+
+    private final AtomicLong count;
+    private final AtomicLong windowStart;
+
+    private volatile double probability;
+
+    // (per thread, so the threads don't contend for the seed)
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+
+    // SETUP ======================================================================================
+
+    public AdaptiveSampler(final long targetPerSecond) {
+        this.target = targetPerSecond;
+        this.count = new AtomicLong();
+        this.windowStart = new AtomicLong(System.nanoTime());
+        this.probability = 1.0;
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * Registers an event and decides whether it is kept.
+     *
+     * @return the probability the event was kept with, or 0 if it was dropped
+     */
+    public double sample() {
+        final long now = System.nanoTime();
+        final long start = windowStart.get();
+        if (now - start >= WINDOW && windowStart.compareAndSet(start, now)) {
+            final long seen = count.getAndSet(0);
+            final long t = target;
+            probability = seen <= t ? 1.0 : (double) t / seen;
+        }
+        count.incrementAndGet();
+
+        final double p = probability;
+        return (p >= 1.0 || RANDOM.get().nextDouble() < p) ? p : 0;
+    }
+
+
+    // GET ========================================================================================
+
+    public double getProbability() {
+        return probability;
+    }
+
+    public long getTarget() {
+        return target;
+    }
+
+    /**
+     * Changes the target, it applies from the next window on.
+     */
+    public void setTarget(final long targetPerSecond) {
+        this.target = targetPerSecond;
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.report.impl.admission;
+
+import com.crashnote.core.config.CrashConfig;
+import com.crashnote.core.model.log.LogEvt;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a log event may enter the session at all. An event has to pass (in that order):
+ * <ol>
+ * <li>the adaptive sampler (see {@link AdaptiveSampler})</li>
+ * <li>the token bucket of its exception class</li>
+ * <li>the token bucket of its logger</li>
+ * <li>the global token bucket</li>
+ * </ol>
+ * If a stage rejects the event, the tokens it took from the earlier stages are given back.
+ * <p/>
+ * Rejecting an event neither takes a lock nor allocates. Buckets are only created the first time a
+ * logger or exception class (by name, so no class loader is held on to) is seen; the keys beyond
+ * a fixed number share a single bucket.
+ */
+public class AdmissionControl {
+
+    // CONST ======================================================================================
+
+    private static final int MAX_KEYS = 1024;
+
+
+    // VARS =======================================================================================
+
+    private final TokenBucket global;
+    private volatile AdaptiveSampler sampler;
+
+    private final Buckets loggerBuckets;
+    private final Buckets classBuckets;
+
+    private final AtomicLong rejectedBySampler;
+    private final AtomicLong rejectedByClass;
+    private final AtomicLong rejectedByLogger;
+    private final AtomicLong rejectedByGlobal;
+
+
+    // SETUP ======================================================================================
+
+    public <C extends CrashConfig> AdmissionControl(final C config) {
+        this.global = createBucket(config.getAdmissionRate(), config.getAdmissionBurst());
+
+        final long target = config.getAdmissionSampleTarget();
+        this.sampler = target > 0 ? new AdaptiveSampler(target) : null;
+
+        this.loggerBuckets = new Buckets(config.getAdmissionLoggerRate(), config.getAdmissionLoggerBurst());
+        this.classBuckets = new Buckets(config.getAdmissionClassRate(), config.getAdmissionClassBurst());
+
+        this.rejectedBySampler = new AtomicLong();
+        this.rejectedByClass = new AtomicLong();
+        this.rejectedByLogger = new AtomicLong();
+        this.rejectedByGlobal = new AtomicLong();
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * Decides whether the event is admitted; if it was sampled, its sample rate is updated.
+     */
+    public boolean admit(final LogEvt<?> evt) {
+        double rate = 1.0;
+        final AdaptiveSampler sampler = this.sampler;
+        if (sampler != null) {
+            rate = sampler.sample();
+            if (rate == 0) {
+                rejectedBySampler.incrementAndGet();
+                return false;
+            }
+        }
+
+        final Throwable th = evt.getThrowable();
+        final TokenBucket byClass = th == null ? null : classBuckets.get(th.getClass().getName());
+        if (byClass != null && !byClass.tryAcquire()) {
+            rejectedByClass.incrementAndGet();
+            return false;
+        }
+
+        final TokenBucket byLogger = loggerBuckets.get(evt.getLoggerName());
+        if (byLogger != null && !byLogger.tryAcquire()) {
+            rejectedByLogger.incrementAndGet();
+            release(byClass);
+            return false;
+        }
+
+        if (global != null && !global.tryAcquire()) {
+            rejectedByGlobal.incrementAndGet();
+            release(byClass);
+            release(byLogger);
+            return false;
+        }
+
+        if (rate < 1.0) evt.setSampleRate(rate);
+        return true;
+    }
+
+
+    /**
+     * Changes the target of the adaptive sampler at runtime.
+     *
+     * @param targetPerSecond number of events per second above which events are sampled (0 = no
+     *                        sampling)
+     */
+    public void setSampleTarget(final long targetPerSecond) {
+        final AdaptiveSampler s = sampler;
+        if (targetPerSecond <= 0) sampler = null;
+        else if (s == null) sampler = new AdaptiveSampler(targetPerSecond);
+        else s.setTarget(targetPerSecond);
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private static void release(final TokenBucket bucket) {
+        if (bucket != null) bucket.release();
+    }
+
+    private static TokenBucket createBucket(final double rate, final int burst) {
+        return rate > 0 ? new TokenBucket(rate, Math.max(1, burst)) : null;
+    }
+
+
+    /**
+     * The token buckets of one stage, by key (logger or exception class name).
+     */
+    private static final class Buckets {
+        private final ConcurrentMap<String, TokenBucket> buckets;
+        private final double rate;
+        private final int burst;
+
+        // shared by the keys beyond the limit
+        private final TokenBucket overflow;
+
+        Buckets(final double rate, final int burst) {
+            this.buckets = new ConcurrentHashMap<String, TokenBucket>();
+            this.rate = rate;
+            this.burst = burst;
+            this.overflow = createBucket(rate, burst);
+        }
+
+        /**
+         * @return the bucket of the key (null if there is no limit)
+         */
+        TokenBucket get(final String key) {
+            if (overflow == null || key == null) return null;
+
+            TokenBucket bucket = buckets.get(key);
+            if (bucket == null) {
+                if (buckets.size() >= MAX_KEYS) return overflow;
+                final TokenBucket created = createBucket(rate, burst);
+                bucket = buckets.putIfAbsent(key, created);
+                if (bucket == null) bucket = created;
+            }
+            return bucket;
+        }
+    }
+
+
+    // GET ========================================================================================
+
+    public long getRejectedBySampler() {
+        return rejectedBySampler.get();
+    }
+
+    public long getRejectedByClass() {
+        return rejectedByClass.get();
+    }
+
+    public long getRejectedByLogger() {
+        return rejectedByLogger.get();
+    }
+
+    public long getRejectedByGlobal() {
+        return rejectedByGlobal.get();
+    }
+
+    public double getSampleProbability() {
+        final AdaptiveSampler s = sampler;
+        return s == null ? 1.0 : s.getProbability();
+    }
+
+    /**
+     * @return the target of the adaptive sampler (0 if there is no sampling)
+     */
+    public long getSampleTarget() {
+        final AdaptiveSampler s = sampler;
+        return s == null ? 0 : s.getTarget();
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.report.impl.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket with a refill rate (tokens per second) and a burst size (capacity).
+ * <p/>
+ * Instead of a token count it keeps a single 'theoretical arrival time' which is moved forward
+ * by one emission interval per granted token (GCRA). That way taking a token is a single CAS
+ * and never allocates.
+ */
+public class TokenBucket {
+
+    // VARS =======================================================================================
+
+    private final long interval;
+    private final long tolerance;
+
+    private final AtomicLong tat;
+
+
+    // SETUP ======================================================================================
+
+    public TokenBucket(final double ratePerSecond, final int burst) {
+        if (ratePerSecond <= 0 || burst < 1)
+            throw new IllegalArgumentException("rate and burst must be positive");
+
+        this.interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.tolerance = interval * burst;
+        this.tat = new AtomicLong(System.nanoTime() - tolerance); // start with a full bucket
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * @return true if a token was available (and taken)
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            final long now = System.nanoTime();
+            final long current = tat.get();
+            final long next = (current - now > 0 ? current : now) + interval;
+            if (next - now > tolerance)
+                return false;
+            if (tat.compareAndSet(current, next))
+                return true;
+        }
+    }
+
+    /**
+     * Gives back a token that was taken, e.g. if the event was rejected later on.
+     */
+    public void release() {
+        tat.addAndGet(-interval);
+    }
+}
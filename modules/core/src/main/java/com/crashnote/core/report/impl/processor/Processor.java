@@ -21,6 +21,7 @@ import com.crashnote.core.log.LogLog;
 import com.crashnote.core.model.log.ILogSession;
 import com.crashnote.core.model.log.LogReport;
 import com.crashnote.core.send.Sender;
+import com.crashnote.core.stats.Statistics;
 
 /**
  * Once a crash report should be sent, the processor comes into the picture. It is responsible for
@@ -37,12 +38,16 @@ public abstract class Processor
 
     protected boolean started;
     private final LogLog logger;
+    private final Statistics stats;
 
 
     // SETUP ======================================================================================
 
     public <C extends CrashConfig> Processor(final C config) {
         this.logger = config.getLogger(this.getClass());
+
+        final Statistics s = config.getStatistics();
+        this.stats = s != null ? s : new Statistics();
     }
 
 
@@ -64,4 +69,15 @@ public abstract class Processor
     public LogLog getLogger() {
         return logger;
     }
+
+    public Statistics getStatistics() {
+        return stats;
+    }
+
+    /**
+     * @return number of sessions waiting to be processed (0 if processed right away)
+     */
+    public int getQueueSize() {
+        return 0;
+    }
 }
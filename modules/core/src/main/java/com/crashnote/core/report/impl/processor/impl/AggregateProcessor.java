@@ -0,0 +1,263 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.report.impl.processor.impl;
+
+import com.crashnote.core.collect.impl.ExcpCollector;
+import com.crashnote.core.config.CrashConfig;
+import com.crashnote.core.model.log.ILogSession;
+import com.crashnote.core.model.log.LogAggregate;
+import com.crashnote.core.model.log.LogEvt;
+import com.crashnote.core.report.impl.processor.Processor;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This implementation of the {@link Processor} folds identical {@link ILogSession}s before they
+ * reach its delegate. Sessions are identified by the fingerprint of their events (see
+ * {@link ExcpCollector#fingerprint(Throwable)}).
+ * <p/>
+ * The first occurrence of a fingerprint is passed on right away. Further occurrences within the
+ * configured window are only counted; when the window is over, the last of them is passed on
+ * together with a {@link LogAggregate} (count, first/last seen, sample contexts).
+ * <p/>
+ * The number of tracked fingerprints is capped: when the table is full, the entry with the fewest
+ * hits is flushed and replaced, the newcomer inheriting its hit count ('Space-Saving' heavy-hitter
+ * sketch). That way frequent errors stay in the table while a long tail of rare ones churns.
+ */
+public class AggregateProcessor
+    extends Processor {
+
+    // VARS =======================================================================================
+
+    private final Processor delegate;
+    private final ExcpCollector excpCollector;
+
+    private final Map<Long, Entry> table;
+    private ScheduledExecutorService scheduler;
+
+    // configuration settings:
+    private final long window;
+    private final int capacity;
+    private final int maxSamples;
+
+
+    // SETUP ======================================================================================
+
+    public <C extends CrashConfig> AggregateProcessor(final C config, final Processor delegate) {
+        super(config);
+
+        this.delegate = delegate;
+        this.excpCollector = new ExcpCollector(config);
+
+        this.window = config.getAggregateWindow();
+        this.capacity = Math.max(1, config.getAggregateCapacity());
+        this.maxSamples = config.getAggregateSamples();
+
+        this.table = new HashMap<Long, Entry>(capacity * 2);
+    }
+
+
+    // LIFECYCLE ==================================================================================
+
+    @Override
+    public boolean start() {
+        if (!started) {
+            started = true;
+            getLogger().debug("starting aggregate processor");
+            delegate.start();
+
+            final long interval = Math.max(100, window / 4);
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread t = new Thread(r, "crashnote-aggregate");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    flush(false);
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        return started;
+    }
+
+    /**
+     * Stop the processor, but first pass on all pending aggregates.
+     */
+    @Override
+    public boolean stop() {
+        if (started) {
+            started = false;
+            getLogger().debug("stopping aggregate processor");
+
+            scheduler.shutdownNow();
+            try {
+                flush(true);
+            } finally {
+                delegate.stop();
+            }
+        }
+        return started;
+    }
+
+
+    // SHARED =====================================================================================
+
+    @Override
+    protected void doProcess(final ILogSession session) {
+        final List<LogEvt<?>> evts = session.getEvents();
+        if (evts.isEmpty()) {
+            delegate.process(session);
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        final Long fp = fingerprint(evts);
+
+        ILogSession expired = null;
+        ILogSession evicted = null;
+        boolean first = false;
+        synchronized (table) {
+            Entry e = table.get(fp);
+            if (e != null && now - e.windowStart >= window) {
+                table.remove(fp);
+                expired = e.toSession();
+                e = null;
+            }
+
+            if (e == null) {
+                int hits = 0;
+                if (table.size() >= capacity) {
+                    final Entry lightest = removeLightest();
+                    hits = lightest.hits;
+                    evicted = lightest.toSession();
+                }
+                table.put(fp, new Entry(fp, now, hits + 1));
+                first = true;
+            } else {
+                e.fold(session.copy(), now);
+            }
+        }
+
+        if (expired != null) delegate.process(expired);
+        if (evicted != null) delegate.process(evicted);
+        if (first) delegate.process(session);
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    /**
+     * Pass on the aggregates whose window is over (or all of them).
+     */
+    private void flush(final boolean all) {
+        final long now = System.currentTimeMillis();
+        final List<ILogSession> sessions = new ArrayList<ILogSession>();
+        synchronized (table) {
+            final Iterator<Entry> it = table.values().iterator();
+            while (it.hasNext()) {
+                final Entry e = it.next();
+                if (all || now - e.windowStart >= window) {
+                    it.remove();
+                    final ILogSession s = e.toSession();
+                    if (s != null) sessions.add(s);
+                }
+            }
+        }
+        for (final ILogSession s : sessions) {
+            try {
+                delegate.process(s);
+            } catch (RuntimeException e) {
+                getLogger().debug("unable to process aggregated log session", e);
+            }
+        }
+    }
+
+    private Entry removeLightest() {
+        Entry lightest = null;
+        for (final Entry e : table.values())
+            if (lightest == null || e.hits < lightest.hits) lightest = e;
+        table.remove(lightest.fingerprint);
+        return lightest;
+    }
+
+    private long fingerprint(final List<LogEvt<?>> evts) {
+        long h = 17;
+        for (final LogEvt<?> evt : evts) {
+            final Throwable th = evt.getThrowable();
+            final long evtHash;
+            if (th != null) {
+                evtHash = excpCollector.fingerprint(th);
+            } else {
+                final String msg = evt.getMessage();
+                final String src = evt.getLoggerName();
+                evtHash = (msg == null ? 0 : msg.hashCode()) * 31L + (src == null ? 0 : src.hashCode());
+            }
+            h = h * 31 + evtHash;
+        }
+        return h;
+    }
+
+    private class Entry {
+
+        private final long fingerprint;
+        private final long windowStart;
+        private int hits;
+
+        private LogAggregate aggregate;
+        private ILogSession latest;
+
+        Entry(final long fingerprint, final long windowStart, final int hits) {
+            this.fingerprint = fingerprint;
+            this.windowStart = windowStart;
+            this.hits = hits;
+        }
+
+        void fold(final ILogSession session, final long now) {
+            hits++;
+            if (aggregate == null)
+                aggregate = new LogAggregate(fingerprint, maxSamples);
+            aggregate.add(now, session.getContext());
+            latest = session;
+        }
+
+        /**
+         * @return the latest folded session carrying the aggregate, or null if nothing was folded
+         */
+        ILogSession toSession() {
+            if (latest == null) return null;
+            latest.setAggregate(aggregate);
+            return latest;
+        }
+    }
+
+
+    // GET ========================================================================================
+
+    public int getTrackedCount() {
+        synchronized (table) {
+            return table.size();
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.crashnote.core.model.log.ILogSession;
 import com.crashnote.core.report.impl.processor.Processor;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This implementation of the {@link Processor} works asynchronous. It uses a scheduler
@@ -36,6 +37,9 @@ public class AsyncProcessor
     private final Processor delegate;
     private final ScheduledExecutorService scheduler;
 
+    // number of submitted sessions that are not processed yet
+    private final AtomicInteger pending;
+
 
     // SETUP ======================================================================================
 
@@ -44,6 +48,7 @@ public class AsyncProcessor
 
         this.delegate = delegate;
         this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.pending = new AtomicInteger();
     }
 
 
@@ -89,7 +94,14 @@ public class AsyncProcessor
     @Override
     protected void doProcess(final ILogSession session) {
         getLogger().debug("deferring log session");
-        scheduler.submit(new SendTask(delegate, session.copy()));
+        pending.incrementAndGet();
+        try {
+            scheduler.submit(new SendTask(delegate, session.copy()));
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            getStatistics().sessionDropped();
+            throw e;
+        }
     }
 
 
@@ -107,9 +119,21 @@ public class AsyncProcessor
 
         @Override
         public Void call() throws Exception {
-            delegate.process(session);
+            try {
+                delegate.process(session);
+            } finally {
+                pending.decrementAndGet();
+            }
             return null;
         }
     }
 
+
+    // GET ========================================================================================
+
+    @Override
+    public int getQueueSize() {
+        return pending.get();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.report.impl.processor.impl;
+
+import com.crashnote.core.config.CrashConfig;
+import com.crashnote.core.model.data.RingBuffer;
+import com.crashnote.core.model.log.ILogSession;
+import com.crashnote.core.model.types.OverflowPolicy;
+import com.crashnote.core.report.impl.processor.Processor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This implementation of the {@link Processor} works asynchronous like the {@link AsyncProcessor},
+ * but instead of an unbounded executor queue it hands the {@link ILogSession}s to a single worker
+ * thread through a preallocated {@link RingBuffer}.
+ * <p/>
+ * Application threads never take a lock when enqueueing. If the buffer is full, the configured
+ * {@link OverflowPolicy} decides what is dropped; every drop is counted per policy.
+ */
+public class RingBufferProcessor
+    extends Processor {
+
+    // VARS =======================================================================================
+
+    private final Processor delegate;
+    private final RingBuffer<ILogSession> queue;
+
+    private volatile boolean running;
+    private volatile boolean parked;
+    private Thread worker;
+
+    /**
+     * number of dropped sessions, indexed by {@link OverflowPolicy#ordinal()}
+     */
+    private final AtomicLongArray drops;
+
+    // configuration settings:
+    private final OverflowPolicy policy;
+    private final long blockTimeout;
+
+
+    // SETUP ======================================================================================
+
+    public <C extends CrashConfig> RingBufferProcessor(final C config, final Processor delegate) {
+        super(config);
+
+        this.delegate = delegate;
+        this.queue = new RingBuffer<ILogSession>(config.getQueueSize());
+        this.drops = new AtomicLongArray(OverflowPolicy.values().length);
+
+        this.policy = config.getQueueOverflowPolicy();
+        this.blockTimeout = TimeUnit.MILLISECONDS.toNanos(config.getQueueTimeout());
+    }
+
+
+    // LIFECYCLE ==================================================================================
+
+    /**
+     * Start the processor and its worker thread.
+     */
+    @Override
+    public boolean start() {
+        if (!started) {
+            started = true;
+            getLogger().debug("starting ring buffer processor");
+            delegate.start();
+
+            running = true;
+            worker = createWorker();
+            worker.start();
+        }
+        return started;
+    }
+
+    /**
+     * Stop the processor,
+     * also let the worker thread drain the buffer and wait some time for it to finish.
+     */
+    @Override
+    public boolean stop() {
+        if (started) {
+            started = false;
+            getLogger().debug("stopping ring buffer processor");
+
+            running = false;
+            LockSupport.unpark(worker);
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(60));
+            } catch (InterruptedException ignored) {
+            } finally {
+                delegate.stop();
+            }
+        }
+        return started;
+    }
+
+
+    // SHARED =====================================================================================
+
+    @Override
+    protected void doProcess(final ILogSession session) {
+        getLogger().debug("enqueueing log session");
+        if (enqueue(session.copy())) {
+            if (parked) LockSupport.unpark(worker);
+        } else {
+            drops.incrementAndGet(policy.ordinal());
+            getStatistics().sessionDropped();
+            getLogger().debug("queue is full, dropped log session ({})", policy.getCode());
+        }
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private boolean enqueue(final ILogSession session) {
+        if (queue.offer(session))
+            return true;
+
+        switch (policy) {
+            case DROP_OLDEST:
+                do {
+                    if (queue.poll() != null) {
+                        drops.incrementAndGet(OverflowPolicy.DROP_OLDEST.ordinal());
+                        getStatistics().sessionDropped();
+                    }
+                } while (!queue.offer(session));
+                return true;
+
+            case BLOCK:
+                final long deadline = System.nanoTime() + blockTimeout;
+                do {
+                    if (System.nanoTime() - deadline >= 0)
+                        return false;
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+                } while (!queue.offer(session));
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private Thread createWorker() {
+        final Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (running || !queue.isEmpty()) {
+                    final ILogSession session = queue.poll();
+                    if (session != null) {
+                        process(session);
+                    } else {
+                        parked = true;
+                        if (running && queue.isEmpty())
+                            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                        parked = false;
+                    }
+                }
+            }
+
+            private void process(final ILogSession session) {
+                try {
+                    delegate.process(session);
+                } catch (RuntimeException e) {
+                    getLogger().debug("unable to process log session", e);
+                }
+            }
+        }, "crashnote-queue");
+        t.setDaemon(true);
+        return t;
+    }
+
+
+    // GET ========================================================================================
+
+    /**
+     * @return number of sessions dropped under the given overflow policy
+     */
+    public long getDropCount(final OverflowPolicy p) {
+        return drops.get(p.ordinal());
+    }
+
+    @Override
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queue.capacity();
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+}
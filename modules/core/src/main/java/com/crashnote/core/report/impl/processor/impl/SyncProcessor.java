@@ -35,6 +35,9 @@ public class SyncProcessor
     private final Sender sender;
     private final Collector collector;
 
+    // configuration settings:
+    private final boolean streaming;
+
 
     // SETUP ======================================================================================
 
@@ -42,6 +45,7 @@ public class SyncProcessor
         super(config);
         this.sender = config.getSender();
         this.collector = config.getCollector();
+        this.streaming = config.isStreamingReports();
     }
 
 
@@ -55,6 +59,7 @@ public class SyncProcessor
 
             // start the sub modules
             collector.start();
+            sender.start();
         }
         return started;
     }
@@ -67,6 +72,7 @@ public class SyncProcessor
 
             // stop sub-classes
             collector.stop();
+            sender.stop();
         }
         return started;
     }
@@ -76,7 +82,11 @@ public class SyncProcessor
 
     @Override
     protected void doProcess(final ILogSession session) {
-        sender.send(new LogReport(collector.collectLog(session)));
+        getStatistics().reportCreated();
+        if (streaming)
+            sender.send(collector.streamLog(session));
+        else
+            sender.send(new LogReport(collector.collectLog(session), collector.getEnv()));
     }
 
 }
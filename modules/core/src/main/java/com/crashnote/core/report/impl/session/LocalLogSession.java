@@ -16,6 +16,7 @@
 package com.crashnote.core.report.impl.session;
 
 import com.crashnote.core.model.log.ILogSession;
+import com.crashnote.core.model.log.LogAggregate;
 import com.crashnote.core.model.log.LogEvt;
 
 import java.util.List;
@@ -39,6 +40,15 @@ public class LocalLogSession
                 protected SharedLogSession initialValue() {
                     return new SharedLogSession();
                 }
+
+                @Override
+                protected SharedLogSession childValue(final SharedLogSession parent) {
+                    // a thread inherits the context, but never shares the events of its parent
+                    final SharedLogSession child = new SharedLogSession();
+                    for (final Map.Entry<String, Object> entry : parent.getContext().entrySet())
+                        child.putCtx(entry.getKey(), entry.getValue());
+                    return child;
+                }
             };
 
 
@@ -103,6 +113,18 @@ public class LocalLogSession
         return getSession().hasContext();
     }
 
+    // ===== AGGREGATE
+
+    @Override
+    public LogAggregate getAggregate() {
+        return getSession().getAggregate();
+    }
+
+    @Override
+    public void setAggregate(final LogAggregate aggregate) {
+        getSession().setAggregate(aggregate);
+    }
+
 
     // INTERNALS ==================================================================================
 
@@ -16,6 +16,7 @@
 package com.crashnote.core.report.impl.session;
 
 import com.crashnote.core.model.log.ILogSession;
+import com.crashnote.core.model.log.LogAggregate;
 import com.crashnote.core.model.log.LogEvt;
 
 import java.util.HashMap;
@@ -41,6 +42,11 @@ public class SharedLogSession
      */
     private final Map<String, Object> context;
 
+    /**
+     * Summary of identical sessions that were folded into this one (if any)
+     */
+    private LogAggregate aggregate;
+
 
     // SETUP ======================================================================================
 
@@ -52,6 +58,7 @@ public class SharedLogSession
     public SharedLogSession(final SharedLogSession session) {
         this.heap = new LogHeap(session.heap);
         this.context = new HashMap<String, Object>(session.context);
+        this.aggregate = session.aggregate;
     }
 
 
@@ -66,6 +73,7 @@ public class SharedLogSession
     public void clear() {
         clearEvents();
         clearCtx();
+        aggregate = null;
     }
 
     // ===== EVENTS
@@ -116,4 +124,16 @@ public class SharedLogSession
     public Map<String, Object> getContext() {
         return context;
     }
+
+    // ===== AGGREGATE
+
+    @Override
+    public LogAggregate getAggregate() {
+        return aggregate;
+    }
+
+    @Override
+    public void setAggregate(final LogAggregate aggregate) {
+        this.aggregate = aggregate;
+    }
 }
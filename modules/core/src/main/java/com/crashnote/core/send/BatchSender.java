@@ -0,0 +1,252 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.send;
+
+import com.crashnote.core.config.CrashConfig;
+import com.crashnote.core.model.log.FrameDictionary;
+import com.crashnote.core.model.log.LogReport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Customized {@link Sender} that does not transmit each {@link LogReport} on its own, but collects
+ * them until a count, size or linger-time threshold is reached and then sends all of them within
+ * a single gzip-compressed request.
+ * <p/>
+ * The batch is either rendered as a JSON array or as newline-delimited JSON (NDJSON); binary
+ * reports (see {@link com.crashnote.core.build.BinaryBuilder}) are simply concatenated.
+ */
+public class BatchSender
+    extends Sender {
+
+    // CONST ======================================================================================
+
+    protected static final String NDJSON_TYPE = "application/x-ndjson; charset=utf-8";
+
+
+    // VARS =======================================================================================
+
+    private final List<byte[]> batch;
+    private final List<FrameDictionary.Entry> batchFrames; // (defined by the reports of the batch)
+    private long batchSize;
+    private long batchStart;
+
+    private ScheduledExecutorService scheduler;
+
+    // configuration settings:
+    private final String postURL;
+    private final int maxCount;
+    private final long maxSize;
+    private final long linger;
+    private final boolean ndjson;
+    private final boolean binary;
+
+
+    // SETUP ======================================================================================
+
+    public <C extends CrashConfig> BatchSender(final C config) {
+        super(config);
+
+        this.postURL = config.getPostURL();
+        this.maxCount = Math.max(1, config.getBatchMaxCount());
+        this.maxSize = config.getBatchMaxSize();
+        this.linger = config.getBatchLinger();
+        this.ndjson = "ndjson".equalsIgnoreCase(config.getBatchFormat());
+        this.binary = !JSON_TYPE.equals(getReportType());
+
+        this.batch = new ArrayList<byte[]>(maxCount);
+        this.batchFrames = new ArrayList<FrameDictionary.Entry>();
+    }
+
+
+    // LIFECYCLE ==================================================================================
+
+    /**
+     * Start the sender, also start a timer to flush batches that linger too long.
+     */
+    @Override
+    public boolean start() {
+        if (!started) {
+            super.start();
+
+            if (linger > 0) {
+                final long interval = Math.max(10, linger / 4);
+                scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread t = new Thread(r, "crashnote-batch");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+                scheduler.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        flushIfLingering();
+                    }
+                }, interval, interval, TimeUnit.MILLISECONDS);
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Stop the sender and send what is left in the current batch.
+     */
+    @Override
+    public boolean stop() {
+        if (started) {
+            if (scheduler != null)
+                scheduler.shutdownNow();
+            flush();
+            super.stop();
+        }
+        return started;
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    @Override
+    public void send(final LogReport report) {
+        trackEnv(report);
+        final byte[] data;
+        try {
+            data = serialize(report);
+        } catch (IOException e) {
+            logger.debug("unable to serialize report", e);
+            return;
+        }
+
+        final List<byte[]> full;
+        final List<FrameDictionary.Entry> frames;
+        synchronized (batch) {
+            if (batch.isEmpty())
+                batchStart = System.currentTimeMillis();
+            batch.add(data);
+            batchSize += data.length;
+            batchFrames.addAll(report.getFrameDefinitions());
+
+            full = (batch.size() >= maxCount || (maxSize > 0 && batchSize >= maxSize)) ? drain() : null;
+            frames = full != null ? drainFrames() : null;
+        }
+        if (full != null)
+            sendBatch(full, frames);
+    }
+
+    /**
+     * Send the current batch right away (no matter how big it is).
+     */
+    public void flush() {
+        final List<byte[]> reports;
+        final List<FrameDictionary.Entry> frames;
+        synchronized (batch) {
+            reports = drain();
+            frames = drainFrames();
+        }
+        sendBatch(reports, frames);
+    }
+
+    public int getBatchCount() {
+        synchronized (batch) {
+            return batch.size();
+        }
+    }
+
+
+    // SHARED =====================================================================================
+
+    /**
+     * Sends the reports as one request; the frames they define are known to the endpoint once
+     * it took the batch.
+     */
+    protected void sendBatch(final List<byte[]> reports, final List<FrameDictionary.Entry> frames) {
+        if (reports.isEmpty()) return;
+
+        logger.debug("POST batch of {} report(s) to '{}'", reports.size(), postURL);
+        final String type = binary ? getReportType() : (ndjson ? NDJSON_TYPE : JSON_TYPE);
+        final boolean accepted = POST(postURL, type, new BufferedBody() {
+            @Override
+            public void writeTo(final OutputStream out) throws IOException {
+                writeBatch(out, reports);
+            }
+        });
+        if (accepted)
+            defineFrames(frames);
+    }
+
+    protected void writeBatch(final OutputStream out, final List<byte[]> reports) throws IOException {
+        if (binary) {
+            // binary documents are self-contained
+            for (final byte[] report : reports)
+                out.write(report);
+            return;
+        }
+
+        if (!ndjson) out.write('[');
+        for (int i = 0; i < reports.size(); i++) {
+            if (i > 0 && !ndjson) out.write(',');
+            out.write(reports.get(i));
+            if (ndjson) out.write('\n');
+        }
+        if (!ndjson) out.write(']');
+    }
+
+    protected byte[] serialize(final LogReport report) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(2048);
+        writeReport(report, bos);
+        return bos.toByteArray();
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private void flushIfLingering() {
+        final List<byte[]> reports;
+        final List<FrameDictionary.Entry> frames;
+        synchronized (batch) {
+            if (batch.isEmpty() || System.currentTimeMillis() - batchStart < linger) return;
+            reports = drain();
+            frames = drainFrames();
+        }
+        try {
+            sendBatch(reports, frames);
+        } catch (RuntimeException e) {
+            logger.debug("unable to send batch", e);
+        }
+    }
+
+    private List<byte[]> drain() {
+        final List<byte[]> reports = new ArrayList<byte[]>(batch);
+        batch.clear();
+        batchSize = 0;
+        return reports;
+    }
+
+    private List<FrameDictionary.Entry> drainFrames() {
+        final List<FrameDictionary.Entry> frames = new ArrayList<FrameDictionary.Entry>(batchFrames);
+        batchFrames.clear();
+        return frames;
+    }
+}
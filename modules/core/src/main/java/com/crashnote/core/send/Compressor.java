@@ -0,0 +1,343 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.send;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Creates gzip streams on top of a small pool of {@link Deflater}s and buffers, so compressing a
+ * request does not allocate (and later finalize) a native deflater every time.
+ * <p/>
+ * Bodies smaller than the threshold are not worth compressing, the gzip framing would dominate.
+ * <p/>
+ * With a {@link Dictionary} the body is compressed as a zlib stream ('deflate') with that preset
+ * dictionary instead - until the endpoint turns out not to know it.
+ */
+public class Compressor {
+
+    // CONST ======================================================================================
+
+    public static final int BUFFER_SIZE = 8 * 1024;
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    // magic, method (deflate), flags, mtime, extra flags, OS (same as java.util.zip)
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+
+    // VARS =======================================================================================
+
+    private final int level;
+    private final int threshold;
+    private final int poolSize;
+
+    private final List<Deflater> deflaters;
+    private final List<Deflater> dictDeflaters;
+    private final List<byte[]> buffers;
+
+    private final Dictionary dictionary;
+    private volatile boolean dictionaryEnabled;
+
+
+    // SETUP ======================================================================================
+
+    public Compressor(final int level, final int threshold, final int poolSize) {
+        this(level, threshold, poolSize, null);
+    }
+
+    public Compressor(final int level, final int threshold, final int poolSize, final Dictionary dictionary) {
+        this.level = (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+            ? Deflater.DEFAULT_COMPRESSION : level;
+        this.threshold = Math.max(0, threshold);
+        this.poolSize = Math.max(0, poolSize);
+
+        this.deflaters = new ArrayList<Deflater>(this.poolSize);
+        this.dictDeflaters = new ArrayList<Deflater>(this.poolSize);
+        this.buffers = new ArrayList<byte[]>(this.poolSize);
+
+        this.dictionary = dictionary;
+        this.dictionaryEnabled = dictionary != null;
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * Creates a gzip stream that writes to the given stream and returns its deflater and buffer
+     * to the pool when it is closed.
+     */
+    public OutputStream gzip(final OutputStream out) throws IOException {
+        return stream(out, null);
+    }
+
+    /**
+     * Creates a compressing stream: a zlib stream with the given dictionary or, without one, a
+     * gzip stream (see {@link #gzip(OutputStream)}).
+     */
+    public OutputStream stream(final OutputStream out, final Dictionary dict) throws IOException {
+        final Deflater def = acquireDeflater(dict);
+        final byte[] buf = acquireBuffer();
+        try {
+            return new PooledStream(out, def, buf, dict);
+        } catch (IOException e) {
+            releaseDeflater(def, dict);
+            releaseBuffer(buf);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the body into memory, compressed unless it is smaller than the threshold.
+     *
+     * @return the (maybe) compressed body, see {@link #getEncoding(byte[])}
+     */
+    public byte[] compress(final Sender.Body body) throws IOException {
+        final ByteArrayOutputStream raw = new ByteArrayOutputStream(Math.max(threshold, 512));
+        body.writeTo(raw);
+        if (raw.size() < threshold)
+            return raw.toByteArray();
+        return compress(raw, getDictionary());
+    }
+
+    /**
+     * Makes sure compressed data does not depend on a dictionary that is not in use (anymore),
+     * by re-compressing it with gzip.
+     *
+     * @throws IOException if the data was compressed with an unknown dictionary
+     */
+    public byte[] recode(final byte[] data) throws IOException {
+        if (!DEFLATE.equals(getEncoding(data))) return data;
+
+        final String id = Dictionary.getId(data);
+        final Dictionary active = getDictionary();
+        if (active != null && active.getId().equals(id)) return data;
+        if (dictionary == null || !dictionary.getId().equals(id))
+            throw new IOException("unknown dictionary '" + id + "'");
+
+        final Inflater inf = new Inflater();
+        try {
+            final ByteArrayOutputStream raw = new ByteArrayOutputStream(data.length * 4);
+            final byte[] buf = new byte[BUFFER_SIZE];
+            inf.setInput(data);
+            while (!inf.finished()) {
+                int n = inf.inflate(buf);
+                if (n == 0 && inf.needsDictionary()) {
+                    inf.setDictionary(dictionary.getData());
+                    n = inf.inflate(buf);
+                }
+                if (n == 0 && (inf.needsInput() || inf.needsDictionary()))
+                    throw new IOException("truncated data");
+                raw.write(buf, 0, n);
+            }
+            return compress(raw, null);
+        } catch (DataFormatException e) {
+            throw new IOException("invalid data: " + e.getMessage());
+        } finally {
+            inf.end();
+        }
+    }
+
+    /**
+     * Stop using the dictionary, e.g. because the endpoint does not know it.
+     *
+     * @return whether the dictionary was in use
+     */
+    public boolean disableDictionary() {
+        final boolean was = dictionaryEnabled;
+        dictionaryEnabled = false;
+        return was;
+    }
+
+    /**
+     * @return the content encoding of the data: 'gzip' or 'deflate' (recognized by their magic
+     * bytes, which JSON can't start with) or null if it is not compressed
+     */
+    public static String getEncoding(final byte[] data) {
+        if (data.length < 2) return null;
+        if (data[0] == GZIP_HEADER[0] && data[1] == GZIP_HEADER[1]) return GZIP;
+        if ((data[0] & 0x0F) == Deflater.DEFLATED && ((data[0] & 0xFF) << 8 | (data[1] & 0xFF)) % 31 == 0)
+            return DEFLATE;
+        return null;
+    }
+
+    /**
+     * @return whether the data is compressed (see {@link #getEncoding(byte[])})
+     */
+    public static boolean isCompressed(final byte[] data) {
+        return getEncoding(data) != null;
+    }
+
+    /**
+     * Release the pooled deflaters.
+     */
+    public void close() {
+        synchronized (deflaters) {
+            for (final Deflater d : deflaters)
+                d.end();
+            deflaters.clear();
+            for (final Deflater d : dictDeflaters)
+                d.end();
+            dictDeflaters.clear();
+        }
+        synchronized (buffers) {
+            buffers.clear();
+        }
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private byte[] compress(final ByteArrayOutputStream raw, final Dictionary dict) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(raw.size() / 4, 512));
+        final OutputStream os = stream(bos, dict);
+        try {
+            raw.writeTo(os);
+        } finally {
+            os.close();
+        }
+        return bos.toByteArray();
+    }
+
+    private Deflater acquireDeflater(final Dictionary dict) {
+        Deflater d = null;
+        synchronized (deflaters) {
+            final List<Deflater> pool = dict == null ? deflaters : dictDeflaters;
+            if (!pool.isEmpty())
+                d = pool.remove(pool.size() - 1);
+        }
+        if (d == null)
+            d = new Deflater(level, dict == null); // raw deflate for gzip, zlib otherwise
+        if (dict != null)
+            d.setDictionary(dict.getData()); // (a reset drops the dictionary)
+        return d;
+    }
+
+    private void releaseDeflater(final Deflater d, final Dictionary dict) {
+        d.reset();
+        synchronized (deflaters) {
+            final List<Deflater> pool = dict == null ? deflaters : dictDeflaters;
+            if (pool.size() < poolSize) {
+                pool.add(d);
+                return;
+            }
+        }
+        d.end();
+    }
+
+    private byte[] acquireBuffer() {
+        synchronized (buffers) {
+            if (!buffers.isEmpty())
+                return buffers.remove(buffers.size() - 1);
+        }
+        return new byte[BUFFER_SIZE];
+    }
+
+    private void releaseBuffer(final byte[] buf) {
+        synchronized (buffers) {
+            if (buffers.size() < poolSize)
+                buffers.add(buf);
+        }
+    }
+
+    /**
+     * Same as {@link java.util.zip.GZIPOutputStream} (or a plain zlib stream with a dictionary),
+     * but with a deflater and buffer of the pool.
+     */
+    private final class PooledStream
+        extends DeflaterOutputStream {
+
+        private final Dictionary dict;
+        private final CRC32 crc;
+        private boolean closed;
+
+        PooledStream(final OutputStream out, final Deflater def, final byte[] buf, final Dictionary dict)
+            throws IOException {
+            super(out, def, 1); // tiny buffer, replaced by the pooled one
+            this.buf = buf;
+            this.dict = dict;
+            this.crc = dict == null ? new CRC32() : null;
+            if (crc != null)
+                out.write(GZIP_HEADER);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (closed) throw new IOException("stream closed");
+            super.write(b, off, len);
+            if (crc != null)
+                crc.update(b, off, len);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (def.finished()) return;
+            super.finish();
+            if (crc == null) return; // zlib has its own trailer
+
+            final int size = def.getTotalIn();
+            final long sum = crc.getValue();
+            final byte[] trailer = {
+                (byte) sum, (byte) (sum >> 8), (byte) (sum >> 16), (byte) (sum >> 24),
+                (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24)
+            };
+            out.write(trailer);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                finish();
+            } finally {
+                try {
+                    out.close();
+                } finally {
+                    releaseDeflater(def, dict);
+                    releaseBuffer(buf);
+                }
+            }
+        }
+    }
+
+
+    // GET ========================================================================================
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return the dictionary to compress with (null if none or disabled)
+     */
+    public Dictionary getDictionary() {
+        return dictionaryEnabled ? dictionary : null;
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.send;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Decides whether and when the {@link Sender} may (re-)try a request.
+ * <p/>
+ * Failed requests are retried with a jittered exponential backoff. After a number of consecutive
+ * failures a circuit breaker opens and requests fail fast until the open-time has passed; then a
+ * single probe request is let through to decide whether to close the circuit again. The server
+ * can also ask for a pause (e.g. via 'Retry-After'), during which no request is made at all.
+ */
+public class DeliveryPolicy {
+
+    // CONST ======================================================================================
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // upper limit for pauses requested by the server
+    public static final long MAX_PAUSE = 60 * 60 * 1000;
+
+
+    // VARS =======================================================================================
+
+    private final int maxRetries;
+    private final long backoff;
+    private final long maxBackoff;
+    private final int failureThreshold;
+    private final long openTime;
+
+    private final Random random;
+
+    private State state;
+    private int failures;
+    private long openUntil;
+    private long pausedUntil;
+    private boolean probing;
+
+
+    // SETUP ======================================================================================
+
+    public DeliveryPolicy(final int maxRetries, final long backoff, final long maxBackoff,
+                          final int failureThreshold, final long openTime) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.backoff = Math.max(0, backoff);
+        this.maxBackoff = Math.max(this.backoff, maxBackoff);
+        this.failureThreshold = failureThreshold;
+        this.openTime = Math.max(0, openTime);
+
+        this.random = new Random();
+        this.state = State.CLOSED;
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * @return whether a request may be made right now (if not, it should fail fast)
+     */
+    public synchronized boolean allowRequest() {
+        final long now = now();
+        if (now < pausedUntil) return false;
+
+        switch (state) {
+            case OPEN:
+                if (now < openUntil) return false;
+                state = State.HALF_OPEN;
+                probing = true;
+                return true;
+            case HALF_OPEN:
+                // only a single probe at a time
+                if (probing) return false;
+                probing = true;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * The endpoint answered the request (this includes client errors).
+     */
+    public synchronized void onSuccess() {
+        failures = 0;
+        probing = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * The request failed because of the endpoint (connection error, timeout or server error).
+     */
+    public synchronized void onFailure() {
+        failures++;
+        probing = false;
+        if (state == State.HALF_OPEN || (failureThreshold > 0 && failures >= failureThreshold)) {
+            state = State.OPEN;
+            openUntil = now() + openTime;
+        }
+    }
+
+    /**
+     * The server asked to pause for the given time (e.g. via 'Retry-After').
+     */
+    public synchronized void onThrottled(final long pause) {
+        probing = false;
+        if (pause > 0)
+            pausedUntil = Math.max(pausedUntil, now() + Math.min(pause, MAX_PAUSE));
+    }
+
+    /**
+     * @return the time to wait before the next retry: a random value between the half and the
+     * full exponential backoff of the given attempt (starting with 0)
+     */
+    public long getBackoff(final int attempt) {
+        if (backoff == 0) return 0;
+        final long exp = attempt >= 30 ? maxBackoff : Math.min(maxBackoff, backoff << attempt);
+        final long half = exp / 2;
+        return half + (long) (random.nextDouble() * (exp - half));
+    }
+
+    /**
+     * Parse the value of a 'Retry-After' header, either delta-seconds or an HTTP date.
+     *
+     * @return the pause in milliseconds (0 if missing or invalid)
+     */
+    public long parseRetryAfter(final String value) {
+        if (value == null || value.trim().length() == 0) return 0;
+        final String v = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(v) * 1000);
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            final SimpleDateFormat fmt = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            fmt.setTimeZone(TimeZone.getTimeZone("GMT"));
+            return Math.max(0, fmt.parse(v).getTime() - now());
+        } catch (ParseException ignored) {
+            return 0;
+        }
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+
+    // GET ========================================================================================
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getFailures() {
+        return failures;
+    }
+
+    public synchronized boolean isPaused() {
+        return now() < pausedUntil;
+    }
+}
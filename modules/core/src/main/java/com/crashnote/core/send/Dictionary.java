@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.send;
+
+import java.io.*;
+import java.util.zip.Adler32;
+
+/**
+ * Preset dictionary for compressing reports (see {@link Compressor}): a collection of strings
+ * that typically appear in reports, like keys, common frames and environment values.
+ * <p/>
+ * The dictionary is identified by its Adler-32 checksum - the same value zlib stores in the
+ * stream - which is sent along with each request, so the endpoint can pick the right one.
+ * <p/>
+ * A dictionary can be trained from sample reports with the 'DictionaryTrainer' of the load module.
+ */
+public class Dictionary {
+
+    // CONST ======================================================================================
+
+    public static final String BUILTIN = "builtin";
+
+    // deflate can't reach further back than 32k
+    public static final int MAX_SIZE = 32 * 1024;
+
+    private static final String BUILTIN_RESOURCE = "crashnote.dict";
+
+
+    // VARS =======================================================================================
+
+    private final byte[] data;
+    private final String id;
+
+
+    // SETUP ======================================================================================
+
+    public Dictionary(final byte[] data) {
+        if (data.length == 0 || data.length > MAX_SIZE)
+            throw new IllegalArgumentException("dictionary size must be between 1 and " + MAX_SIZE);
+        this.data = data;
+        this.id = toId(data);
+    }
+
+    /**
+     * Load the built-in dictionary or the one from the given file.
+     */
+    public static Dictionary load(final String source) throws IOException {
+        final InputStream in;
+        if (BUILTIN.equalsIgnoreCase(source)) {
+            in = Dictionary.class.getClassLoader().getResourceAsStream(BUILTIN_RESOURCE);
+            if (in == null)
+                throw new FileNotFoundException(BUILTIN_RESOURCE);
+        } else {
+            in = new FileInputStream(source);
+        }
+        try {
+            return new Dictionary(read(in));
+        } finally {
+            in.close();
+        }
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * @return the ID of the dictionary a zlib stream was compressed with (null if there is none,
+     * or if the data is not a zlib stream at all)
+     */
+    public static String getId(final byte[] zlib) {
+        if (zlib.length < 6 || (zlib[0] & 0x0F) != 8 || ((zlib[0] & 0xFF) << 8 | (zlib[1] & 0xFF)) % 31 != 0)
+            return null;
+        if ((zlib[1] & 0x20) == 0) return null;
+        final long adler = ((zlib[2] & 0xFFL) << 24) | ((zlib[3] & 0xFF) << 16)
+            | ((zlib[4] & 0xFF) << 8) | (zlib[5] & 0xFF);
+        return toHex(adler);
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private static String toId(final byte[] data) {
+        final Adler32 adler = new Adler32();
+        adler.update(data);
+        return toHex(adler.getValue());
+    }
+
+    private static String toHex(final long value) {
+        final String hex = Long.toHexString(value);
+        return "00000000".substring(hex.length()) + hex;
+    }
+
+    private static byte[] read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) != -1)
+            out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+
+
+    // GET ========================================================================================
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
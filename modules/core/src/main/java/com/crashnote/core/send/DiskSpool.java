@@ -0,0 +1,678 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.send;
+
+import com.crashnote.core.Lifecycle;
+import com.crashnote.core.log.LogLog;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log on disk for (compressed) request bodies that could not be delivered.
+ * <p/>
+ * The log consists of fixed-size, memory-mapped segment files. Each record carries its length,
+ * a CRC32 checksum, a timestamp, the content type and the idempotency key of the request, and
+ * optionally a context: data the body depends on (e.g. the environment it refers to by hash),
+ * which might not be known anymore when it is re-sent. A record is first written
+ * completely and only then marked as pending; once it has been delivered it is marked as done
+ * in place. On start the segments are scanned and the pending records are picked up again, a
+ * torn or corrupt record ends the scan of its segment.
+ * <p/>
+ * A background thread re-sends the pending records (oldest first) via the {@link Delivery} and
+ * deletes segments that are completely done. The disk usage is bounded by a maximum size (the
+ * oldest segments are dropped) and a maximum age (outdated records are skipped).
+ * <p/>
+ * The spool holds an exclusive lock on its directory while it is started: a directory that is
+ * locked by another process (or another spool of this one) is not touched, spooling is disabled.
+ */
+public class DiskSpool
+    implements Lifecycle {
+
+    // CONST ======================================================================================
+
+    public static final int MIN_SEGMENT_SIZE = 64 * 1024;
+
+    // (records of the first format, without a context, end the scan)
+    private static final int PENDING = 0x434E5333; // 'CNS3'
+    private static final int DONE = 0x434E5332;    // 'CNS2'
+
+    // marker, length, checksum, timestamp, type length, key length, context length
+    private static final int HEADER = 4 + 4 + 4 + 8 + 1 + 1 + 4;
+
+    private static final String PREFIX = "spool-";
+    private static final String SUFFIX = ".log";
+    private static final String LOCK = "spool.lock";
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+
+    // VARS =======================================================================================
+
+    private final File dir;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final long maxAge;
+    private final long interval;
+
+    private final Delivery delivery;
+    private final LogLog logger;
+
+    // segments, the last one is the one being appended to
+    private final LinkedList<Segment> segments;
+    private long nextSeq;
+
+    private volatile boolean started;
+    private volatile boolean failing;
+    private Thread drainer;
+
+    private RandomAccessFile lockFile;
+    private FileLock lock;
+
+    // only one drain at a time, so no record is sent twice
+    private final Object drainLock = new Object();
+
+    // statistics:
+    private int pending;
+    private long delivered;
+    private long dropped;
+
+
+    // SETUP ======================================================================================
+
+    public DiskSpool(final File dir, final long segmentSize, final long maxSize,
+                     final long maxAge, final long interval,
+                     final Delivery delivery, final LogLog logger) {
+        this.dir = dir;
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_SEGMENT_SIZE, segmentSize));
+        this.maxSegments = (int) Math.max(2, maxSize / this.segmentSize);
+        this.maxAge = maxAge;
+        this.interval = Math.max(100, interval);
+
+        this.delivery = delivery;
+        this.logger = logger;
+
+        this.segments = new LinkedList<Segment>();
+    }
+
+
+    // LIFECYCLE ==================================================================================
+
+    /**
+     * Recover the pending records of the segments on disk and start re-sending them.
+     */
+    @Override
+    public synchronized boolean start() {
+        if (!started) {
+            logger.debug("starting module [spool] in '{}'", dir);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                logger.warn("unable to create spool directory '{}'", dir);
+                return false;
+            }
+            if (!lock()) {
+                logger.warn("spool directory '{}' is in use by another process, spooling is disabled", dir);
+                return false;
+            }
+            recover();
+            started = true;
+
+            drainer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    loop();
+                }
+            }, "crashnote-spool");
+            drainer.setDaemon(true);
+            drainer.start();
+        }
+        return started;
+    }
+
+    /**
+     * Stop re-sending and flush the segments to disk, pending records are kept for the next start.
+     */
+    @Override
+    public synchronized boolean stop() {
+        if (started) {
+            logger.debug("stopping module [spool]");
+            started = false;
+            notifyAll();
+            if (drainer != null && drainer != Thread.currentThread())
+                drainer.interrupt();
+            drainer = null;
+
+            for (final Segment s : segments)
+                s.close();
+            segments.clear();
+            unlock();
+        }
+        return started;
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * Something that re-sends a spooled request body.
+     */
+    public interface Delivery {
+
+        /**
+         * @param context the data that was spooled along with the body (null if none)
+         * @return whether the body does not need to be delivered again
+         */
+        boolean deliver(String contentType, String key, byte[] body, byte[] context);
+    }
+
+    /**
+     * Append a request body to the log.
+     *
+     * @return whether the body was written to disk
+     */
+    public boolean append(final String contentType, final String key, final byte[] body) {
+        return append(contentType, key, body, null, System.currentTimeMillis());
+    }
+
+    /**
+     * Append a request body to the log, together with the data it depends on.
+     *
+     * @return whether the body was written to disk
+     */
+    public boolean append(final String contentType, final String key, final byte[] body,
+                          final byte[] context) {
+        return append(contentType, key, body, context, System.currentTimeMillis());
+    }
+
+    public synchronized boolean append(final String contentType, final String key, final byte[] body,
+                                       final byte[] context, final long timestamp) {
+        if (!started) return false;
+
+        final byte[] type = ascii(contentType);
+        final byte[] id = ascii(key);
+        final byte[] ctx = context == null ? new byte[0] : context;
+        final int size = HEADER + type.length + id.length + ctx.length + body.length;
+        if (size > segmentSize) {
+            logger.debug("unable to spool body of {} bytes", body.length);
+            dropped++;
+            return false;
+        }
+
+        try {
+            Segment s = segments.isEmpty() ? null : segments.getLast();
+            if (s == null || s.remaining() < size) {
+                if (s != null) s.buf.force();
+                s = createSegment();
+            }
+            s.append(type, id, ctx, body, timestamp);
+            pending++;
+        } catch (IOException e) {
+            logger.warn("unable to spool body", e);
+            dropped++;
+            return false;
+        }
+
+        evict();
+        return true;
+    }
+
+    /**
+     * Re-send the pending records until the first one fails.
+     *
+     * @return the number of records that were delivered
+     */
+    public int drain() {
+        synchronized (drainLock) {
+            return drainPending();
+        }
+    }
+
+    /**
+     * Wake up the background thread to re-send the pending records right away.
+     */
+    public synchronized void wakeUp() {
+        notifyAll();
+    }
+
+    /**
+     * @return whether there are pending records and the last attempt to re-send them failed
+     */
+    public synchronized boolean isBackedUp() {
+        return failing && pending > 0;
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private int drainPending() {
+        int count = 0;
+        final long now = System.currentTimeMillis();
+        while (started) {
+            final Segment s;
+            final Record r;
+            synchronized (this) {
+                s = nextPending();
+                r = s == null ? null : s.read(s.readPos);
+                if (r == null) {
+                    failing = false;
+                    break;
+                }
+                if (maxAge > 0 && now - r.timestamp > maxAge) {
+                    s.done(r);
+                    pending--;
+                    dropped++;
+                    continue;
+                }
+            }
+
+            final boolean success;
+            try {
+                success = delivery.deliver(r.contentType, r.key, r.body, r.context);
+            } catch (RuntimeException e) {
+                logger.debug("unable to re-send spooled body", e);
+                failing = true;
+                break;
+            }
+
+            synchronized (this) {
+                if (!success) {
+                    failing = true;
+                    break;
+                }
+                failing = false;
+                if (segments.contains(s)) {
+                    s.done(r);
+                    pending--;
+                    delivered++;
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void loop() {
+        while (started) {
+            try {
+                synchronized (this) {
+                    if (started) wait(interval);
+                }
+                drain();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.debug("unable to drain spool", e);
+            }
+        }
+    }
+
+    /**
+     * Find the oldest pending record, removing the segments that are done along the way.
+     */
+    private Segment nextPending() {
+        while (!segments.isEmpty()) {
+            final Segment s = segments.getFirst();
+            if (s.seekPending()) return s;
+            if (s == segments.getLast()) return null;
+            segments.removeFirst();
+            s.delete();
+        }
+        return null;
+    }
+
+    private void evict() {
+        while (segments.size() > maxSegments) {
+            final Segment s = segments.removeFirst();
+            final int lost = s.countPending();
+            logger.debug("spool is full, dropping {} record(s)", lost);
+            pending -= lost;
+            dropped += lost;
+            s.delete();
+        }
+    }
+
+    private void recover() {
+        final String[] names = dir.list(new FilenameFilter() {
+            @Override
+            public boolean accept(final File d, final String name) {
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }
+        });
+        if (names == null) return;
+        Arrays.sort(names); // zero-padded sequence numbers
+
+        for (final String name : names) {
+            final File f = new File(dir, name);
+            try {
+                final long seq = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+                nextSeq = Math.max(nextSeq, seq + 1);
+
+                final Segment s = new Segment(f, (int) Math.max(f.length(), segmentSize));
+                s.scan();
+                final int count = s.countPending();
+                if (count == 0) {
+                    s.delete();
+                } else {
+                    segments.add(s);
+                    pending += count;
+                }
+            } catch (Exception e) {
+                logger.warn("unable to recover spool segment '{}'", f, e);
+            }
+        }
+        if (pending > 0)
+            logger.debug("recovered {} spooled record(s)", pending);
+        evict();
+    }
+
+    /**
+     * Takes the exclusive lock on the directory.
+     *
+     * @return whether it was taken (false if someone else holds it)
+     */
+    private boolean lock() {
+        RandomAccessFile f = null;
+        try {
+            f = new RandomAccessFile(new File(dir, LOCK), "rw");
+            final FileLock l = f.getChannel().tryLock();
+            if (l != null) {
+                lockFile = f;
+                lock = l;
+                return true;
+            }
+        } catch (IOException e) {
+            logger.debug("unable to lock spool directory", e);
+        } catch (OverlappingFileLockException ignored) {
+            // held by another spool of this process
+        }
+        close(f);
+        return false;
+    }
+
+    private void unlock() {
+        try {
+            if (lock != null) lock.release();
+        } catch (IOException ignored) {
+        }
+        close(lockFile);
+        lock = null;
+        lockFile = null;
+    }
+
+    private static void close(final RandomAccessFile f) {
+        if (f == null) return;
+        try {
+            f.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Releases the mapping of the buffer right away - closing the file does not, and on some
+     * platforms a mapped file can't be deleted. The buffer must not be used afterwards.
+     * <p/>
+     * There is no API for this: it uses the buffer's cleaner (Java 6-8) or 'Unsafe.invokeCleaner'
+     * (Java 9+); if neither is accessible, the mapping is released once the buffer was collected.
+     */
+    private static void unmap(final MappedByteBuffer buf) {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buf);
+            return;
+        } catch (Exception ignored) {
+            // before Java 9
+        }
+        try {
+            final Method cleanerMethod = buf.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            final Object cleaner = cleanerMethod.invoke(buf);
+            if (cleaner != null)
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+        } catch (Exception ignored) {
+            // left to the garbage collector
+        }
+    }
+
+    private static byte[] ascii(final String str) {
+        final byte[] b = str == null ? new byte[0] : str.getBytes(ASCII);
+        if (b.length <= 255) return b;
+        final byte[] cut = new byte[255];
+        System.arraycopy(b, 0, cut, 0, cut.length);
+        return cut;
+    }
+
+    private Segment createSegment() throws IOException {
+        final String seq = Long.toString(nextSeq++);
+        final StringBuilder name = new StringBuilder(PREFIX);
+        for (int i = seq.length(); i < 16; i++) name.append('0');
+        name.append(seq).append(SUFFIX);
+
+        final Segment s = new Segment(new File(dir, name.toString()), segmentSize);
+        segments.add(s);
+        return s;
+    }
+
+    /**
+     * A record read from a segment.
+     */
+    private static class Record {
+        private final int pos;
+        private final long timestamp;
+        private final String contentType;
+        private final String key;
+        private final byte[] context;
+        private final byte[] body;
+
+        Record(final int pos, final long timestamp, final String contentType, final String key,
+               final byte[] context, final byte[] body) {
+            this.pos = pos;
+            this.timestamp = timestamp;
+            this.contentType = contentType;
+            this.key = key;
+            this.context = context;
+            this.body = body;
+        }
+    }
+
+    /**
+     * A memory-mapped file of records.
+     */
+    private static class Segment {
+        private final File file;
+        private final RandomAccessFile raf;
+        private final MappedByteBuffer buf;
+        private final int size;
+
+        private int writePos; // end of the valid records
+        private int readPos;  // first record that might be pending
+
+        Segment(final File file, final int size) throws IOException {
+            this.file = file;
+            this.size = size;
+            this.raf = new RandomAccessFile(file, "rw");
+            try {
+                this.buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        int remaining() {
+            return size - writePos;
+        }
+
+        void append(final byte[] type, final byte[] key, final byte[] context, final byte[] body,
+                    final long timestamp) {
+            final int pos = writePos;
+            final int end = pos + HEADER + type.length + key.length + context.length + body.length;
+
+            // terminate the log behind the new record (in case of left-overs of a torn write)
+            if (end + 4 <= size)
+                buf.putInt(end, 0);
+
+            buf.putInt(pos + 4, body.length);
+            buf.putLong(pos + 12, timestamp);
+            buf.put(pos + 20, (byte) type.length);
+            buf.put(pos + 21, (byte) key.length);
+            buf.putInt(pos + 22, context.length);
+            final ByteBuffer dst = buf.duplicate();
+            dst.position(pos + HEADER);
+            dst.put(type).put(key).put(context).put(body);
+            buf.putInt(pos + 8, checksum(pos, end));
+
+            // only mark the record as valid once it is complete
+            buf.putInt(pos, PENDING);
+            writePos = end;
+        }
+
+        /**
+         * Read the valid record at the given position, if any.
+         */
+        Record read(final int pos) {
+            if (pos + HEADER > size) return null;
+            final int marker = buf.getInt(pos);
+            if (marker != PENDING && marker != DONE) return null;
+
+            final int len = buf.getInt(pos + 4);
+            final int typeLen = buf.get(pos + 20) & 0xFF;
+            final int keyLen = buf.get(pos + 21) & 0xFF;
+            final int ctxLen = buf.getInt(pos + 22);
+            if (len < 0 || ctxLen < 0 || (long) pos + HEADER + typeLen + keyLen + ctxLen + len > size)
+                return null;
+            final int end = pos + HEADER + typeLen + keyLen + ctxLen + len;
+            if (buf.getInt(pos + 8) != checksum(pos, end)) return null;
+
+            final byte[] type = new byte[typeLen];
+            final byte[] key = new byte[keyLen];
+            final byte[] ctx = new byte[ctxLen];
+            final byte[] body = new byte[len];
+            final ByteBuffer src = buf.duplicate();
+            src.position(pos + HEADER);
+            src.get(type).get(key).get(ctx).get(body);
+            return new Record(pos, buf.getLong(pos + 12), new String(type, ASCII), new String(key, ASCII),
+                ctxLen == 0 ? null : ctx, body);
+        }
+
+        void done(final Record r) {
+            buf.putInt(r.pos, DONE);
+            readPos = next(r.pos);
+        }
+
+        /**
+         * Move the read position to the next pending record.
+         */
+        boolean seekPending() {
+            while (readPos < writePos) {
+                if (buf.getInt(readPos) == PENDING) return true;
+                readPos = next(readPos);
+            }
+            return false;
+        }
+
+        int countPending() {
+            int count = 0;
+            for (int pos = readPos; pos < writePos; pos = next(pos))
+                if (buf.getInt(pos) == PENDING) count++;
+            return count;
+        }
+
+        /**
+         * Find the end of the valid records after (re-)opening the segment.
+         */
+        void scan() {
+            int pos = 0;
+            Record r;
+            while ((r = read(pos)) != null)
+                pos = next(r.pos);
+            writePos = pos;
+            readPos = 0;
+        }
+
+        void close() {
+            buf.force();
+            unmap(buf);
+            DiskSpool.close(raf);
+        }
+
+        void delete() {
+            unmap(buf);
+            DiskSpool.close(raf);
+            if (!file.delete())
+                file.deleteOnExit();
+        }
+
+        private int next(final int pos) {
+            return pos + HEADER + (buf.get(pos + 20) & 0xFF) + (buf.get(pos + 21) & 0xFF) + buf.getInt(pos + 22)
+                + buf.getInt(pos + 4);
+        }
+
+        /**
+         * Checksum of the length, the timestamp, the content type, the key, the context and the
+         * body of a record.
+         */
+        private int checksum(final int pos, final int end) {
+            final byte[] data = new byte[4 + end - pos - 12];
+            final ByteBuffer src = buf.duplicate();
+            src.position(pos + 4);
+            src.get(data, 0, 4);
+            src.position(pos + 12);
+            src.get(data, 4, data.length - 4);
+
+            final CRC32 crc = new CRC32();
+            crc.update(data);
+            return (int) crc.getValue();
+        }
+    }
+
+
+    // GET ========================================================================================
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    public synchronized long getDeliveredCount() {
+        return delivered;
+    }
+
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+}
@@ -15,32 +15,106 @@
  */
 package com.crashnote.core.send;
 
+import com.crashnote.core.Lifecycle;
+import com.crashnote.core.build.Builder;
+import com.crashnote.core.build.ReportWriter;
 import com.crashnote.core.config.CrashConfig;
 import com.crashnote.core.log.LogLog;
+import com.crashnote.core.model.log.FrameDictionary;
+import com.crashnote.core.model.log.LogEnv;
 import com.crashnote.core.model.log.LogReport;
+import com.crashnote.core.stats.Statistics;
+import com.crashnote.external.json.JSONEncoder;
 
 import javax.net.ssl.*;
 import java.io.*;
 import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
-import java.util.zip.GZIPOutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The Dispatcher is responsible for transmitting the data from the client to the server by
  * using Java's build-in capabilities around {@link HttpURLConnection}.
  */
-public class Sender {
+public class Sender
+    implements Lifecycle {
+
+    // CONST ======================================================================================
+
+    protected static final String JSON_TYPE = Builder.JSON_TYPE;
+
+    // where to register the environment that delta-encoded reports refer to
+    protected static final String ENV_PATH = "/environment";
+
+    // answer to a report that refers to an environment the endpoint does not know
+    protected static final int UNKNOWN_ENV = 412;
+
+    // where to register the frame dictionary that reports refer to
+    protected static final String FRAMES_PATH = "/frames";
+
+    // answer to a report that refers to a frame dictionary (epoch) the endpoint does not know
+    protected static final int UNKNOWN_FRAMES = 409;
+
+    // ID of the dictionary a 'deflate' body was compressed with
+    protected static final String DICTIONARY_HEADER = "Crashnote-Dictionary";
+
+    // responses up to this size are read completely, so the connection can be re-used
+    protected static final int MAX_DRAIN = 64 * 1024;
+
+    // SSL socket factory shared by all senders (a new factory would not re-use any connection)
+    private static volatile SSLSocketFactory sslFactory;
+
 
     // VARS =======================================================================================
 
+    protected boolean started;
+
     // configuration settings:
     private final String postURL;
     private final String clientInfo;
     private final int connectionTimeout;
+    private final boolean keepAlive;
+    private final Compressor compressor;
+    private final boolean streaming;
+    private final int chunkSize;
+
+    // encoding of the reports (JSON or binary)
+    private final Builder builder;
+    private final String reportType;
 
     protected final LogLog logger;
 
+    // encoder (and its buffer) kept for the next request
+    private final AtomicReference<JSONEncoder> spareEncoder;
+
+    // when to (re-)try requests
+    private final DeliveryPolicy policy;
+
+    // bodies that could not be delivered (optional)
+    private final DiskSpool spool;
+
+    // idempotency keys: random prefix of this instance plus a sequence
+    private final String keyPrefix;
+    private final AtomicLong keySeq;
+
+    // parsed (and resolved) URL of the last request
+    private volatile Endpoint endpoint;
+
+    // environment of the latest report (the one a batch refers to)
+    private volatile LogEnv env;
+
+    // process-wide frame dictionary (null if disabled)
+    private final FrameDictionary frames;
+
+    private final Statistics stats;
+
 
     // SETUP ======================================================================================
 
@@ -48,8 +122,23 @@ public class Sender {
         this.postURL = config.getPostURL();
         this.clientInfo = config.getClientInfo();
         this.connectionTimeout = config.getConnectionTimeout();
+        this.keepAlive = config.isKeepAlive();
+        this.streaming = config.isStreamingRequests();
+        this.chunkSize = config.getChunkSize();
+        this.spareEncoder = new AtomicReference<JSONEncoder>();
+        this.builder = config.getBuilder();
+        this.reportType = builder.getContentType();
 
         this.logger = config.getLogger(this.getClass());
+        final Statistics s = config.getStatistics();
+        this.stats = s != null ? s : new Statistics();
+        this.compressor = createCompressor(config);
+        this.policy = createDeliveryPolicy(config);
+        this.spool = config.isSpooling() ? createSpool(config) : null;
+        this.frames = config.isFrameDictionary() ? createFrameDictionary() : null;
+
+        this.keyPrefix = Long.toHexString(new SecureRandom().nextLong() & Long.MAX_VALUE) + "-";
+        this.keySeq = new AtomicLong();
 
         // create and install a trust manager that does not validate certificate chains
         installCustomTrustManager();
@@ -59,8 +148,28 @@ public class Sender {
     }
 
     protected void installCustomTrustManager() {
-        try {
-            final SSLContext sc = SSLContext.getInstance("TLS");
+        final SSLSocketFactory factory = getSSLSocketFactory(logger);
+        if (factory != null && HttpsURLConnection.getDefaultSSLSocketFactory() != factory)
+            HttpsURLConnection.setDefaultSSLSocketFactory(factory);
+    }
+
+    /**
+     * @return the factory for SSL sockets that trust all certificates (null if unavailable)
+     */
+    protected static synchronized SSLSocketFactory getSSLSocketFactory(final LogLog logger) {
+        if (sslFactory == null) {
+            try {
+                sslFactory = createSSLContext().getSocketFactory();
+            } catch (Exception e) {
+                logger.warn("unable to install custom SSL manager", e);
+            }
+        }
+        return sslFactory;
+    }
+
+    private static SSLContext createSSLContext() throws Exception {
+        final SSLContext sc = SSLContext.getInstance("TLS");
+        {
             final TrustManager[] mgrs = new TrustManager[]{
                 new X509TrustManager() {
                     @Override
@@ -77,17 +186,44 @@ public class Sender {
                     }
                 }
             };
-            sc.init(null, mgrs, new java.security.SecureRandom());
-            HttpsURLConnection.setDefaultSSLSocketFactory(sc.getSocketFactory());
-        } catch (Exception e) {
-            logger.warn("unable to install custom SSL manager", e);
+            sc.init(null, mgrs, new SecureRandom());
+        }
+        return sc;
+    }
+
+
+    // LIFECYCLE ==================================================================================
+
+    @Override
+    public boolean start() {
+        if (!started) {
+            started = true;
+            logger.debug("starting module [sender]");
+            if (spool != null)
+                spool.start();
+            if (keepAlive)
+                resolveEndpoint(postURL);
+        }
+        return started;
+    }
+
+    @Override
+    public boolean stop() {
+        if (started) {
+            started = false;
+            logger.debug("stopping module [sender]");
+            if (spool != null)
+                spool.stop();
+            compressor.close();
         }
+        return started;
     }
 
 
     // INTERFACE ==================================================================================
 
     public void send(final LogReport report) {
+        trackEnv(report);
         logger.debug("POST to '{}'", postURL);
         POST(postURL, report);
     }
@@ -96,29 +232,373 @@ public class Sender {
     // SHARED =====================================================================================
 
     protected void POST(final String url, final LogReport report) {
+        final boolean accepted = POST(url, reportType, new Body() {
+            @Override
+            public void writeTo(final OutputStream os) throws IOException {
+                writeReport(report, os);
+            }
+        }, report.getEnv());
+        if (accepted)
+            defineFrames(report.getFrameDefinitions());
+    }
+
+    /**
+     * Serializes the report into the stream, in the encoding of the {@link Builder}.
+     */
+    protected void writeReport(final LogReport report, final OutputStream os) throws IOException {
+        if (!JSON_TYPE.equals(reportType)) {
+            final ReportWriter out = builder.createReportWriter(os);
+            report.writeTo(out);
+            out.flush();
+            return;
+        }
+
+        final Writer out = createWriter(os);
+        try {
+            report.streamTo(out);
+            out.flush();
+        } finally {
+            out.close();
+            releaseWriter(out);
+        }
+    }
+
+    /**
+     * Sends the given body as a gzip-compressed POST request of the given content type.
+     * <p/>
+     * Failed requests are retried according to the {@link DeliveryPolicy}; while the endpoint is
+     * unavailable the request fails fast. If the body cannot be delivered it is handed to the
+     * spool, if there is one, to be sent again later (with the same idempotency key).
+     * <p/>
+     * The body is assumed to refer to the environment of the latest report.
+     *
+     * @return whether the endpoint took the body (only then the frames it defines are known to it)
+     */
+    protected boolean POST(final String url, final String contentType, final Body body) {
+        return POST(url, contentType, body, env);
+    }
+
+    /**
+     * Same as {@link #POST(String, String, Body)}, for a body that refers to the given
+     * environment (null if none): it is registered if the endpoint does not know it and spooled
+     * along with the body.
+     */
+    protected boolean POST(final String url, final String contentType, final Body body, final LogEnv bodyEnv) {
+        final String key = createIdempotencyKey();
+
+        // compress bodies that are in memory anyway up front: the size is known then
+        final boolean prepared = streaming && body instanceof BufferedBody;
+        Body payload;
+        try {
+            payload = prepared ? new Bytes(compressor.compress(body)) : body;
+        } catch (IOException e) {
+            logger.debug("unable to compress data", e);
+            return false;
+        }
+
+        if (spool == null || !spool.isBackedUp()) {
+            boolean fallback = compressor.getDictionary() != null;
+            boolean registered = false;
+            boolean framesRegistered = false;
+            for (int attempt = 0; ; attempt++) {
+                if (!policy.allowRequest()) {
+                    logger.debug("endpoint is unavailable, skipping request");
+                    break;
+                }
+                final int status = deliver(url, contentType, key, payload);
+                if (status == 415 && fallback) {
+                    // the endpoint does not know the dictionary: send again (right away) with gzip
+                    fallback = false;
+                    if (compressor.disableDictionary())
+                        logger.info("endpoint does not support compression dictionary, using gzip");
+                    try {
+                        if (payload instanceof Bytes)
+                            payload = new Bytes(compressor.recode(((Bytes) payload).data));
+                    } catch (IOException e) {
+                        logger.debug("unable to compress data", e);
+                        return false;
+                    }
+                    attempt--;
+                    continue;
+                }
+                if (status == UNKNOWN_ENV && !registered && bodyEnv != null) {
+                    // the report refers to an environment the endpoint does not know (anymore)
+                    registered = true;
+                    if (!registerEnv(bodyEnv))
+                        break;
+                    attempt--;
+                    continue;
+                }
+                if (status == UNKNOWN_FRAMES && !framesRegistered && frames != null) {
+                    // the report refers to frames the endpoint does not know (anymore)
+                    framesRegistered = true;
+                    if (!registerFrames())
+                        break;
+                    attempt--;
+                    continue;
+                }
+                if (isDelivered(status))
+                    return isAccepted(status);
+                if (attempt >= policy.getMaxRetries() || !pause(policy.getBackoff(attempt)))
+                    break;
+            }
+        }
+        if (spool != null)
+            spool(contentType, key, payload, bodyEnv);
+        return false;
+    }
+
+    /**
+     * Sends the given body, which might be prepared already (see {@link Bytes}), and reports the
+     * outcome to the {@link DeliveryPolicy}.
+     *
+     * @return the status code of the response (-1 if there is none)
+     */
+    protected int deliver(final String url, final String contentType, final String key,
+                          final Body body) {
+        int status = -1;
+        long written = -1;
+        boolean reusable = false;
         HttpURLConnection conn = null;
+        final long start = System.nanoTime();
         try {
-            conn = prepareConnection(url);
+            conn = prepareConnection(url, contentType, key);
             try {
-                write(conn, report);
+                written = write(conn, body);
             } catch (IOException e) {
                 logger.debug("unable to send data", e);
             }
-            readResponse(conn);
+            final int code = conn.getResponseCode();
+            final boolean drained = (keepAlive || logger.isDebug()) && readResponse(conn, code);
+            if (code == 429 || code == 503)
+                policy.onThrottled(policy.parseRetryAfter(conn.getHeaderField("Retry-After")));
+            if (written >= 0) {
+                status = code;
+                reusable = keepAlive && drained;
+            }
         } catch (IOException e) {
             logger.debug("unable to open connection", e);
         } finally {
-            if (conn != null)
+            // a connection with a consumed response goes back to the keep-alive cache
+            if (conn != null && !reusable)
                 conn.disconnect();
         }
+
+        final boolean failed = status == -1 || status >= 500;
+        if (failed)
+            policy.onFailure();
+        else if (status != 429)
+            policy.onSuccess();
+        stats.requestSent(written, System.nanoTime() - start, !failed);
+        return status;
+    }
+
+    /**
+     * Sends the full environment, so the endpoint knows it by its hash.
+     *
+     * @return whether the endpoint accepted it
+     */
+    protected boolean registerEnv(final LogEnv e) {
+        logger.debug("registering environment '{}'", e.getHash());
+        return isAccepted(deliver(postURL + ENV_PATH, reportType, null, createEnvBody(e)));
+    }
+
+    /**
+     * @return the body that registers the environment (see {@link #registerEnv(LogEnv)})
+     */
+    protected Body createEnvBody(final LogEnv e) {
+        return new Body() {
+            @Override
+            public void writeTo(final OutputStream os) throws IOException {
+                final ReportWriter out = builder.createReportWriter(os);
+                out.beginObject();
+                out.field("environmentHash", e.getHash());
+                out.field("environment", e.getData());
+                out.endObject();
+                out.flush();
+            }
+        };
+    }
+
+    /**
+     * Sends all frames of the dictionary, so the endpoint can resolve the IDs of its epoch.
+     *
+     * @return whether the endpoint accepted them
+     */
+    protected boolean registerFrames() {
+        final FrameDictionary dict = frames;
+        if (dict == null) return false;
+
+        final List<FrameDictionary.Entry> entries = dict.getEntries();
+        logger.debug("registering {} frames of dictionary '{}'", entries.size(), dict.getEpoch());
+        final int status = deliver(postURL + FRAMES_PATH, reportType, null, new Body() {
+            @Override
+            public void writeTo(final OutputStream os) throws IOException {
+                final ReportWriter out = builder.createReportWriter(os);
+                out.beginObject();
+                out.field("epoch", dict.getEpoch());
+                out.beginObject("defs");
+                for (final FrameDictionary.Entry entry : entries)
+                    out.field(Integer.toString(entry.getId()), entry.getText());
+                out.endObject();
+                out.endObject();
+                out.flush();
+            }
+        });
+        if (!isAccepted(status)) return false;
+        defineFrames(entries);
+        return true;
+    }
+
+    /**
+     * Marks the frames as known to the endpoint, once it took a request that defined them.
+     */
+    protected void defineFrames(final Collection<FrameDictionary.Entry> entries) {
+        for (final FrameDictionary.Entry entry : entries)
+            entry.define(); // (no need to send it with a report anymore)
+    }
+
+    protected void trackEnv(final LogReport report) {
+        if (report.getEnv() != null)
+            env = report.getEnv();
+    }
+
+    /**
+     * Whether a response status means that the request should not be repeated - besides success
+     * this includes client errors, since sending the very same request again won't help.
+     */
+    protected boolean isDelivered(final int statusCode) {
+        return statusCode > 0 && statusCode < 500 && statusCode != 408 && statusCode != 429;
+    }
+
+    /**
+     * Whether a response status means that the endpoint took the request.
+     */
+    protected boolean isAccepted(final int statusCode) {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    /**
+     * Spools the body along with the registration of its environment, which is needed to re-send
+     * it once the endpoint forgot the environment or the process does not know it anymore (e.g.
+     * after a restart).
+     */
+    protected void spool(final String contentType, final String key, final Body body, final LogEnv bodyEnv) {
+        try {
+            final byte[] data = body instanceof Bytes ? ((Bytes) body).data : compressor.compress(body);
+            final byte[] context = bodyEnv == null ? null : compressor.compress(createEnvBody(bodyEnv));
+            if (spool.append(contentType, key, data, context))
+                logger.debug("spooled request body of {} bytes", data.length);
+        } catch (IOException e) {
+            logger.debug("unable to spool data", e);
+        }
+    }
+
+    /**
+     * Wait before the next attempt.
+     *
+     * @return false if the thread was interrupted
+     */
+    protected boolean pause(final long millis) {
+        if (millis <= 0) return true;
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
 
     // INTERNALS ==================================================================================
 
-    private HttpURLConnection prepareConnection(final String url) throws IOException {
+    /**
+     * The (uncompressed) content of a request, e.g. a single report or a batch of reports.
+     */
+    public interface Body {
+
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * A body whose content is in memory already and can be written any number of times.
+     */
+    public abstract static class BufferedBody
+        implements Body {
+    }
+
+    /**
+     * A body that was written into memory already, compressed or not (see {@link Compressor}).
+     */
+    protected static final class Bytes
+        implements Body {
+
+        private final byte[] data;
+
+        protected Bytes(final byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public void writeTo(final OutputStream out) throws IOException {
+            out.write(data);
+        }
+    }
+
+    /**
+     * The URL requests are sent to, parsed once and (on start) resolved in the background so the
+     * address is in the JVM's cache before the first report.
+     */
+    private static final class Endpoint {
+        private final String spec;
+        private final URL url;
+        private volatile InetAddress address;
+
+        Endpoint(final String spec) throws MalformedURLException {
+            this.spec = spec;
+            this.url = new URL(spec);
+        }
+    }
+
+    private Endpoint getEndpoint(final String url) throws MalformedURLException {
+        Endpoint e = endpoint;
+        if (e == null || !e.spec.equals(url)) {
+            e = new Endpoint(url);
+            endpoint = e;
+        }
+        return e;
+    }
+
+    private void resolveEndpoint(final String url) {
+        final Endpoint e;
+        try {
+            e = getEndpoint(url);
+        } catch (MalformedURLException ex) {
+            logger.debug("invalid endpoint '{}'", url, ex);
+            return;
+        }
+        final Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    e.address = InetAddress.getByName(e.url.getHost());
+                } catch (IOException ex) {
+                    logger.debug("unable to resolve '{}'", e.url.getHost(), ex);
+                }
+            }
+        }, "crashnote-endpoint");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private HttpURLConnection prepareConnection(final String url, final String contentType,
+                                                final String key) throws IOException {
         final HttpURLConnection conn = createConnection(url);
         {
+            if (conn instanceof HttpsURLConnection && sslFactory != null)
+                ((HttpsURLConnection) conn).setSSLSocketFactory(sslFactory);
+
             conn.setDoOutput(true);
             conn.setUseCaches(false);
             conn.setAllowUserInteraction(false);
@@ -127,68 +607,323 @@ public class Sender {
             conn.setConnectTimeout(connectionTimeout);
 
             conn.setRequestProperty("Accept", "application/json");
-            conn.setRequestProperty("Content-Type", "application/json; charset=utf-8");
-            conn.setRequestProperty("Content-Encoding", "gzip");
+            conn.setRequestProperty("Content-Type", contentType);
+            if (key != null)
+                conn.setRequestProperty("Idempotency-Key", key);
             if (clientInfo != null)
                 conn.setRequestProperty("User-Agent", getClientInfo());
         }
         return conn;
     }
 
-    private void write(final HttpURLConnection conn, final LogReport report) throws IOException {
-        Writer out = null;
+    private long write(final HttpURLConnection conn, final Body body) throws IOException {
+        final WireStream wire = new WireStream(conn);
+        OutputStream os = null;
         try {
-            final OutputStream os = new GZIPOutputStream(conn.getOutputStream());
-            {
-                out = createWriter(os);
-                report.streamTo(out);
+            if (body instanceof Bytes) {
+                final byte[] data = ((Bytes) body).data;
+                final String encoding = Compressor.getEncoding(data);
+                setEncoding(conn, encoding, Compressor.DEFLATE.equals(encoding) ? Dictionary.getId(data) : null);
+                if (streaming)
+                    conn.setFixedLengthStreamingMode(data.length);
+                os = wire;
+            } else if (compressor.getThreshold() > 0) {
+                os = new ThresholdStream(conn, wire);
+            } else {
+                os = openStream(conn, wire, true);
             }
-            out.flush();
-            os.close();
+            body.writeTo(os);
         } catch (IOException e) {
             logger.debug("unable to write data to stream", e);
+            return -1;
         } finally {
-            if (out != null)
-                out.close();
+            if (os != null)
+                os.close();
         }
+        return wire.count;
+    }
+
+    /**
+     * Opens the request stream (with gzip compression), after that no header can be set anymore.
+     */
+    private OutputStream openStream(final HttpURLConnection conn, final WireStream wire,
+                                    final boolean compress) throws IOException {
+        if (!compress)
+            return wire;
+
+        final Dictionary dict = compressor.getDictionary();
+        setEncoding(conn, dict == null ? Compressor.GZIP : Compressor.DEFLATE, dict == null ? null : dict.getId());
+        if (streaming && chunkSize > 0)
+            conn.setChunkedStreamingMode(chunkSize); // send while writing
+        return compressor.stream(wire, dict);
     }
 
-    private void readResponse(final HttpURLConnection conn) throws IOException {
-        final int statusCode = conn.getResponseCode();
+    private void setEncoding(final HttpURLConnection conn, final String encoding, final String dictionary) {
+        if (encoding != null)
+            conn.setRequestProperty("Content-Encoding", encoding);
+        if (dictionary != null)
+            conn.setRequestProperty(DICTIONARY_HEADER, dictionary);
+    }
 
-        if (logger.isDebug()) {
-            final InputStream in;
-            if (conn.getResponseCode() >= 400) {
-                in = conn.getErrorStream();
+    /**
+     * Keeps the start of the body in memory until it is clear whether it reaches the threshold
+     * of the {@link Compressor} - only then the request stream is opened, compressed or not.
+     */
+    private final class ThresholdStream
+        extends OutputStream {
+
+        private final HttpURLConnection conn;
+        private final WireStream wire;
+        private ByteArrayOutputStream head;
+        private OutputStream out;
+
+        ThresholdStream(final HttpURLConnection conn, final WireStream wire) {
+            this.conn = conn;
+            this.wire = wire;
+            this.head = new ByteArrayOutputStream(compressor.getThreshold());
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (out != null) {
+                out.write(b, off, len);
             } else {
-                in = conn.getInputStream();
+                head.write(b, off, len);
+                if (head.size() >= compressor.getThreshold())
+                    open(true);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (out != null)
+                out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out == null) {
+                if (streaming)
+                    conn.setFixedLengthStreamingMode(head.size());
+                open(false);
             }
+            out.close();
+        }
+
+        private void open(final boolean gzip) throws IOException {
+            out = openStream(conn, wire, gzip);
+            head.writeTo(out);
+            head = null;
+        }
+    }
+
+    /**
+     * The request stream of the connection, opened on first use (so headers can be set until
+     * then); counts the bytes that go over the wire.
+     */
+    private static final class WireStream
+        extends OutputStream {
+
+        private final HttpURLConnection conn;
+        private OutputStream out;
+        private long count;
+
+        WireStream(final HttpURLConnection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            open().write(b);
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b) throws IOException {
+            open().write(b);
+            count += b.length;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            open().write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            open().flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            open().close();
+        }
 
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        private OutputStream open() throws IOException {
+            if (out == null) out = conn.getOutputStream();
+            return out;
+        }
+    }
+
+    /**
+     * Reads the response body to its end and closes the stream.
+     *
+     * @return whether the body was consumed completely
+     */
+    private boolean readResponse(final HttpURLConnection conn, final int statusCode) throws IOException {
+        final InputStream in = statusCode >= 400 ? conn.getErrorStream() : conn.getInputStream();
+        if (in == null) return true;
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        boolean complete = false;
+        try {
             final byte[] buffer = new byte[1024];
-            int length = 0;
+            int length;
             while ((length = in.read(buffer)) != -1) {
-                baos.write(buffer, 0, length);
+                if (baos.size() < MAX_DRAIN)
+                    baos.write(buffer, 0, length);
+                else
+                    break;
             }
-            final String body = new String(baos.toByteArray());
-
-            logger.debug("request was answered with code '{}' and content: {}", statusCode, body);
+            complete = length == -1;
+        } finally {
+            in.close();
         }
+
+        if (logger.isDebug())
+            logger.debug("request was answered with code '{}' and content: {}", statusCode,
+                new String(baos.toByteArray(), "UTF-8"));
+        return complete;
     }
 
     // FACTORY ====================================================================================
 
     protected HttpURLConnection createConnection(final String url) throws IOException {
-        return (HttpURLConnection) new URL(url).openConnection();
+        return (HttpURLConnection) getEndpoint(url).url.openConnection();
     }
 
+    protected <C extends CrashConfig> Compressor createCompressor(final C config) {
+        Dictionary dict = null;
+        final String source = config.getCompressionDictionary();
+        if (source != null && source.length() > 0) {
+            try {
+                dict = Dictionary.load(source);
+            } catch (IOException e) {
+                logger.warn("unable to load compression dictionary '{}'", source, e);
+            }
+        }
+        return new Compressor(config.getCompressionLevel(), config.getCompressionThreshold(),
+            config.getCompressionPool(), dict);
+    }
+
+    protected <C extends CrashConfig> DeliveryPolicy createDeliveryPolicy(final C config) {
+        return new DeliveryPolicy(config.getRetryMax(), config.getRetryBackoff(), config.getRetryMaxBackoff(),
+            config.getCircuitFailures(), config.getCircuitOpenTime());
+    }
+
+    protected FrameDictionary createFrameDictionary() {
+        return FrameDictionary.getShared();
+    }
+
+    /**
+     * Creates the key the server can use to recognize a request that was sent more than once.
+     */
+    protected String createIdempotencyKey() {
+        return keyPrefix + Long.toHexString(keySeq.incrementAndGet());
+    }
+
+    protected <C extends CrashConfig> DiskSpool createSpool(final C config) {
+        return new DiskSpool(config.getSpoolDir(), config.getSpoolSegmentSize(), config.getSpoolMaxSize(),
+            config.getSpoolMaxAge(), config.getSpoolInterval(), new DiskSpool.Delivery() {
+            @Override
+            public boolean deliver(final String contentType, final String key, final byte[] body,
+                                   final byte[] context) {
+                if (!policy.allowRequest()) return false;
+
+                final byte[] data;
+                try {
+                    data = compressor.recode(body);
+                } catch (IOException e) {
+                    logger.debug("dropping spooled data", e);
+                    return true;
+                }
+                int status = Sender.this.deliver(postURL, contentType, key, new Bytes(data));
+                if (status == 415 && Compressor.DEFLATE.equals(Compressor.getEncoding(data))) {
+                    compressor.disableDictionary();
+                    return false; // re-compressed with gzip on the next attempt
+                }
+                if (status == UNKNOWN_ENV) {
+                    // register the environment the body was written with (maybe before a restart)
+                    if (context == null) {
+                        logger.debug("dropping spooled data of an unknown environment");
+                        return true;
+                    }
+                    final int registered;
+                    try {
+                        registered = Sender.this.deliver(postURL + ENV_PATH, reportType, null,
+                            new Bytes(compressor.recode(context)));
+                    } catch (IOException e) {
+                        logger.debug("dropping spooled data", e);
+                        return true;
+                    }
+                    if (!isDelivered(registered)) return false; // try again later
+                    if (isAccepted(registered))
+                        status = Sender.this.deliver(postURL, contentType, key, new Bytes(data));
+                    if (status == UNKNOWN_ENV) {
+                        logger.debug("dropping spooled data of an unknown environment");
+                        return true;
+                    }
+                }
+                if (status == UNKNOWN_FRAMES) {
+                    // the frame IDs can only be resolved within the epoch of the body - which is
+                    // lost after a restart (then registering the current dictionary won't help)
+                    if (frames != null) {
+                        if (!registerFrames()) return false; // try again later
+                        status = Sender.this.deliver(postURL, contentType, key, new Bytes(data));
+                    }
+                    if (status == UNKNOWN_FRAMES) {
+                        logger.debug("dropping spooled data of an unknown frame dictionary");
+                        return true;
+                    }
+                }
+                return isDelivered(status);
+            }
+        }, config.getLogger(DiskSpool.class));
+    }
+
+    /**
+     * Creates a writer that encodes straight into the stream as UTF-8 (see {@link JSONEncoder}),
+     * re-using the encoder of a previous request if possible.
+     */
     protected Writer createWriter(final OutputStream stream) throws UnsupportedEncodingException {
-        return new OutputStreamWriter(stream, "UTF-8");
+        JSONEncoder encoder = spareEncoder.getAndSet(null);
+        if (encoder == null) encoder = new JSONEncoder();
+        return encoder.reset(stream).asWriter();
+    }
+
+    protected void releaseWriter(final Writer writer) {
+        if (writer instanceof JSONEncoder.EncoderWriter) {
+            final JSONEncoder encoder = ((JSONEncoder.EncoderWriter) writer).getEncoder();
+            spareEncoder.set(encoder.reset(null));
+        }
     }
 
 
     // GET ========================================================================================
 
+    /**
+     * @return the content type of a single report
+     */
+    protected String getReportType() {
+        return reportType;
+    }
+
     protected String getClientInfo() {
         return clientInfo;
     }
@@ -196,4 +931,28 @@ public class Sender {
     protected int getConnectionTimeout() {
         return connectionTimeout;
     }
+
+    protected boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * @return the resolved address of the endpoint, if known
+     */
+    public InetAddress getEndpointAddress() {
+        final Endpoint e = endpoint;
+        return e == null ? null : e.address;
+    }
+
+    public DeliveryPolicy getDeliveryPolicy() {
+        return policy;
+    }
+
+    public DiskSpool getSpool() {
+        return spool;
+    }
+
+    public Compressor getCompressor() {
+        return compressor;
+    }
 }
\ No newline at end of file
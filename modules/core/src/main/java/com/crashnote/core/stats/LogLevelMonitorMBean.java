@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.stats;
+
+/**
+ * Management interface of a {@link Monitor} that can also change the log level, i.e. one that
+ * was given a {@link Monitor.LogLevelControl}.
+ */
+public interface LogLevelMonitorMBean
+    extends MonitorMBean {
+
+    /**
+     * Changes the minimum level of the log events that are reported (e.g. 'ERROR' or 'WARN').
+     */
+    void setLogLevel(String level);
+}
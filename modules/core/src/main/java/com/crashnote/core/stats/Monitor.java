@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.stats;
+
+import com.crashnote.core.log.LogLog;
+import com.crashnote.core.model.types.LogLevel;
+import com.crashnote.core.report.Reporter;
+import com.crashnote.core.report.impl.admission.AdmissionControl;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+
+/**
+ * Exposes the {@link Statistics} of a {@link Reporter}'s pipeline as a JMX MBean, next to the
+ * settings that can be changed at runtime.
+ * <p/>
+ * The log level is up to the appenders: it can only be changed if they are given as a
+ * {@link LogLevelControl}, otherwise the operation is not exposed at all.
+ */
+public class Monitor
+    implements LogLevelMonitorMBean {
+
+    // CONST ======================================================================================
+
+    public static final String DOMAIN = "com.crashnote";
+
+
+    // VARS =======================================================================================
+
+    private final Reporter reporter;
+    private final Statistics stats;
+    private final LogLog logger;
+    private final LogLevelControl levelControl;
+
+    private volatile LogLevel logLevel;
+    private ObjectName name;
+
+
+    // SETUP ======================================================================================
+
+    public Monitor(final Reporter reporter, final LogLevel logLevel) {
+        this(reporter, logLevel, null);
+    }
+
+    /**
+     * @param levelControl applies a new log level to the appenders (null if it can't be changed)
+     */
+    public Monitor(final Reporter reporter, final LogLevel logLevel, final LogLevelControl levelControl) {
+        this.reporter = reporter;
+        this.stats = reporter.getStatistics();
+        this.logger = reporter.getLogger();
+        this.logLevel = logLevel;
+        this.levelControl = levelControl;
+    }
+
+
+    // LIFECYCLE ==================================================================================
+
+    /**
+     * Registers the MBean with the platform's MBean server, under a name of the given type that is
+     * unique for this instance.
+     *
+     * @return whether it was registered (JMX might be unavailable, e.g. on Google App Engine)
+     */
+    public synchronized boolean register(final String type) {
+        if (name != null) return true;
+        try {
+            final ObjectName on = new ObjectName(DOMAIN + ":type=" + type
+                + ",id=" + Integer.toHexString(System.identityHashCode(this)));
+            getServer().registerMBean(levelControl != null
+                ? new StandardMBean(this, LogLevelMonitorMBean.class)
+                : new StandardMBean(this, MonitorMBean.class), on);
+            name = on;
+            logger.debug("registered MBean '{}'", on);
+            return true;
+        } catch (Exception e) {
+            logger.debug("unable to register MBean", e);
+        } catch (LinkageError e) {
+            logger.debug("JMX is not available: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    public synchronized void unregister() {
+        if (name == null) return;
+        try {
+            getServer().unregisterMBean(name);
+        } catch (Exception e) {
+            logger.debug("unable to unregister MBean", e);
+        } finally {
+            name = null;
+        }
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * Something that applies the log level to the appenders.
+     */
+    public interface LogLevelControl {
+
+        void setLogLevel(LogLevel lvl);
+    }
+
+    @Override
+    public long getEventsReceived() {
+        return stats.getEventsReceived();
+    }
+
+    @Override
+    public long getEventsAccepted() {
+        return stats.getEventsAccepted();
+    }
+
+    @Override
+    public long getEventsRejected() {
+        return stats.getEventsRejected();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return reporter.getProcessor().getQueueSize();
+    }
+
+    @Override
+    public long getSessionsDropped() {
+        return stats.getSessionsDropped();
+    }
+
+    @Override
+    public long getReports() {
+        return stats.getReports();
+    }
+
+    @Override
+    public long getRequests() {
+        return stats.getRequests();
+    }
+
+    @Override
+    public long getRequestsFailed() {
+        return stats.getRequestsFailed();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return stats.getBytesSent();
+    }
+
+    @Override
+    public double getRequestSizeMean() {
+        return stats.getRequestSize().getMean();
+    }
+
+    @Override
+    public long getRequestSizeMax() {
+        return stats.getRequestSize().getMax();
+    }
+
+    @Override
+    public double getRequestLatencyMeanMillis() {
+        return stats.getRequestLatency().getMean() / 1000;
+    }
+
+    @Override
+    public double getRequestLatencyMedianMillis() {
+        return stats.getRequestLatency().getQuantile(0.5) / 1000.0;
+    }
+
+    @Override
+    public double getRequestLatency99thMillis() {
+        return stats.getRequestLatency().getQuantile(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getRequestLatencyMaxMillis() {
+        return stats.getRequestLatency().getMax() / 1000.0;
+    }
+
+    @Override
+    public Date getStatisticsSince() {
+        return new Date(stats.getSince());
+    }
+
+    @Override
+    public void resetStatistics() {
+        stats.reset();
+        logger.info("statistics were reset");
+    }
+
+    @Override
+    public String getLogLevel() {
+        return logLevel == null ? null : logLevel.name();
+    }
+
+    @Override
+    public void setLogLevel(final String level) {
+        if (levelControl == null)
+            throw new IllegalStateException("the log level can not be changed");
+        final LogLevel lvl = LogLevel.valueOf(level.trim().toUpperCase());
+        levelControl.setLogLevel(lvl);
+        logLevel = lvl;
+        logger.info("log level was changed to {}", lvl);
+    }
+
+    @Override
+    public double getSampleProbability() {
+        final AdmissionControl admission = reporter.getAdmissionControl();
+        return admission == null ? 1.0 : admission.getSampleProbability();
+    }
+
+    @Override
+    public long getSampleTarget() {
+        final AdmissionControl admission = reporter.getAdmissionControl();
+        return admission == null ? 0 : admission.getSampleTarget();
+    }
+
+    @Override
+    public void setSampleTarget(final long targetPerSecond) {
+        final AdmissionControl admission = reporter.getAdmissionControl();
+        if (admission == null)
+            throw new IllegalStateException("admission control is disabled");
+        admission.setSampleTarget(targetPerSecond);
+        logger.info("sample target was changed to {} per second", targetPerSecond);
+    }
+
+
+    // SHARED =====================================================================================
+
+    protected MBeanServer getServer() {
+        return ManagementFactory.getPlatformMBeanServer();
+    }
+
+
+    // GET ========================================================================================
+
+    /**
+     * @return the name it is registered under (null if it is not)
+     */
+    public synchronized ObjectName getName() {
+        return name;
+    }
+}
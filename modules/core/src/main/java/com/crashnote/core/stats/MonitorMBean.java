@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.stats;
+
+import java.util.Date;
+
+/**
+ * Management interface of the {@link Monitor}: live statistics of the pipeline and the settings
+ * that can be changed at runtime.
+ */
+public interface MonitorMBean {
+
+    // ==== Events
+
+    long getEventsReceived();
+
+    long getEventsAccepted();
+
+    long getEventsRejected();
+
+    // ==== Sessions & Reports
+
+    int getQueueSize();
+
+    long getSessionsDropped();
+
+    long getReports();
+
+    // ==== Requests
+
+    long getRequests();
+
+    long getRequestsFailed();
+
+    long getBytesSent();
+
+    double getRequestSizeMean();
+
+    long getRequestSizeMax();
+
+    double getRequestLatencyMeanMillis();
+
+    double getRequestLatencyMedianMillis();
+
+    double getRequestLatency99thMillis();
+
+    double getRequestLatencyMaxMillis();
+
+    Date getStatisticsSince();
+
+    /**
+     * Sets all counters back to zero.
+     */
+    void resetStatistics();
+
+    // ==== Settings
+
+    String getLogLevel();
+
+    double getSampleProbability();
+
+    long getSampleTarget();
+
+    /**
+     * Changes the number of errors per second above which they are sampled (0 = no sampling).
+     */
+    void setSampleTarget(long targetPerSecond);
+}
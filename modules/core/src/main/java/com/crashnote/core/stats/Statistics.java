@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.stats;
+
+import com.crashnote.core.model.data.Histogram;
+import com.crashnote.core.model.data.StripedCounter;
+
+/**
+ * Live statistics of a pipeline (reporter, processors and sender that share a configuration):
+ * how many events were received, admitted or rejected, how many sessions were dropped, how many
+ * reports and requests were made, their size and latency.
+ * <p/>
+ * Counters are striped (see {@link StripedCounter}), recording neither locks nor allocates.
+ */
+public class Statistics {
+
+    // VARS =======================================================================================
+
+    // events
+    private final StripedCounter eventsReceived;
+    private final StripedCounter eventsAccepted;
+    private final StripedCounter eventsRejected;
+
+    // sessions & reports
+    private final StripedCounter sessionsDropped;
+    private final StripedCounter reports;
+
+    // requests
+    private final StripedCounter requests;
+    private final StripedCounter requestsFailed;
+    private final StripedCounter bytesSent;
+    private final Histogram requestLatency;
+    private final Histogram requestSize;
+
+    private volatile long since;
+
+
+    // SETUP ======================================================================================
+
+    public Statistics() {
+        this.eventsReceived = new StripedCounter();
+        this.eventsAccepted = new StripedCounter();
+        this.eventsRejected = new StripedCounter();
+        this.sessionsDropped = new StripedCounter();
+        this.reports = new StripedCounter();
+        this.requests = new StripedCounter();
+        this.requestsFailed = new StripedCounter();
+        this.bytesSent = new StripedCounter();
+        this.requestLatency = new Histogram();
+        this.requestSize = new Histogram();
+        this.since = System.currentTimeMillis();
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    public void eventReceived() {
+        eventsReceived.increment();
+    }
+
+    public void eventAccepted() {
+        eventsAccepted.increment();
+    }
+
+    public void eventRejected() {
+        eventsRejected.increment();
+    }
+
+    public void sessionDropped() {
+        sessionsDropped.increment();
+    }
+
+    public void reportCreated() {
+        reports.increment();
+    }
+
+    /**
+     * @param bytes   size of the request body on the wire
+     * @param nanos   time from opening the connection until the response arrived
+     * @param success whether the endpoint was reachable and did not fail
+     */
+    public void requestSent(final long bytes, final long nanos, final boolean success) {
+        requests.increment();
+        if (!success) requestsFailed.increment();
+        if (bytes > 0) {
+            bytesSent.add(bytes);
+            requestSize.record(bytes);
+        }
+        requestLatency.record(nanos / 1000);
+    }
+
+    /**
+     * Sets all counters back to zero.
+     */
+    public void reset() {
+        eventsReceived.reset();
+        eventsAccepted.reset();
+        eventsRejected.reset();
+        sessionsDropped.reset();
+        reports.reset();
+        requests.reset();
+        requestsFailed.reset();
+        bytesSent.reset();
+        requestLatency.reset();
+        requestSize.reset();
+        since = System.currentTimeMillis();
+    }
+
+
+    // GET ========================================================================================
+
+    public long getEventsReceived() {
+        return eventsReceived.sum();
+    }
+
+    public long getEventsAccepted() {
+        return eventsAccepted.sum();
+    }
+
+    public long getEventsRejected() {
+        return eventsRejected.sum();
+    }
+
+    public long getSessionsDropped() {
+        return sessionsDropped.sum();
+    }
+
+    public long getReports() {
+        return reports.sum();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getRequestsFailed() {
+        return requestsFailed.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * @return latency of the requests in microseconds
+     */
+    public Histogram getRequestLatency() {
+        return requestLatency;
+    }
+
+    /**
+     * @return size of the request bodies in bytes
+     */
+    public Histogram getRequestSize() {
+        return requestSize;
+    }
+
+    /**
+     * @return time of the creation or the last reset (epoch millis)
+     */
+    public long getSince() {
+        return since;
+    }
+}
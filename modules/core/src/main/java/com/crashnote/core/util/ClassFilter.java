@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Matches class names against a list of patterns with '*' as wildcard (e.g. 'sun.reflect.*' or
+ * '*$$EnhancerBy*'). The patterns are compiled up-front: plain prefix and infix patterns are
+ * checked with simple string operations, only the others fall back to regular expressions.
+ */
+public class ClassFilter {
+
+    // VARS =======================================================================================
+
+    private final String[] prefixes;
+    private final String[] infixes;
+    private final Pattern[] patterns;
+
+
+    // SETUP ======================================================================================
+
+    public ClassFilter(final List<String> globs) {
+        final List<String> pre = new ArrayList<String>();
+        final List<String> in = new ArrayList<String>();
+        final List<Pattern> pat = new ArrayList<Pattern>();
+        if (globs != null) {
+            for (final String glob : globs) {
+                final int wildcards = count(glob, '*');
+                if (wildcards == 0)
+                    pat.add(Pattern.compile(Pattern.quote(glob)));
+                else if (wildcards == 1 && glob.endsWith("*"))
+                    pre.add(glob.substring(0, glob.length() - 1));
+                else if (wildcards == 2 && glob.length() > 1 && glob.startsWith("*") && glob.endsWith("*"))
+                    in.add(glob.substring(1, glob.length() - 1));
+                else
+                    pat.add(compile(glob));
+            }
+        }
+        this.prefixes = pre.toArray(new String[pre.size()]);
+        this.infixes = in.toArray(new String[in.size()]);
+        this.patterns = pat.toArray(new Pattern[pat.size()]);
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    public boolean matches(final String className) {
+        for (final String prefix : prefixes)
+            if (className.startsWith(prefix)) return true;
+        for (final String infix : infixes)
+            if (className.contains(infix)) return true;
+        for (final Pattern pattern : patterns)
+            if (pattern.matcher(className).matches()) return true;
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return prefixes.length == 0 && infixes.length == 0 && patterns.length == 0;
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private static int count(final String s, final char c) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++)
+            if (s.charAt(i) == c) n++;
+        return n;
+    }
+
+    private static Pattern compile(final String glob) {
+        final StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int i = glob.indexOf('*'); i != -1; i = glob.indexOf('*', start)) {
+            if (i > start) regex.append(Pattern.quote(glob.substring(start, i)));
+            regex.append(".*");
+            start = i + 1;
+        }
+        if (start < glob.length()) regex.append(Pattern.quote(glob.substring(start)));
+        return Pattern.compile(regex.toString());
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.core.util;
+
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resolves the host's network identity (address, name and MAC address) in the background.
+ *
+ * The lookup of the local host may involve a reverse DNS query which can block for seconds on
+ * badly configured hosts. So the identity is resolved asynchronously on creation, cached for a
+ * given time-to-live and then refreshed in the background on the next access. A failed lookup is
+ * retried after a short delay instead. The getters never block: they return the last known value,
+ * or a placeholder while nothing has been resolved yet.
+ */
+public class HostResolver {
+
+    // CONST ======================================================================================
+
+    public static final long DEFAULT_TTL = 10 * 60 * 1000L;
+
+    public static final long DEFAULT_RETRY_DELAY = 30 * 1000L;
+
+    /**
+     * placeholder for the host name and address while they are being resolved
+     */
+    public static final String UNKNOWN = "unknown";
+
+
+    // VARS =======================================================================================
+
+    private static HostResolver shared;
+
+    private final long ttl;
+    private final long retryDelay;
+    private final AtomicBoolean refreshing;
+    private final CountDownLatch resolved;
+
+    private volatile Identity identity;
+    private volatile long expiresAt;
+
+
+    // SETUP ======================================================================================
+
+    public HostResolver(final long ttl) {
+        this(ttl, DEFAULT_RETRY_DELAY);
+    }
+
+    public HostResolver(final long ttl, final long retryDelay) {
+        this.ttl = ttl > 0 ? ttl : DEFAULT_TTL;
+        this.retryDelay = Math.min(this.ttl, retryDelay > 0 ? retryDelay : DEFAULT_RETRY_DELAY);
+        this.refreshing = new AtomicBoolean();
+        this.resolved = new CountDownLatch(1);
+    }
+
+    /**
+     * Returns the resolver shared by all instances in this JVM; creates and starts it on first use
+     * (thus the time-to-live of the first call wins).
+     */
+    public static synchronized HostResolver getShared(final long ttl) {
+        if (shared == null) {
+            shared = new HostResolver(ttl);
+            shared.refresh();
+        }
+        return shared;
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    public String getHostAddress() {
+        final Identity id = current();
+        return id == null || id.address == null ? UNKNOWN : id.address;
+    }
+
+    public String getHostName() {
+        final Identity id = current();
+        return id == null || id.name == null ? UNKNOWN : id.name;
+    }
+
+    public Long getMacAddress() {
+        final Identity id = current();
+        return id == null ? null : id.mac;
+    }
+
+    /**
+     * Starts to resolve the identity in a background thread, unless that is already in progress.
+     */
+    public void refresh() {
+        if (refreshing.compareAndSet(false, true)) {
+            final Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        resolve();
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            }, "crashnote-resolver");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /**
+     * Waits until the first attempt to resolve the identity has finished.
+     *
+     * @return whether the attempt finished within the given time
+     */
+    public boolean await(final long timeoutMillis) {
+        try {
+            return resolved.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public boolean isResolved() {
+        return identity != null;
+    }
+
+
+    // SHARED =====================================================================================
+
+    /**
+     * Looks up the local host, may block for a long time.
+     */
+    protected InetAddress lookup() throws Exception {
+        return InetAddress.getLocalHost();
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private Identity current() {
+        final Identity id = identity;
+        if (System.currentTimeMillis() >= expiresAt) refresh();
+        return id;
+    }
+
+    private void resolve() {
+        try {
+            final InetAddress addr = lookup();
+            identity = new Identity(addr.getHostAddress(), addr.getHostName(), NetUtil.getMacAddress(addr));
+            expiresAt = System.currentTimeMillis() + ttl;
+        } catch (Throwable ignored) {
+            // keep the last known identity and try again soon
+            expiresAt = System.currentTimeMillis() + retryDelay;
+        } finally {
+            resolved.countDown();
+        }
+    }
+
+    private static final class Identity {
+
+        private final String address;
+        private final String name;
+        private final Long mac;
+
+        private Identity(final String address, final String name, final Long mac) {
+            this.address = address;
+            this.name = name;
+            this.mac = mac;
+        }
+    }
+}
@@ -15,17 +15,118 @@
  */
 package com.crashnote.core.util;
 
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Utility class for generating (fairly) unique numeric values
+ * <p/>
+ * An ID is a positive 64-bit number that is roughly ordered by time, made up of (from the most
+ * significant bits):
+ * <ul>
+ * <li>41 bits: milliseconds since 2013-01-01 (lasts until 2082)</li>
+ * <li>10 bits: node - random per process</li>
+ * <li>12 bits: sequence within the millisecond</li>
+ * </ul>
+ * Each thread generates its IDs from a block of 16 sequence numbers that it claims from the
+ * process-wide sequence (one compare-and-set per block), so the IDs of a process are unique no
+ * matter how many threads there are - or have been. A thread claims a new block once its block
+ * is used up or the clock moved on. The IDs never go back in time: if the clock does, or if more
+ * than 4096 IDs are needed per millisecond, it continues in the (logically) next millisecond.
  */
 public class IDUtil {
 
+    // CONST ======================================================================================
+
+    public static final long EPOCH = 1356998400000L; // 2013-01-01T00:00:00Z
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 10;
+    private static final int TIME_SHIFT = SEQUENCE_BITS + NODE_BITS;
+
+    private static final int SEQUENCE_MASK = (1 << SEQUENCE_BITS) - 1;
+    private static final int NODE_MASK = (1 << NODE_BITS) - 1;
+    private static final long TIME_MASK = (1L << (63 - TIME_SHIFT)) - 1;
+
+    private static final int BLOCK_SIZE = 16;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+
+    // VARS =======================================================================================
+
+    private static final long NODE = (long) (new SecureRandom().nextInt() & NODE_MASK) << SEQUENCE_BITS;
+
+    // time and sequence of the next block that is free (i.e. without the node)
+    private static final AtomicLong FREE = new AtomicLong();
+
+    private static final ThreadLocal<Block> BLOCK = new ThreadLocal<Block>() {
+        @Override
+        protected Block initialValue() {
+            return new Block();
+        }
+    };
+
+
     // INTERFACE ==================================================================================
 
+    /**
+     * @return a new, time-ordered ID (see above)
+     */
+    public static long nextID() {
+        final long next = BLOCK.get().next();
+        return (((next >>> SEQUENCE_BITS) & TIME_MASK) << TIME_SHIFT) | NODE | (next & SEQUENCE_MASK);
+    }
+
     /**
      * Create a unique ID (only using 64 bit, completely sufficient)
      */
     public static Long createUID() {
-        return java.util.UUID.randomUUID().getMostSignificantBits();
+        return nextID();
+    }
+
+    /**
+     * @return the ID as 16 hex digits, so the text sorts like the number
+     */
+    public static String format(final long id) {
+        final char[] buf = new char[16];
+        for (int i = 15; i >= 0; i--)
+            buf[i] = HEX[(int) (id >>> ((15 - i) << 2)) & 0xF];
+        return new String(buf);
+    }
+
+    /**
+     * @return when the ID was generated (epoch milliseconds)
+     */
+    public static long getTimestamp(final long id) {
+        return (id >>> TIME_SHIFT) + EPOCH;
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private static final class Block {
+
+        private long next; // time and sequence
+        private long end;
+
+        long next() {
+            final long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+            if (next >= end || now > next)
+                claim(now);
+            return next++;
+        }
+
+        private void claim(final long now) {
+            while (true) {
+                final long free = FREE.get();
+                final long start = now > free ? now : free; // (a full sequence carries into the time)
+                if (FREE.compareAndSet(free, start + BLOCK_SIZE)) {
+                    next = start;
+                    end = start + BLOCK_SIZE;
+                    return;
+                }
+            }
+        }
     }
 }
@@ -42,15 +42,23 @@ public class NetUtil {
         }
     }
 
+    public static Long getMacAddress() {
+        try {
+            return getMacAddress(getLocalHost());
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
     /**
      * Reads the MAC address of the machine. Since this only works on JDK 1.6+ it is wrapped in a
      * big try/catch block and returns null for older JDKs.
      *
+     * @param addr the address of the network interface
      * @return numeric value describing the mac address
      */
-    public static Long getMacAddress() {
+    public static Long getMacAddress(final InetAddress addr) {
         try {
-            final InetAddress addr = getLocalHost();
             final NetworkInterface ni = NetworkInterface.getByInetAddress(addr);
             final byte[] mac = ni.getHardwareAddress();
             return ((long) mac[5] & 0xff)
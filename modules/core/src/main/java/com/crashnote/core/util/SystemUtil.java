@@ -26,6 +26,19 @@ public class SystemUtil {
 
     private final static int MB = 1024 * 1024;
 
+    private final HostResolver resolver;
+
+
+    // SETUP ======================================================================================
+
+    public SystemUtil() {
+        this(HostResolver.getShared(HostResolver.DEFAULT_TTL));
+    }
+
+    public SystemUtil(final HostResolver resolver) {
+        this.resolver = resolver;
+    }
+
 
     // INTERFACE ==================================================================================
 
@@ -79,12 +92,18 @@ public class SystemUtil {
 
     // ==== Network
 
+    /**
+     * @return the host's IP address, or a placeholder while it is still being resolved
+     */
     public String getHostAddress() {
-        return NetUtil.getHostAddress();
+        return resolver.getHostAddress();
     }
 
+    /**
+     * @return the host's name, or a placeholder while it is still being resolved
+     */
     public String getHostName() {
-        return NetUtil.getHostName();
+        return resolver.getHostName();
     }
 
     // ==== Runtime
@@ -111,8 +130,11 @@ public class SystemUtil {
         return Runtime.getRuntime().availableProcessors();
     }
 
+    /**
+     * @return the host's MAC address, or null while it is still being resolved
+     */
     public Long getSystemId() {
-        return NetUtil.getMacAddress();
+        return resolver.getMacAddress();
     }
 
     // ==== Locale
@@ -154,4 +176,11 @@ public class SystemUtil {
         return getProperty("os.version");
     }
 
+
+    // GET ========================================================================================
+
+    public HostResolver getHostResolver() {
+        return resolver;
+    }
+
 }
@@ -15,6 +15,7 @@
  */
 package com.crashnote.test.core.defs
 
+import com.crashnote.core.build.Builder
 import com.crashnote.core.log.{LogLogFactory, LogLog}
 import com.crashnote.core.config.CrashConfig
 import com.crashnote.test.base.defs.BaseMockSpec
@@ -32,6 +33,7 @@ trait ConfigEnv {
         val lfact = new LogLogFactory(m_conf)
         m_conf.getLogger(anyClass) returns lfact.getLogger("")
         m_conf.getLogger(anyString) returns lfact.getLogger("")
+        m_conf.getBuilder returns new Builder
         m_conf
     }
 
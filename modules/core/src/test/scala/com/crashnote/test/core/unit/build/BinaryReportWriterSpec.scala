@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.build
+
+import java.io.{ByteArrayOutputStream, IOException}
+import java.util.Date
+import com.crashnote.test.base.defs.UnitSpec
+import com.crashnote.core.build.{BinaryBuilder, Builder}
+import com.crashnote.core.build.impl.{BinaryDecoder, BinaryEncoder, BinaryReportWriter, JSONDataObject}
+import com.crashnote.external.json.JSONValue
+
+class BinaryReportWriterSpec
+  extends UnitSpec {
+
+  "Binary Report Writer" should {
+
+    "write nested objects and arrays" >> {
+      val res = write { w =>
+        w.beginObject()
+        w.field("a", "x").field("b", 1L).field("c", 0.5).field("n", -300L)
+        w.beginArray("d").value("y").value(Integer.valueOf(2)).value(java.lang.Boolean.TRUE).endArray()
+        w.beginObject("e").endObject()
+        w.endObject()
+      }
+      json(res) === """{"a":"x","b":1,"c":0.5,"n":-300,"d":["y",2,true],"e":{}}"""
+    }
+
+    "skip null values" >> {
+      val res = write { w =>
+        w.beginObject().field("a", null: String).field("b", null: AnyRef)
+        w.beginArray("c").value(null: String).endArray()
+        w.endObject()
+      }
+      json(res) === """{"c":[]}"""
+    }
+
+    "write data objects" >> {
+      val obj = new JSONDataObject
+      obj.put("k", "v")
+      obj.put("l", java.lang.Long.MIN_VALUE)
+      obj.put("m", java.lang.Long.MAX_VALUE)
+
+      json(write(_.beginObject().field("o", obj).endObject())) ===
+        "{\"o\":" + obj.toJSONString + "}"
+    }
+
+    "write strings of any length and content" >> {
+      val s = "a\"b\\c/d\n\u0001  äöü 😀 end"
+      val long = "x" * 20000 + "ü"
+      val res = write(_.beginArray().value(s).value(long).value("").endArray())
+      BinaryDecoder.decode(res) === java.util.Arrays.asList(s, long, "")
+
+      val bos = new ByteArrayOutputStream()
+      val w = new BinaryReportWriter(bos)
+      w.beginArray().value(s).value(long).value("").endArray().flush()
+      bos.toByteArray === res
+    }
+
+    "refer to repeated strings" >> {
+      val once = write(_.beginArray().value("com.example.Service").endArray())
+      val twice = write(_.beginArray().value("com.example.Service").value("com.example.Service").endArray())
+      twice.length === once.length + 2
+
+      BinaryDecoder.decode(twice) === java.util.Arrays.asList("com.example.Service", "com.example.Service")
+    }
+
+    "write stack frames like the JSON writer" >> {
+      val frame = new StackTraceElement("com.Foo", "bar", "Foo.java", 42)
+      val native = new StackTraceElement("com.Foo", "baz", null, -2)
+      val res = write(_.beginArray().value(frame).value(native).endArray())
+      BinaryDecoder.decode(res) === java.util.Arrays.asList("com.Foo:Foo.java:bar:42", "com.Foo:null:baz:-2")
+    }
+
+    "write timestamps as raw values" >> {
+      val res = write(_.beginObject().timestamp("at", 946706400000L).endObject())
+      BinaryDecoder.decode(res).asInstanceOf[java.util.Map[_, _]].get("at") === new Date(946706400000L)
+      res.length === BinaryEncoder.MAGIC.length + 1 + 4 + 9 + 1
+
+      val sw = new java.io.StringWriter()
+      new Builder().createReportWriter(sw).beginObject().timestamp("at", 946706400000L).endObject()
+      sw.toString === """{"at":"2000-01-01T06:00Z"}"""
+    }
+
+    "write pre-encoded symbols" >> {
+      val sym = new Builder().createSymbol("a/b")
+      BinaryDecoder.decode(write(_.value(sym))) === "a/b"
+    }
+
+    "write several documents in a row" >> {
+      val bos = new ByteArrayOutputStream()
+      val b = new BinaryBuilder
+      b.createReportWriter(bos).beginObject().field("n", 1L).endObject().flush()
+      b.createReportWriter(bos).beginObject().field("n", 2L).endObject().flush()
+      BinaryDecoder.decodeAll(bos.toByteArray).toString === "[{n=1}, {n=2}]"
+    }
+
+    "fail on unbalanced containers" >> {
+      write(_.endObject()) must throwA[IllegalStateException]
+    }
+
+    "fail to decode invalid data" >> {
+      BinaryDecoder.decode("{}".getBytes("UTF-8")) must throwA[IOException]
+      BinaryDecoder.decode(BinaryEncoder.MAGIC) must throwA[IOException]
+      BinaryDecoder.decode(BinaryEncoder.MAGIC ++ Array[Byte](BinaryEncoder.STRING_REF.toByte, 0)) must throwA[IOException]
+      BinaryDecoder.decode(BinaryEncoder.MAGIC ++ Array[Byte](BinaryEncoder.END.toByte)) must throwA[IOException]
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  def write(fn: BinaryReportWriter => Any) = {
+    val enc = new BinaryEncoder()
+    fn(new BinaryReportWriter(enc))
+    enc.toByteArray
+  }
+
+  def json(data: Array[Byte]) =
+    JSONValue.toJSONString(BinaryDecoder.decode(data))
+}
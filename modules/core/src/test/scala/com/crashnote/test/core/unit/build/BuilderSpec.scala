@@ -41,6 +41,20 @@ class BuilderSpec
       arr.isEmpty === true
       arr must haveInterface[DataArray]
     }
+
+    "freeze data object" >> {
+      val obj = b.createDataObj()
+      obj.put("name", "test")
+
+      val res = b.freezeDataObj(obj)
+      res.get("name") === "test"
+      res.toString === """{"name":"test"}"""
+      res.put("other", "value") must throwA[UnsupportedOperationException]
+
+      val sw = new java.io.StringWriter()
+      res.streamTo(sw)
+      sw.toString === """{"name":"test"}"""
+    }
   }
 
 }
\ No newline at end of file
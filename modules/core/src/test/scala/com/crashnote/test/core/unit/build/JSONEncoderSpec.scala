@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.build
+
+import java.io.{ByteArrayOutputStream, OutputStreamWriter}
+import java.nio.ByteBuffer
+import scala.collection.JavaConversions._
+import com.crashnote.test.base.defs.UnitSpec
+import com.crashnote.core.build.impl.{JSONReportWriter, JSONDataArray, JSONDataObject}
+import com.crashnote.core.build.Builder
+import com.crashnote.external.json.{JSONValue, JSONEncoder}
+
+class JSONEncoderSpec
+  extends UnitSpec {
+
+  "JSON Encoder" should {
+
+    "encode like the JSON writers" >> {
+      "strings" >> {
+        val strings = Seq("", "plain", "a\"b\\c/d", "\b\f\n\r\t\u0000\u001f\u007f\u0080\u009f",
+          "äöü €", " €⃿", "emoji 😀 end", "lone \ud83d high", "lone \ude00 low",
+          "x" * 20000)
+        strings.forall(s => encode(s) === expected(s))
+      }
+      "numbers" >> {
+        val numbers = Seq[AnyRef](Int.box(0), Int.box(-1), Long.box(Long.MaxValue), Long.box(Long.MinValue),
+          Short.box(7), Byte.box(-8), Double.box(1.0), Double.box(-0.5e-10), Double.box(Double.NaN),
+          Float.box(Float.PositiveInfinity), Float.box(2.5f), BigDecimal("12.345").bigDecimal)
+        numbers.forall(n => encode(n) === expected(n))
+      }
+      "containers" >> {
+        val obj = new JSONDataObject
+        obj.put("name", "test")
+        obj.put("bool", true)
+        val arr = new JSONDataArray
+        arr.add("a")
+        arr.add(Long.box(1))
+        arr.add(new JSONDataObject)
+        obj.put("arr", arr)
+        obj.put("map", new java.util.HashMap[String, AnyRef](Map("k" -> "v")))
+        obj.put("list", new java.util.ArrayList[AnyRef](List("x", null)))
+
+        encode(obj) === expected(obj)
+      }
+      "frozen data objects" >> {
+        val obj = new JSONDataObject
+        obj.put("name", "täst")
+        val frozen = new Builder().freezeDataObj(obj)
+
+        encode(frozen) === expected(frozen)
+      }
+    }
+
+    "write into a stream through a small buffer" >> {
+      val s = ("äbc\"" * 5000) + "😀"
+      val bos = new ByteArrayOutputStream()
+      val enc = new JSONEncoder(bos, 16)
+      enc.writeString(s)
+      enc.flush()
+
+      bos.toByteArray.toSeq === expected(s).toSeq
+    }
+
+    "write into a byte buffer" >> {
+      val enc = new JSONEncoder()
+      enc.writeString("test")
+      val bb = ByteBuffer.allocate(16)
+      enc.writeTo(bb)
+
+      bb.position === 6
+      enc.size === 0
+    }
+
+    "be reusable" >> {
+      val enc = new JSONEncoder()
+      enc.writeString("first")
+      enc.reset(null)
+      enc.writeLong(42)
+
+      new String(enc.toByteArray, "UTF-8") === "42"
+    }
+
+    "join surrogate pairs split across writes" >> {
+      val enc = new JSONEncoder()
+      val w = enc.asWriter()
+      w.write("a\ud83d")
+      w.write("\ude00b")
+
+      enc.toByteArray.toSeq === "a😀b".getBytes("UTF-8").toSeq
+    }
+
+    "serve the JSON objects' stream option" >> {
+      val obj = new JSONDataObject
+      obj.put("key", "välue")
+      val bos = new ByteArrayOutputStream()
+      obj.writeJSONString(bos)
+
+      new String(bos.toByteArray, "UTF-8") === obj.toJSONString
+    }
+
+    "serve the report writer" >> {
+      val enc = new JSONEncoder()
+      val w = new JSONReportWriter(enc.asWriter())
+      w.beginObject().field("a", "x/y").field("b", 3L).field("c", 0.5)
+      w.beginArray("d").value(new StackTraceElement("com.Foo", "bar", "Foo.java", 42)).endArray()
+      w.endObject()
+
+      new String(enc.toByteArray, "UTF-8") === """{"a":"x\/y","b":3,"c":0.5,"d":["com.Foo:Foo.java:bar:42"]}"""
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  def encode(value: AnyRef) = {
+    val enc = new JSONEncoder()
+    enc.writeValue(value)
+    enc.toByteArray.toSeq
+  }
+
+  def expected(value: AnyRef) = {
+    val bos = new ByteArrayOutputStream()
+    val out = new OutputStreamWriter(bos, "UTF-8")
+    JSONValue.writeJSONString(value, out)
+    out.close()
+    bos.toByteArray.toSeq
+  }
+}
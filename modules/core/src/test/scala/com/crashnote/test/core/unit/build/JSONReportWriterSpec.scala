@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.build
+
+import java.io.StringWriter
+import com.crashnote.test.base.defs.UnitSpec
+import com.crashnote.core.build.impl.{JSONDataObject, JSONReportWriter}
+import com.crashnote.core.build.Builder
+import com.crashnote.external.json.JSONValue
+
+class JSONReportWriterSpec
+  extends UnitSpec {
+
+  "JSON Report Writer" should {
+
+    "write nested objects and arrays" >> {
+      val res = write { w =>
+        w.beginObject()
+        w.field("a", "x").field("b", 1L).field("c", 0.5)
+        w.beginArray("d").value("y").value(Integer.valueOf(2)).endArray()
+        w.beginObject("e").endObject()
+        w.endObject()
+      }
+      res === """{"a":"x","b":1,"c":0.5,"d":["y",2],"e":{}}"""
+    }
+
+    "skip null values" >> {
+      val res = write { w =>
+        w.beginObject().field("a", null: String).field("b", null: AnyRef)
+        w.beginArray("c").value(null: String).endArray()
+        w.endObject()
+      }
+      res === """{"c":[]}"""
+    }
+
+    "write data objects" >> {
+      val obj = new JSONDataObject
+      obj.put("k", "v")
+
+      write(_.beginObject().field("o", obj).endObject()) === """{"o":{"k":"v"}}"""
+    }
+
+    "escape strings like the JSON data objects" >> {
+      val s = "a\"b\\c/d\b\f\n\r\t\u0001\u007f  äöü end"
+      write(_.value(s)) === JSONValue.toJSONString(s)
+    }
+
+    "write stack frames" >> {
+      val frame = new StackTraceElement("com.Foo", "bar", "Foo.java", 42)
+      write(_.value(frame)) === "\"com.Foo:Foo.java:bar:42\""
+
+      val native = new StackTraceElement("com.Foo", "baz", null, -2)
+      write(_.value(native)) === "\"com.Foo:null:baz:-2\""
+    }
+
+    "write pre-encoded symbols" >> {
+      val sym = new Builder().createSymbol("a/b")
+      sym.toString === "a/b"
+      write(_.value(sym)) === "\"a\\/b\""
+    }
+
+    "fail on unbalanced containers" >> {
+      write(_.endObject()) must throwA[IllegalStateException]
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  def write(fn: JSONReportWriter => Any) = {
+    val out = new StringWriter()
+    fn(new JSONReportWriter(out))
+    out.toString
+  }
+}
@@ -19,6 +19,9 @@ import com.crashnote.core.collect.Collector
 import com.crashnote.core.collect.impl._
 import com.crashnote.core.report.impl.session.LocalLogSession
 import com.crashnote.core.build.Builder
+import com.crashnote.core.model.log.LogAggregate
+import com.crashnote.core.model.data.{DataArray, DataObject}
+import scala.collection.JavaConversions._
 import com.crashnote.test.core.defs.TargetMockSpec
 
 class CollectorSpec
@@ -53,6 +56,23 @@ class CollectorSpec
         one(m_logColl).collect(evts)
         one(m_envColl).collect()
       }
+      r.get("aggregate") === null
+    }
+
+    "collect aggregate of session" >> new Started() {
+      val s = new LocalLogSession()
+      s.addEvent(newLogEvt())
+      val agg = new LogAggregate(255L, 1)
+      agg.add(946706400000L, Map[String, AnyRef]("user" -> "1"))
+      agg.add(946706460000L, Map[String, AnyRef]("user" -> "2"))
+      s.setAggregate(agg)
+
+      val r = target.collectLog(s).get("aggregate").asInstanceOf[DataObject]
+      r.get("fingerprint") === "ff"
+      r.get("count") === 2
+      r.get("firstSeenAt") === "2000-01-01T06:00Z"
+      r.get("lastSeenAt") === "2000-01-01T06:01Z"
+      r.get("samples").asInstanceOf[DataArray].size() === 1
     }
   }
 
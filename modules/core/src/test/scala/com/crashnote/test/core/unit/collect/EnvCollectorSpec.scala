@@ -65,6 +65,37 @@ class EnvCollectorSpec
       //dev.get("ram") === 128
       //dev.get("ram_free") === 64
     }
+
+    "cache the snapshot" >> new Mock() {
+      val res = target.collect()
+      target.collect() must beTheSameAs(res)
+      there was one(m_sysUtil).getOSName
+    }
+
+    "refresh the snapshot" >> {
+      "when the timezone changes" >> new Mock() {
+        val res = target.collect()
+        m_sysUtil.getTimezoneId returns "Paris"
+
+        target.collect() must not beTheSameAs(res)
+        target.collect().get("system").asInstanceOf[DataObject].get("timezone") === "Paris"
+      }
+      "when a system property changes" >> new Mock() {
+        val res = target.collect()
+        m_sysUtil.getProperty("prop1") returns "changed"
+
+        target.collect() must not beTheSameAs(res)
+        val rt = target.collect().get("runtime").asInstanceOf[DataObject]
+        rt.get("properties").asInstanceOf[DataObject].get("prop1") === "changed"
+      }
+      "when invalidated" >> new Mock() {
+        val res = target.collect()
+        target.invalidate()
+
+        target.collect() must not beTheSameAs(res)
+        there were two(m_sysUtil).getOSName
+      }
+    }
   }
 
   // SETUP ======================================================================================
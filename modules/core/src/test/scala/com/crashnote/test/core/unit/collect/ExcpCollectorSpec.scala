@@ -78,12 +78,85 @@ class ExcpCollectorSpec
         target.collect(null) === null
       }
     }
+
+    "collect reduced throwable" >> new Mock(ELIDE) {
+      val cause = new IllegalStateException("cause")
+      cause.setStackTrace(Array(
+        new StackTraceElement("com.example.DAO", "load", "DAO.java", 10),
+        new StackTraceElement("com.example.Main", "main", "Main.java", 1)))
+      val th = new RuntimeException("oops", cause)
+      th.setStackTrace(Array(
+        new StackTraceElement("com.example.Service", "run", "Service.java", 20),
+        new StackTraceElement("com.example.Main", "main", "Main.java", 1)))
+      th.addSuppressed(new IllegalArgumentException("closing"))
+
+      val res = target.collect(th)
+      res.size() === 3
+
+      val supp = res.get(1).asInstanceOf[DataObject]
+      supp.get("class") === "java.lang.IllegalArgumentException"
+      supp.get("suppressedBy") === 0
+
+      val excp = res.get(2).asInstanceOf[DataObject]
+      excp.get("stacktrace").asInstanceOf[DataArray].size() === 1
+      excp.get("commonFrames") === 1
+      excp.get("causeOf") === 0
+    }
+
+    "re-use serialized frames" >> new Mock(FRAME_CACHE) {
+      val th = new IllegalStateException()
+      th.setStackTrace(Array(new StackTraceElement("com.example.DAO", "load", "DAO.java", 10)))
+
+      def frame() = target.collect(th).get(0).asInstanceOf[DataObject]
+        .get("stacktrace").asInstanceOf[DataArray].get(0)
+
+      val first = frame()
+      first === "com.example.DAO:DAO.java:load:10"
+      frame() must beTheSameAs(first)
+    }
+
+    "fingerprint throwable" >> {
+      def trace(lines: Int*) = lines.map(l => new StackTraceElement("com.example.DAO", "load", "DAO.java", l)).toArray
+
+      "equally for identical errors" >> new Mock() {
+        def excp = { val e = new IllegalStateException("a"); e.setStackTrace(trace(1, 2)); e }
+        target.fingerprint(excp) === target.fingerprint(excp)
+      }
+      "regardless of message and line numbers" >> new Mock() {
+        val e1 = new IllegalStateException("a")
+        e1.setStackTrace(trace(1, 2))
+        val e2 = new IllegalStateException("b")
+        e2.setStackTrace(trace(3, 4))
+        target.fingerprint(e1) === target.fingerprint(e2)
+      }
+      "regardless of generated class names" >> new Mock() {
+        val e1 = new IllegalStateException()
+        e1.setStackTrace(Array(new StackTraceElement("com.example.DAO$$EnhancerByCGLIB$$1a", "load", null, 1)))
+        val e2 = new IllegalStateException()
+        e2.setStackTrace(Array(new StackTraceElement("com.example.DAO$$EnhancerByCGLIB$$2b", "load", null, 1)))
+        target.fingerprint(e1) === target.fingerprint(e2)
+      }
+      "differently for different classes or causes" >> new Mock() {
+        val e1 = new IllegalStateException()
+        e1.setStackTrace(trace(1))
+        val e2 = new IllegalArgumentException()
+        e2.setStackTrace(trace(1))
+        val e3 = new IllegalStateException(e2)
+        e3.setStackTrace(trace(1))
+        target.fingerprint(e1) !== target.fingerprint(e2)
+        target.fingerprint(e1) !== target.fingerprint(e3)
+      }
+    }
   }
 
   // SETUP ======================================================================================
 
+  lazy val ELIDE = (config: C) => config.isTraceElidingCommon returns true
+  lazy val FRAME_CACHE = (config: C) => config.getFrameCacheSize returns 16
+
   def configure(config: C) = {
     config.getBuilder returns new Builder
+    config.getAggregateFrames returns 5
     new ExcpCollector(config)
   }
 }
\ No newline at end of file
@@ -52,6 +52,8 @@ class LogCollectorSpec
       logArgs.get(0) === "abc"
       logArgs.get(1) === "xyz"
 
+      log1.get("sampleRate") === 0.25
+
       val logCtx = log1.get("context").asInstanceOf[DataObject]
       logCtx.get("key1") === "val"
       logCtx.get("key2").toString === "2"
@@ -75,6 +77,7 @@ class LogCollectorSpec
     m_evt.getLevel returns LogLevel.CRASH
     m_evt.getMDC returns Map("key1" -> "val", "key2" -> new java.lang.Long(2))
     m_evt.getArgs returns Array("abc", "xyz")
+    m_evt.getSampleRate returns 0.25
 
     m_excpColl = _mock[ExcpCollector]
     m_excpColl.collect(anyThrowable) returns {
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.collect
+
+import java.io.{ByteArrayOutputStream, StringWriter}
+import scala.collection.JavaConversions._
+import com.crashnote.core.build.{BinaryBuilder, Builder}
+import com.crashnote.core.build.impl.BinaryDecoder
+import com.crashnote.core.collect.Collector
+import com.crashnote.core.util.SystemUtil
+import com.crashnote.core.model.log.LogAggregate
+import com.crashnote.core.report.impl.session.LocalLogSession
+import com.crashnote.external.config.{ConfigFactory, ConfigParseOptions, ConfigSyntax}
+import com.crashnote.test.core.defs.TargetMockSpec
+
+class StreamingCollectorSpec
+  extends TargetMockSpec[Collector] {
+
+  "Collector" should {
+
+    "stream the same report as it collects" >> new Started() {
+      val s = new LocalLogSession()
+      s.addEvent(newLogEvt("first"))
+      s.addEvent(newLogEvt("second \"quoted\"\n"))
+      s.putCtx("user", "1")
+      val agg = new LogAggregate(255L, 1)
+      agg.add(946706400000L, Map[String, AnyRef]("user" -> "1"))
+      s.setAggregate(agg)
+
+      val collected = target.collectLog(s).toString
+      val streamed = target.streamLog(s).toString
+
+      parse(streamed) === parse(collected)
+      streamed.length === collected.length
+    }
+
+    "stream an empty session" >> new Started() {
+      val s = new LocalLogSession()
+      parse(target.streamLog(s).toString) === parse(target.collectLog(s).toString)
+    }
+
+    "stream a single event like it collects" >> new Started() {
+      val s = new LocalLogSession()
+      s.addEvent(newLogEvt("single"))
+
+      val collected = target.collectLog(s)
+      val streamed = target.streamLog(s).toString
+
+      collected.containsKey("context") must beFalse
+      streamed must not contain ("\"context\"")
+      parse(streamed) === parse(collected.toString)
+      streamed.length === collected.toString.length
+    }
+
+    "stream into a report writer" >> new Started() {
+      val s = new LocalLogSession()
+      s.addEvent(newLogEvt())
+
+      val out = new StringWriter()
+      target.writeLog(s, new Builder().createReportWriter(out))
+      out.toString must startWith("""{"errors":[{""")
+    }
+
+    "send the environment only once" >> new Started(DELTA) {
+      val s = new LocalLogSession()
+      s.addEvent(newLogEvt())
+
+      val first = target.streamLog(s)
+      val hash = first.getEnv.getHash
+      hash.length === 16
+      first.toString must contain("\"environment\":{")
+      first.toString must contain("\"environmentHash\":\"" + hash + "\"")
+      first.toString === first.toString
+
+      val second = target.streamLog(s).toString
+      second must not contain ("\"environment\":{")
+      second must contain("\"environmentHash\":\"" + hash + "\"")
+
+      val collected = target.collectLog(s)
+      collected.get("environment") must beNull
+      collected.get("environmentHash") === hash
+    }
+
+    "send the environment again when it changed" >> new Started(DELTA) {
+      val s = new LocalLogSession()
+      val hash = target.streamLog(s).getEnv.getHash
+
+      target.getEnvCollector.invalidate()
+      m_sysUtil.getTimezoneId returns "Mars/Olympus_Mons"
+      val changed = target.streamLog(s)
+      changed.getEnv.getHash !== hash
+      changed.toString must contain("\"environment\":{")
+    }
+
+    "stream the same report in binary" >> new Started() {
+      val s = new LocalLogSession()
+      s.addEvent(newLogEvt("first"))
+      s.addEvent(newLogEvt("second"))
+      val agg = new LogAggregate(255L, 1)
+      agg.add(946706400000L, Map[String, AnyRef]("user" -> "1"))
+      s.setAggregate(agg)
+
+      val bos = new ByteArrayOutputStream()
+      val out = new BinaryBuilder().createReportWriter(bos)
+      target.streamLog(s).writeTo(out)
+      out.flush()
+      val decoded = BinaryDecoder.decode(bos.toByteArray).asInstanceOf[java.util.Map[String, AnyRef]]
+
+      // timestamps are raw, everything else is the same
+      val aggregate = decoded.get("aggregate").asInstanceOf[java.util.Map[String, AnyRef]]
+      aggregate.get("firstSeenAt") === new java.util.Date(946706400000L)
+      aggregate.remove("firstSeenAt")
+      aggregate.remove("lastSeenAt")
+      val errors = decoded.get("errors").asInstanceOf[java.util.List[java.util.Map[String, AnyRef]]]
+      errors.foreach(_.remove("occurredAt"))
+
+      val collected = parse(target.collectLog(s).toString).asInstanceOf[java.util.Map[String, AnyRef]]
+      collected.get("aggregate").asInstanceOf[java.util.Map[String, AnyRef]].remove("firstSeenAt")
+      collected.get("aggregate").asInstanceOf[java.util.Map[String, AnyRef]].remove("lastSeenAt")
+      collected.get("errors").asInstanceOf[java.util.List[java.util.Map[String, AnyRef]]].foreach(_.remove("occurredAt"))
+
+      parse(com.crashnote.external.json.JSONValue.toJSONString(decoded)) === collected
+      bos.size must be_<(target.collectLog(s).toString.length * 3 / 4)
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  def parse(json: String) =
+    ConfigFactory.parseString(json, ConfigParseOptions.defaults().setSyntax(ConfigSyntax.JSON)).root().unwrapped()
+
+  lazy val DELTA = (config: C) => config.isEnvironmentDelta returns true
+
+  var m_sysUtil: SystemUtil = _
+
+  def configure(config: C) = {
+    m_sysUtil = spy(new SystemUtil())
+    config.getBuilder returns new Builder
+    config.getSystemUtil returns m_sysUtil
+    config.getEnvironmentFilters returns List[String]()
+    config.getStartTime returns 946706400000L
+    new Collector(config)
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.collect
+
+import scala.collection.JavaConversions._
+import com.crashnote.core.collect.impl.TraceReducer
+import com.crashnote.test.core.defs.TargetMockSpec
+
+class TraceReducerSpec
+  extends TargetMockSpec[TraceReducer] {
+
+  "Trace Reducer" should {
+
+    "list causes and suppressed exceptions" >> new Configured() {
+      val root = excp("root", 1, 2)
+      val cause = excp("cause", 3)
+      val supp = excp("supp", 4)
+      root.initCause(cause)
+      root.addSuppressed(supp)
+
+      val res = target.reduce(root)
+      res.map(_.getThrowable.getMessage).toList === List("root", "supp", "cause")
+      res(1).isSuppressed === true
+      res(1).getParent === 0
+      res(2).isSuppressed === false
+      res(2).getParent === 0
+    }
+
+    "stop at circular causes" >> new Configured() {
+      val a = excp("a", 1)
+      val b = excp("b", 2)
+      a.initCause(b)
+      b.initCause(a)
+
+      val res = target.reduce(a)
+      res.size === 2
+      res(1).isCircular === true
+    }
+
+    "cap the number of exceptions" >> new Configured() {
+      val root = (1 to 100).foldLeft(excp("0", 1))((t, i) => new RuntimeException(i.toString, t))
+      target.reduce(root).size === TraceReducer.MAX_THROWABLES
+    }
+
+    "elide frames in common with the enclosing exception" >> new Configured(ELIDE) {
+      val cause = excp("cause", 10, 3, 2, 1)
+      val root = excp("root", 20, 3, 2, 1)
+      root.initCause(cause)
+
+      val res = target.reduce(root)
+      res(0).getFrames.size === 4
+      res(1).getFrames.map(_.getLineNumber).toList === List(10)
+      res(1).getCommonFrames === 3
+    }
+
+    "keep all frames when not eliding" >> new Configured() {
+      val cause = excp("cause", 10, 1)
+      val root = excp("root", 20, 1)
+      root.initCause(cause)
+
+      target.reduce(root)(1).getFrames.size === 2
+    }
+
+    "cap the frames per exception" >> new Configured(MAX_FRAMES(2)) {
+      val res = target.reduce(excp("root", 1, 2, 3, 4))
+      res(0).getFrames.map(_.getLineNumber).toList === List(1, 2)
+      res(0).getOmittedFrames === 2
+    }
+
+    "filter frames" >> new Configured(FILTER) {
+      val th = new RuntimeException()
+      th.setStackTrace(Array(
+        frame("com.example.DAO", 1),
+        frame("sun.reflect.GeneratedMethodAccessor1", 2),
+        frame("sun.reflect.Keep", 3),
+        frame("com.example.Service", 4)))
+
+      val res = target.reduce(th)
+      res(0).getFrames.map(_.getClassName).toList === List("com.example.DAO", "sun.reflect.Keep", "com.example.Service")
+      res(0).getOmittedFrames === 1
+    }
+
+    "handle null" >> new Configured() {
+      target.reduce(null).isEmpty === true
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  lazy val ELIDE = (config: C) => config.isTraceElidingCommon returns true
+  def MAX_FRAMES(n: Int) = (config: C) => config.getTraceMaxFrames returns n
+  lazy val FILTER = (config: C) => {
+    config.getTraceExcludes returns List("sun.reflect.*")
+    config.getTraceIncludes returns List("*.Keep")
+  }
+
+  def frame(cls: String, line: Int) =
+    new StackTraceElement(cls, "run", "File.java", line)
+
+  def excp(msg: String, lines: Int*) = {
+    val th = new RuntimeException(msg)
+    th.setStackTrace(lines.map(frame("com.example.App", _)).toArray)
+    th
+  }
+
+  def configure(config: C) =
+    new TraceReducer(config)
+}
@@ -20,7 +20,7 @@ import org.specs2.specification.BeforeExample
 import com.crashnote.test.base.defs.MockSpec
 import com.crashnote.core.config.{ConfigLoader, CrashConfigFactory, CrashConfig}
 import com.crashnote.core.log.LogLog
-import com.crashnote.core.build.Builder
+import com.crashnote.core.build.{BinaryBuilder, Builder}
 import com.crashnote.core.send.Sender
 import com.crashnote.core.collect.Collector
 import com.crashnote.core.util.SystemUtil
@@ -49,6 +49,17 @@ class ConfigSpec
       "start time" >> {
         c.getStartTime must beLessThan(new Date().getTime)
       }
+      "retries" >> {
+        "in async mode" >> {
+          c.getRetryMax === 2
+        }
+        "not in sync mode" >> {
+          getConfig(List("sync" -> true)).getRetryMax === 0
+        }
+        "as configured" >> {
+          getConfig(List("sync" -> true, "network.retry.max-retries" -> 1)).getRetryMax === 1
+        }
+      }
     }
 
     "validate configuration" >> {
@@ -79,6 +90,7 @@ class ConfigSpec
       }
       "for builder" >> {
         c.getBuilder must haveClass[Builder]
+        getConfig(List("report.encoding" -> "binary")).getBuilder must haveClass[BinaryBuilder]
       }
       "for sender" >> {
         c.getSender must haveClass[Sender]
@@ -130,6 +142,18 @@ class ConfigSpec
           getConfigWith(("network.timeout" -> "true")).getConnectionTimeout must throwA[CrashnoteException]
         }
       }
+      "with a default" >> {
+        "when missing" >> {
+          getConfigWith().getCompressionPool === 4
+          getConfigWith().getSpoolSegmentSize === 1024 * 1024
+        }
+        "but throw exception when wrong type" >> {
+          getConfigWith(("network.compression.pool" -> "abc")).getCompressionPool must throwA[CrashnoteException]
+        }
+        "but throw exception when wrong format" >> {
+          getConfigWith(("network.spool.segment-size" -> "10XB")).getSpoolSegmentSize must throwA[CrashnoteException]
+        }
+      }
       "of type List" >> {
         "successfully" >> {
           getConfig().getEnvironmentFilters must not be empty
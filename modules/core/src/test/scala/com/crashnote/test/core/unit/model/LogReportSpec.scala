@@ -35,5 +35,16 @@ class LogReportSpec
       report.isEmpty === false
       report.toString === """{"data":"test"}"""
     }
+
+    "instantiate with source" >> {
+      report = new LogReport(new LogReport.Source {
+        def writeTo(out: java.io.Writer) {
+          out.write("""{"data":"streamed"}""")
+        }
+      })
+
+      report.isEmpty === false
+      report.toString === """{"data":"streamed"}"""
+    }
   }
 }
\ No newline at end of file
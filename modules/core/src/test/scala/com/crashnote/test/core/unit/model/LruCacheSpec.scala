@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.model
+
+import com.crashnote.core.model.data.LruCache
+import com.crashnote.test.base.defs._
+
+class LruCacheSpec
+  extends UnitSpec {
+
+  "LRU Cache" should {
+
+    "reject an invalid capacity" >> {
+      new LruCache[String, String](0) must throwA[IllegalArgumentException]
+    }
+
+    "store and return values" >> {
+      val cache = new LruCache[String, String](4)
+      cache.put("a", "1")
+
+      cache.get("a") === "1"
+      cache.get("b") === null
+      cache.size === 1
+    }
+
+    "evict the least recently used entry" >> {
+      val cache = new LruCache[String, String](2)
+      cache.put("a", "1")
+      cache.put("b", "2")
+      cache.get("a")
+      cache.put("c", "3")
+
+      cache.get("a") === "1"
+      cache.get("b") === null
+      cache.get("c") === "3"
+    }
+
+    "stay within its capacity when segmented" >> {
+      val cache = new LruCache[Integer, Integer](1024)
+      (1 to 10000).foreach(i => cache.put(i, i))
+
+      cache.size must be_<=(1024 + 16)
+      cache.get(10000) === 10000
+      cache.getCapacity === 1024
+
+      cache.clear()
+      cache.size === 0
+    }
+  }
+}
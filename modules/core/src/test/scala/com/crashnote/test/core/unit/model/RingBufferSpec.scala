@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.model
+
+import java.util.concurrent.{TimeUnit, CountDownLatch, Executors}
+import java.util.concurrent.atomic.AtomicInteger
+import com.crashnote.core.model.data.RingBuffer
+import com.crashnote.test.base.defs._
+
+class RingBufferSpec
+  extends UnitSpec {
+
+  "Ring Buffer" should {
+
+    "round capacity up to a power of two" >> {
+      new RingBuffer[String](1).capacity() === 2
+      new RingBuffer[String](5).capacity() === 8
+      new RingBuffer[String](1024).capacity() === 1024
+    }
+
+    "reject invalid capacity" >> {
+      new RingBuffer[String](0) must throwA[IllegalArgumentException]
+    }
+
+    "reject null elements" >> {
+      new RingBuffer[String](2).offer(null) must throwA[IllegalArgumentException]
+    }
+
+    "return elements in order" >> {
+      val buf = new RingBuffer[String](4)
+      buf.offer("a") === true
+      buf.offer("b") === true
+      buf.size() === 2
+
+      buf.poll() === "a"
+      buf.poll() === "b"
+      buf.poll() === null
+      buf.isEmpty === true
+    }
+
+    "refuse elements when full" >> {
+      val buf = new RingBuffer[String](2)
+      buf.offer("a") === true
+      buf.offer("b") === true
+      buf.offer("c") === false
+      buf.size() === 2
+
+      buf.poll() === "a"
+      buf.offer("c") === true
+      buf.poll() === "b"
+      buf.poll() === "c"
+    }
+
+    "wrap around many times" >> {
+      val buf = new RingBuffer[Integer](4)
+      for (i <- 1 to 100) {
+        buf.offer(i) === true
+        buf.poll() === i
+      }
+      buf.isEmpty === true
+    }
+
+    "not lose elements with concurrent producers" >> {
+      val threads = 4
+      val perThread = 10000
+      val buf = new RingBuffer[Integer](64)
+      val received = new AtomicInteger()
+      val done = new CountDownLatch(threads)
+
+      val pool = Executors.newFixedThreadPool(threads)
+      for (t <- 1 to threads)
+        pool.submit(new Runnable {
+          def run() {
+            for (i <- 1 to perThread)
+              while (!buf.offer(i)) Thread.`yield`()
+            done.countDown()
+          }
+        })
+
+      while (done.getCount > 0 || !buf.isEmpty)
+        if (buf.poll() != null) received.incrementAndGet()
+      pool.shutdown()
+      pool.awaitTermination(10, TimeUnit.SECONDS)
+
+      received.get === threads * perThread
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.model
+
+import java.util.concurrent.{CountDownLatch, Executors, TimeUnit}
+import com.crashnote.core.model.data.{Histogram, StripedCounter}
+import com.crashnote.test.base.defs._
+
+class StripedCounterSpec
+  extends UnitSpec {
+
+  "Striped Counter" should {
+
+    "add and sum up" >> {
+      val c = new StripedCounter
+      c.increment()
+      c.add(41)
+      c.sum === 42
+      c.toString === "42"
+    }
+
+    "reset" >> {
+      val c = new StripedCounter
+      c.add(5)
+      c.sumThenReset === 5
+      c.sum === 0
+      c.add(3)
+      c.reset()
+      c.sum === 0
+    }
+
+    "count concurrent updates" >> {
+      val c = new StripedCounter
+      val threads = 8
+      val pool = Executors.newFixedThreadPool(threads)
+      val done = new CountDownLatch(threads)
+      for (_ <- 1 to threads) pool.execute(new Runnable {
+        def run() {
+          for (_ <- 1 to 10000) c.increment()
+          done.countDown()
+        }
+      })
+      done.await(10, TimeUnit.SECONDS) === true
+      pool.shutdown()
+      c.sum === threads * 10000
+    }
+  }
+
+  "Histogram" should {
+
+    "compute count, mean and max" >> {
+      val h = new Histogram
+      Seq(0L, 10L, 20L, 30L).foreach(h.record)
+      h.getCount === 4
+      h.getSum === 60
+      h.getMean === 15.0
+      h.getMax === 30
+    }
+
+    "approximate quantiles by power-of-two buckets" >> {
+      val h = new Histogram
+      (1 to 99).foreach(_ => h.record(100))
+      h.record(5000)
+
+      h.getQuantile(0.5) === 127
+      h.getQuantile(0.99) === 127
+      h.getQuantile(1.0) === 5000
+      new Histogram().getQuantile(0.5) === 0
+    }
+
+    "treat negative values as zero" >> {
+      val h = new Histogram
+      h.record(-5)
+      h.getCount === 1
+      h.getMax === 0
+    }
+
+    "reset" >> {
+      val h = new Histogram
+      h.record(100)
+      h.reset()
+      h.getCount === 0
+      h.getMax === 0
+      h.getQuantile(0.99) === 0
+    }
+  }
+}
@@ -19,7 +19,7 @@ import com.crashnote.core.report.Reporter
 import com.crashnote.core.report.impl.processor.Processor
 import com.crashnote.core.model.log.ILogSession
 import com.crashnote.core.report.impl.session._
-import com.crashnote.core.report.impl.processor.impl.{AsyncProcessor, SyncProcessor}
+import com.crashnote.core.report.impl.processor.impl.{RingBufferProcessor, AsyncProcessor, SyncProcessor}
 import com.crashnote.core.report.impl.ThrowableLogEvt
 import com.crashnote.test.core.defs.TargetMockSpec
 
@@ -139,6 +139,18 @@ class ReporterSpec
                 target.clear()
                 verifyUntouched(m_session)
             }
+            "but skip when not admitted" >> new Started(ENABLED, ADMISSION) {
+                m_session.isEmpty returns false
+                target.reportLog(newLogEvt())
+                target.reportLog(newLogEvt())
+
+                there was one(m_session).addEvent(any[ThrowableLogEvt])
+                target.getAdmissionControl.getRejectedByGlobal === 1
+
+                target.getStatistics.getEventsReceived === 2
+                target.getStatistics.getEventsAccepted === 1
+                target.getStatistics.getEventsRejected === 1
+            }
         }
 
         "handle uncaught exceptions" >> {
@@ -197,12 +209,26 @@ class ReporterSpec
                 "when in async mode" >> new Configured(ASYNC) {
                     target.getProcessor must haveClass[AsyncProcessor]
                 }
+                "when in async mode with ring buffer" >> new Configured(ASYNC, RING_BUFFER) {
+                    target.getProcessor must haveClass[RingBufferProcessor]
+                }
             }
         }
     }
 
     // SETUP ======================================================================================
 
+    lazy val ADMISSION = (config: C) => {
+        config.isAdmissionControl returns true
+        config.getAdmissionRate returns 0.001
+        config.getAdmissionBurst returns 1
+    }
+
+    lazy val RING_BUFFER = (config: C) => {
+        config.isRingBufferQueue returns true
+        config.getQueueSize returns 8
+    }
+
     var m_session: ILogSession = _
     var m_processor: Processor = _
     var m_excpHandler: Thread.UncaughtExceptionHandler = _
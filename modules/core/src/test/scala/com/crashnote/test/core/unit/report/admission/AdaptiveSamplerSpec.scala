@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.report.admission
+
+import com.crashnote.core.report.impl.admission.AdaptiveSampler
+import com.crashnote.test.base.defs.UnitSpec
+
+class AdaptiveSamplerSpec
+    extends UnitSpec {
+
+    "Adaptive Sampler" should {
+
+        "keep everything below the target" >> {
+            val sampler = new AdaptiveSampler(100)
+            (1 to 100).forall(_ => sampler.sample() == 1.0) === true
+        }
+
+        "draw independently for the events of a burst" >> {
+            val sampler = new AdaptiveSampler(100)
+            (1 to 1000).foreach(_ => sampler.sample())
+            Thread.sleep(1100)
+            sampler.sample() // (opens the next window)
+
+            sampler.getProbability === 0.1
+            val kept = (1 to 1000).count(_ => sampler.sample() > 0)
+            kept must be_>(30)
+            kept must be_<(300)
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.report.admission
+
+import com.crashnote.core.report.impl.ThrowableLogEvt
+import com.crashnote.core.report.impl.admission.AdmissionControl
+import com.crashnote.core.model.log.LogEvt
+import com.crashnote.test.core.defs.TargetMockSpec
+
+class AdmissionControlSpec
+    extends TargetMockSpec[AdmissionControl] {
+
+    "Admission Control" should {
+
+        "admit events within the limits" >> new Configured() {
+            target.admit(newLogEvt()) === true
+            target.admit(newLogEvt()) === true
+        }
+
+        "limit events" >> {
+            "globally" >> new Configured(GLOBAL(2)) {
+                (1 to 3).map(_ => target.admit(newLogEvt())) === Seq(true, true, false)
+                target.getRejectedByGlobal === 1
+            }
+            "per exception class" >> new Configured(CLASS(1)) {
+                target.admit(newLogEvt()) === true
+                target.admit(newLogEvt()) === false
+                target.admit(newEvt(new IllegalStateException())) === true
+                target.getRejectedByClass === 1
+            }
+            "per logger" >> new Configured(LOGGER(1)) {
+                target.admit(newEvt(newExcp(), "a")) === true
+                target.admit(newEvt(new IllegalStateException(), "a")) === false
+                target.admit(newEvt(newExcp(), "b")) === true
+                target.getRejectedByLogger === 1
+            }
+            "for keys beyond the limit together" >> new Configured(LOGGER(1)) {
+                (1 to 1024).forall(i => target.admit(newEvt(newExcp(), "l" + i))) === true
+                target.admit(newEvt(newExcp(), "x")) === true
+                target.admit(newEvt(newExcp(), "y")) === false
+                target.admit(newEvt(newExcp(), "l1")) === false
+            }
+        }
+
+        "give back the tokens of a rejected event" >> new Configured(CLASS(1), LOGGER(1)) {
+            target.admit(newEvt(newExcp(), "a")) === true
+            target.admit(newEvt(new IllegalStateException(), "a")) === false
+            target.getRejectedByLogger === 1
+
+            // the IllegalStateException's token was not used up
+            target.admit(newEvt(new IllegalStateException(), "b")) === true
+        }
+
+        "sample events when the volume is high" >> new Configured(SAMPLE(10)) {
+            // first second: everything passes (and is counted)
+            (1 to 1000).foreach(_ => target.admit(newLogEvt()))
+            Thread.sleep(1100)
+
+            val evts = (1 to 1000).map(_ => newLogEvt())
+            val admitted = evts.filter(target.admit(_))
+
+            target.getSampleProbability must be_<(0.1)
+            admitted.size must be_<(200)
+            admitted.forall(_.getSampleRate < 1.0) === true
+            target.getRejectedBySampler must be_>(0L)
+        }
+
+        "change the sample target at runtime" >> new Configured() {
+            target.getSampleTarget === 0
+            target.setSampleTarget(5)
+            target.getSampleTarget === 5
+
+            (1 to 100).foreach(_ => target.admit(newLogEvt()))
+            Thread.sleep(1100)
+            (1 to 100).count(_ => target.admit(newLogEvt())) must be_<(50)
+
+            target.setSampleTarget(0)
+            target.getSampleTarget === 0
+            (1 to 100).forall(_ => target.admit(newLogEvt())) === true
+        }
+    }
+
+    // SETUP ======================================================================================
+
+    def GLOBAL(burst: Int) = (c: C) => { c.getAdmissionRate returns 0.001; c.getAdmissionBurst returns burst }
+    def CLASS(burst: Int) = (c: C) => { c.getAdmissionClassRate returns 0.001; c.getAdmissionClassBurst returns burst }
+    def LOGGER(burst: Int) = (c: C) => { c.getAdmissionLoggerRate returns 0.001; c.getAdmissionLoggerBurst returns burst }
+    def SAMPLE(target: Long) = (c: C) => c.getAdmissionSampleTarget returns target
+
+    def newEvt(th: Throwable, logger: String = null): LogEvt[_] =
+        new ThrowableLogEvt(Thread.currentThread(), th) {
+            override def getLoggerName = logger
+        }
+
+    def configure(config: C) =
+        new AdmissionControl(config)
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.report.admission
+
+import com.crashnote.core.report.impl.admission.TokenBucket
+import com.crashnote.test.base.defs.UnitSpec
+
+class TokenBucketSpec
+    extends UnitSpec {
+
+    "Token Bucket" should {
+
+        "reject invalid settings" >> {
+            new TokenBucket(0, 1) must throwA[IllegalArgumentException]
+            new TokenBucket(1, 0) must throwA[IllegalArgumentException]
+        }
+
+        "grant a full burst right away" >> {
+            val bucket = new TokenBucket(1, 5)
+            (1 to 5).forall(_ => bucket.tryAcquire()) === true
+            bucket.tryAcquire() === false
+        }
+
+        "refill over time" >> {
+            val bucket = new TokenBucket(100, 1)
+            bucket.tryAcquire() === true
+            bucket.tryAcquire() === false
+
+            Thread.sleep(50)
+            bucket.tryAcquire() === true
+        }
+
+        "take back a released token" >> {
+            val bucket = new TokenBucket(0.001, 1)
+            bucket.tryAcquire() === true
+            bucket.release()
+            bucket.tryAcquire() === true
+            bucket.tryAcquire() === false
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.report.processor
+
+import scala.collection.JavaConversions._
+import org.mockito.ArgumentCaptor
+import com.crashnote.core.model.log.ILogSession
+import com.crashnote.core.report.impl.processor.impl.AggregateProcessor
+import com.crashnote.core.report.impl.processor.Processor
+import com.crashnote.core.report.impl.session.SharedLogSession
+import com.crashnote.test.core.defs.TargetMockSpec
+
+class AggregateProcessorSpec
+    extends TargetMockSpec[AggregateProcessor] {
+
+    "Aggregate Processor" should {
+
+        "have lifecycle" >> {
+            "start" >> new Mock() {
+                target.start() === true
+                target.start() === true
+
+                there was one(m_processor).start()
+            }
+            "stop" >> new Started() {
+                target.stop() === false
+                target.stop() === false
+
+                there was one(m_processor).stop
+            }
+        }
+
+        "pass on the first occurrence right away" >> new Started() {
+            val s = newSession(newExcp("a"))
+            target.process(s)
+
+            there was one(m_processor).process(s)
+            s.getAggregate === null
+        }
+
+        "fold identical sessions" >> new Started() {
+            val excp = newExcp("a")
+            target.process(newSession(excp))
+            for (i <- 1 to 5) target.process(newSession(excp, "user" -> i))
+            there was one(m_processor).process(any[ILogSession])
+
+            target.stop()
+            val captor = ArgumentCaptor.forClass(classOf[ILogSession])
+            there were two(m_processor).process(captor.capture())
+
+            val agg = captor.getAllValues.get(1).getAggregate
+            agg.getCount === 5
+            agg.getSamples.size === 2
+            agg.getSamples.get(0).get("user") === 1
+            agg.getFirstSeen must be_<=(agg.getLastSeen)
+        }
+
+        "keep different errors apart" >> new Started() {
+            target.process(newSession(newExcp("a")))
+            target.process(newSession(new IllegalStateException("b")))
+
+            there were two(m_processor).process(any[ILogSession])
+            target.getTrackedCount === 2
+        }
+
+        "cap the number of tracked fingerprints" >> new Started() {
+            val excp = newExcp("a")
+            for (i <- 1 to 3) target.process(newSession(excp))
+            target.process(newSession(new IllegalStateException("b")))
+            target.process(newSession(new IllegalArgumentException("c")))
+            target.process(newSession(new UnsupportedOperationException("d")))
+            target.getTrackedCount === 2
+
+            // the heavy hitter is still tracked, so it is folded
+            target.process(newSession(excp))
+            there were 4.times(m_processor).process(any[ILogSession])
+        }
+
+        "pass on the aggregate when the window is over" >> new Started(WINDOW(50)) {
+            val excp = newExcp("a")
+            target.process(newSession(excp))
+            target.process(newSession(excp))
+
+            Thread.sleep(500)
+            there were two(m_processor).process(any[ILogSession])
+        }
+    }
+
+    // SETUP ======================================================================================
+
+    var m_processor: Processor = _
+
+    def WINDOW(ms: Long) = (config: C) => config.getAggregateWindow returns ms
+
+    def configure(config: C) =
+        new AggregateProcessor(config, m_processor)
+
+    override def mockConfig() = {
+        val mc = super.mockConfig()
+        mc.getAggregateWindow returns 60000L
+        mc.getAggregateCapacity returns 2
+        mc.getAggregateSamples returns 2
+        mc.getAggregateFrames returns 5
+        mc
+    }
+
+    override def mock() {
+        m_processor = _mock[Processor]
+    }
+
+    def newSession(th: Throwable, ctx: (String, Any)*) = {
+        val s = new SharedLogSession()
+        s.addEvent(new com.crashnote.core.report.impl.ThrowableLogEvt(Thread.currentThread(), th))
+        ctx.foreach(kv => s.putCtx(kv._1, kv._2))
+        s
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.report.processor
+
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+import org.mockito.invocation.InvocationOnMock
+import org.mockito.stubbing.Answer
+import com.crashnote.core.model.types.OverflowPolicy
+import com.crashnote.core.model.log.ILogSession
+import com.crashnote.core.report.impl.processor.impl.RingBufferProcessor
+import com.crashnote.core.report.impl.processor.Processor
+import com.crashnote.core.report.impl.session.SharedLogSession
+import com.crashnote.test.core.defs.TargetMockSpec
+
+class RingBufferProcessorSpec
+    extends TargetMockSpec[RingBufferProcessor] {
+
+    "Ring Buffer Processor" should {
+
+        "have lifecycle" >> {
+            "start" >> new Mock() {
+                target.start() === true
+                target.start() === true
+
+                there was one(m_processor).start()
+            }
+            "stop" >> new Started() {
+                target.stop() === false
+                target.stop() === false
+
+                there was one(m_processor).stop
+            }
+        }
+
+        "process a session" >> new Started() {
+            val s = new SharedLogSession()
+            target.process(s)
+            target.stop()
+
+            there was one(m_processor).process(s)
+        }
+
+        "handle overflow" >> {
+            "by dropping the newest session" >> new Blocked(OverflowPolicy.DROP_NEWEST) {
+                fill(5)
+
+                target.getDropCount(OverflowPolicy.DROP_NEWEST) === 2
+                release()
+                there were three(m_processor).process(any[ILogSession])
+            }
+            "by dropping the oldest session" >> new Blocked(OverflowPolicy.DROP_OLDEST) {
+                fill(5)
+
+                target.getDropCount(OverflowPolicy.DROP_OLDEST) === 2
+                release()
+                there were three(m_processor).process(any[ILogSession])
+            }
+            "by blocking until the timeout expires" >> new Blocked(OverflowPolicy.BLOCK) {
+                fill(4)
+
+                target.getDropCount(OverflowPolicy.BLOCK) === 1
+                release()
+                there were three(m_processor).process(any[ILogSession])
+            }
+        }
+    }
+
+    // SETUP ======================================================================================
+
+    var m_processor: Processor = _
+
+    def configure(config: C) =
+        new RingBufferProcessor(config, m_processor)
+
+    override def mockConfig() = {
+        val mc = super.mockConfig()
+        mc.getQueueSize returns 2
+        mc.getQueueTimeout returns 10L
+        mc.getQueueOverflowPolicy returns OverflowPolicy.DROP_NEWEST
+        mc
+    }
+
+    override def mock() {
+        m_processor = _mock[Processor]
+    }
+
+    /**
+     * keeps the worker busy with the first session, so that the buffer (capacity 2) fills up
+     */
+    class Blocked(policy: OverflowPolicy) extends Started((c: C) => c.getQueueOverflowPolicy returns policy) {
+
+        val busy = new CountDownLatch(1)
+        val gate = new CountDownLatch(1)
+
+        org.mockito.Mockito.doAnswer(new Answer[Unit] {
+            def answer(inv: InvocationOnMock) {
+                busy.countDown()
+                gate.await(10, TimeUnit.SECONDS)
+            }
+        }).when(m_processor).process(any[ILogSession])
+
+        def fill(n: Int) {
+            target.process(new SharedLogSession())
+            busy.await(10, TimeUnit.SECONDS)
+            for (i <- 2 to n) target.process(new SharedLogSession())
+        }
+
+        def release() {
+            gate.countDown()
+            target.stop()
+        }
+    }
+}
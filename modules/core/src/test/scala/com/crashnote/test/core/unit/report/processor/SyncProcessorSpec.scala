@@ -34,12 +34,14 @@ class SyncProcessorSpec
                 target.start()
 
                 there was one(m_collector).start()
+                there was one(m_sender).start()
             }
             "stop" >> new Started() {
                 target.stop()
                 target.stop()
 
                 there was one(m_collector).stop
+                there was one(m_sender).stop
             }
         }
 
@@ -52,6 +54,17 @@ class SyncProcessorSpec
                 one(m_sender).send(any[LogReport])
             }
         }
+
+        "stream a session" >> new Started(STREAMING) {
+            val s = new SharedLogSession()
+            target.process(s)
+
+            expect {
+                one(m_collector).streamLog(s)
+                one(m_sender).send(any[LogReport])
+            }
+            there was no(m_collector).collectLog(s)
+        }
     }
 
     // SETUP ======================================================================================
@@ -59,6 +72,8 @@ class SyncProcessorSpec
     var m_sender: Sender = _
     var m_collector: Collector = _
 
+    lazy val STREAMING = (config: C) => config.isStreamingReports returns true
+
     def configure(config: C) =
         new SyncProcessor(config)
 
@@ -34,6 +34,28 @@ class LocalLogSessionSpec
             copy.getEvents.size() === 1
         }
 
+        "give each child thread its own session with the parent's context" >> {
+            val s = new LocalLogSession()
+            s.putCtx("user", "jim")
+            s.addEvent(newLogEvt())
+
+            var ctx: AnyRef = null
+            var events = -1
+            val t = new Thread() {
+                override def run() {
+                    ctx = s.getContext.get("user")
+                    events = s.getEvents.size()
+                    s.addEvent(newLogEvt())
+                }
+            }
+            t.start()
+            t.join()
+
+            ctx === "jim"
+            events === 0
+            s.getEvents.size() === 1
+        }
+
         "delegate" >> {
             "clear" >> new Mock() {
                 target.clear()
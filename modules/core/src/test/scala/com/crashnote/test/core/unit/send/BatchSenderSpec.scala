@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.send
+
+import java.io.ByteArrayOutputStream
+import scala.collection.mutable.ListBuffer
+import com.crashnote.core.model.log.LogReport
+import com.crashnote.core.build.BinaryBuilder
+import com.crashnote.core.build.impl.{BinaryDecoder, JSONDataObject}
+import com.crashnote.core.send.{Sender, BatchSender}
+import com.crashnote.test.core.defs.TargetMockSpec
+
+class BatchSenderSpec
+  extends TargetMockSpec[BatchSender] {
+
+  "Batch Sender" should {
+
+    "collect reports" >> {
+      "until the count threshold is reached" >> new Started(withCount(3)) {
+        target.send(newReport(1))
+        target.send(newReport(2))
+        requests.size === 0
+        target.getBatchCount === 2
+
+        target.send(newReport(3))
+        requests.size === 1
+        requests(0) ===("application/json; charset=utf-8", """[{"n":1},{"n":2},{"n":3}]""")
+        target.getBatchCount === 0
+      }
+      "until the size threshold is reached" >> new Started(withCount(100), withSize(12)) {
+        target.send(newReport(1))
+        requests.size === 0
+
+        target.send(newReport(2))
+        requests.size === 1
+        requests(0)._2 === """[{"n":1},{"n":2}]"""
+      }
+      "until the linger time is over" >> new Started(withCount(100), withLinger(50)) {
+        target.send(newReport(1))
+        requests.size === 0
+
+        Thread.sleep(500)
+        requests.size === 1
+        requests(0)._2 === """[{"n":1}]"""
+      }
+    }
+
+    "render batch as NDJSON" >> new Started(withCount(2), NDJSON) {
+      target.send(newReport(1))
+      target.send(newReport(2))
+
+      requests(0) ===("application/x-ndjson; charset=utf-8", "{\"n\":1}\n{\"n\":2}\n")
+    }
+
+    "concatenate binary reports" >> new Started(withCount(2), BINARY) {
+      target.send(newReport(1))
+      target.send(newReport(2))
+
+      requests(0)._1 === BinaryBuilder.BINARY_TYPE
+      BinaryDecoder.decodeAll(bodies(0)).toString === "[{n=1}, {n=2}]"
+    }
+
+    "send the rest of the batch when stopped" >> new Started(withCount(100)) {
+      target.send(newReport(1))
+      target.stop()
+
+      requests.size === 1
+      requests(0)._2 === """[{"n":1}]"""
+    }
+
+    "not send an empty batch" >> new Started(withCount(100)) {
+      target.flush()
+      target.stop()
+
+      requests.size === 0
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  val requests = ListBuffer[(String, String)]()
+  val bodies = ListBuffer[Array[Byte]]()
+
+  def withCount(n: Int) = (config: C) => config.getBatchMaxCount returns n
+  def withSize(n: Long) = (config: C) => config.getBatchMaxSize returns n
+  def withLinger(ms: Long) = (config: C) => config.getBatchLinger returns ms
+  lazy val NDJSON = (config: C) => config.getBatchFormat returns "ndjson"
+  lazy val BINARY = (config: C) => config.getBuilder returns new BinaryBuilder
+
+  def newReport(n: Int) = {
+    val data = new JSONDataObject
+    data.put("n", n)
+    new LogReport(data)
+  }
+
+  def configure(config: C) = {
+    requests.clear()
+    bodies.clear()
+    config.getPostURL returns "http://localhost:0"
+    new BatchSender(config) {
+      override protected def POST(url: String, contentType: String, body: Sender.Body) = {
+        val out = new ByteArrayOutputStream()
+        body.writeTo(out)
+        requests.synchronized {
+          requests += ((contentType, new String(out.toByteArray, "UTF-8")))
+          bodies += out.toByteArray
+        }
+        true
+      }
+    }
+  }
+}
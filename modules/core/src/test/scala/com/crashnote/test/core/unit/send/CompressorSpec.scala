@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.send
+
+import java.io.{ByteArrayInputStream, ByteArrayOutputStream, OutputStream}
+import java.util.zip.{GZIPInputStream, Inflater}
+import com.crashnote.core.send.{Compressor, Dictionary, Sender}
+import com.crashnote.test.base.defs.UnitSpec
+
+class CompressorSpec
+  extends UnitSpec {
+
+  "Compressor" should {
+
+    "create gzip streams" >> {
+      val c = new Compressor(-1, 0, 2)
+      for (i <- 1 to 5) {
+        val bos = new ByteArrayOutputStream()
+        val out = c.gzip(bos)
+        out.write(text.getBytes("UTF-8"))
+        out.write('!')
+        out.close()
+        out.close()
+
+        Compressor.isCompressed(bos.toByteArray) === true
+        gunzip(bos.toByteArray) === text + "!"
+      }
+      success
+    }
+
+    "compress a body in memory" >> {
+      val c = new Compressor(-1, 0, 2)
+      val data = c.compress(body(text))
+      Compressor.isCompressed(data) === true
+      data.length must be_<(text.length / 4)
+      gunzip(data) === text
+    }
+
+    "not compress a body below the threshold" >> {
+      val c = new Compressor(-1, 1024, 2)
+      val data = c.compress(body("{\"a\":1}"))
+      Compressor.isCompressed(data) === false
+      new String(data, "UTF-8") === "{\"a\":1}"
+
+      Compressor.isCompressed(c.compress(body(text))) === true
+    }
+
+    "use the compression level" >> {
+      val fast = new Compressor(1, 0, 0).compress(body(text))
+      val none = new Compressor(0, 0, 0).compress(body(text))
+      none.length must be_>(fast.length)
+      gunzip(none) === text
+      new Compressor(42, 0, 0).getLevel === -1
+    }
+
+    "be usable from many threads" >> {
+      val c = new Compressor(-1, 0, 2)
+      val threads = for (i <- 1 to 8) yield new Thread() {
+        var ok = true
+
+        override def run() {
+          for (j <- 1 to 50) {
+            val s = text + i + "-" + j
+            ok &= gunzip(c.compress(body(s))) == s
+          }
+        }
+      }
+      threads.foreach(_.start())
+      threads.foreach(_.join())
+      c.close()
+      threads.forall(_.ok) === true
+    }
+
+    "compress with a dictionary" >> {
+      val c = new Compressor(-1, 0, 2, dict)
+      val data = c.compress(body(text))
+      Compressor.getEncoding(data) === "deflate"
+      Dictionary.getId(data) === dict.getId
+      data.length must be_<(new Compressor(-1, 0, 0).compress(body(text)).length)
+      inflate(data, dict) === text
+    }
+
+    "recode data compressed with a dictionary" >> {
+      val c = new Compressor(-1, 0, 2, dict)
+      val data = c.compress(body(text))
+      c.recode(data) must be(data)
+
+      c.disableDictionary() === true
+      c.disableDictionary() === false
+      c.getDictionary must beNull
+      val gz = c.recode(data)
+      Compressor.getEncoding(gz) === "gzip"
+      gunzip(gz) === text
+      c.recode(gz) must be(gz)
+
+      new Compressor(-1, 0, 0).recode(data) must throwA[java.io.IOException]
+    }
+
+    "detect the encoding" >> {
+      Compressor.getEncoding("{}".getBytes("UTF-8")) must beNull
+      Compressor.getEncoding(new Compressor(-1, 0, 0).compress(body(text))) === "gzip"
+      Compressor.getEncoding(new Array[Byte](1)) must beNull
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  val text = (1 to 200).map(i => "{\"key\":\"value-" + (i % 7) + "\"}").mkString("[", ",", "]")
+
+  def body(s: String) = new Sender.Body {
+    def writeTo(out: OutputStream) {
+      out.write(s.getBytes("UTF-8"))
+    }
+  }
+
+  val dict = new Dictionary("{\"key\":\"value-".getBytes("UTF-8"))
+
+  def inflate(data: Array[Byte], dict: Dictionary) = {
+    val inf = new Inflater()
+    inf.setInput(data)
+    val bos = new ByteArrayOutputStream()
+    val buf = new Array[Byte](1024)
+    while (!inf.finished()) {
+      val n = inf.inflate(buf)
+      if (n == 0 && inf.needsDictionary()) inf.setDictionary(dict.getData)
+      bos.write(buf, 0, n)
+    }
+    inf.end()
+    new String(bos.toByteArray, "UTF-8")
+  }
+
+  def gunzip(data: Array[Byte]) = {
+    val in = new GZIPInputStream(new ByteArrayInputStream(data))
+    val bos = new ByteArrayOutputStream()
+    val buf = new Array[Byte](1024)
+    var n = in.read(buf)
+    while (n != -1) {
+      bos.write(buf, 0, n)
+      n = in.read(buf)
+    }
+    new String(bos.toByteArray, "UTF-8")
+  }
+}
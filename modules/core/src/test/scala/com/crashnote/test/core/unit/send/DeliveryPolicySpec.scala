@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.send
+
+import com.crashnote.core.send.DeliveryPolicy
+import com.crashnote.core.send.DeliveryPolicy.State
+import com.crashnote.test.base.defs.UnitSpec
+
+class DeliveryPolicySpec
+  extends UnitSpec {
+
+  "Delivery Policy" should {
+
+    "back off exponentially with jitter" >> {
+      val policy = new ManualPolicy()
+      for (i <- 1 to 20) {
+        policy.getBackoff(0) must beBetween(50L, 100L)
+        policy.getBackoff(2) must beBetween(200L, 400L)
+        policy.getBackoff(10) must beBetween(500L, 1000L)
+        policy.getBackoff(100) must beBetween(500L, 1000L)
+      }
+      new DeliveryPolicy(2, 0, 0, 0, 0).getBackoff(3) === 0
+    }
+
+    "open the circuit after consecutive failures" >> {
+      val policy = new ManualPolicy()
+      policy.onFailure()
+      policy.onFailure()
+      policy.onSuccess()
+      policy.onFailure()
+      policy.onFailure()
+      policy.getState === State.CLOSED
+      policy.allowRequest() === true
+
+      policy.onFailure()
+      policy.getState === State.OPEN
+      policy.allowRequest() === false
+    }
+
+    "probe with a single request when the open-time has passed" >> {
+      val policy = new ManualPolicy()
+      for (i <- 1 to 3) policy.onFailure()
+
+      policy.time += 10000
+      policy.allowRequest() === true
+      policy.getState === State.HALF_OPEN
+      policy.allowRequest() === false
+
+      // failed probe: open again
+      policy.onFailure()
+      policy.getState === State.OPEN
+      policy.allowRequest() === false
+
+      // successful probe: close
+      policy.time += 10000
+      policy.allowRequest() === true
+      policy.onSuccess()
+      policy.getState === State.CLOSED
+      policy.allowRequest() === true
+    }
+
+    "never open the circuit without a threshold" >> {
+      val policy = new DeliveryPolicy(0, 0, 0, 0, 1000)
+      for (i <- 1 to 100) policy.onFailure()
+      policy.allowRequest() === true
+    }
+
+    "pause when asked by the server" >> {
+      val policy = new ManualPolicy()
+      policy.onThrottled(5000)
+      policy.allowRequest() === false
+      policy.time += 5000
+      policy.allowRequest() === true
+
+      policy.onThrottled(Long.MaxValue)
+      policy.time += DeliveryPolicy.MAX_PAUSE
+      policy.allowRequest() === true
+    }
+
+    "parse 'Retry-After'" >> {
+      val policy = new ManualPolicy()
+      policy.parseRetryAfter("120") === 120000
+      policy.parseRetryAfter(" 3 ") === 3000
+      policy.parseRetryAfter("-3") === 0
+      policy.parseRetryAfter(null) === 0
+      policy.parseRetryAfter("soon") === 0
+
+      policy.time = 784111777000L - 30000 // Sun, 06 Nov 1994 08:49:37 GMT
+      policy.parseRetryAfter("Sun, 06 Nov 1994 08:49:37 GMT") === 30000
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  class ManualPolicy extends DeliveryPolicy(2, 100, 1000, 3, 10000) {
+    var time = 1000000L
+
+    override protected def now() = time
+  }
+}
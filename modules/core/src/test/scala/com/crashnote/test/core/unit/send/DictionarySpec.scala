@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.send
+
+import java.io.{File, FileOutputStream, OutputStream}
+import java.util.zip.Adler32
+import com.crashnote.core.send.{Compressor, Dictionary, Sender}
+import com.crashnote.test.base.defs.UnitSpec
+
+class DictionarySpec
+  extends UnitSpec {
+
+  "Dictionary" should {
+
+    "load the built-in dictionary" >> {
+      val dict = Dictionary.load("builtin")
+      dict.getData.length must be_>(0)
+      dict.getData.length must be_<=(Dictionary.MAX_SIZE)
+      dict.getId.length === 8
+    }
+
+    "load a dictionary from a file" >> {
+      val file = File.createTempFile("crashnote", ".dict")
+      file.deleteOnExit()
+      val out = new FileOutputStream(file)
+      out.write("\"message\":".getBytes("UTF-8"))
+      out.close()
+
+      val dict = Dictionary.load(file.getPath)
+      new String(dict.getData, "UTF-8") === "\"message\":"
+
+      Dictionary.load(file.getPath + ".missing") must throwA[java.io.IOException]
+    }
+
+    "be identified by its checksum" >> {
+      val data = "{\"errors\":[".getBytes("UTF-8")
+      val adler = new Adler32()
+      adler.update(data)
+      new Dictionary(data).getId === "%08x".format(adler.getValue)
+
+      new Dictionary(new Array[Byte](0)) must throwA[IllegalArgumentException]
+      new Dictionary(new Array[Byte](Dictionary.MAX_SIZE + 1)) must throwA[IllegalArgumentException]
+    }
+
+    "read its ID from compressed data" >> {
+      val dict = Dictionary.load("builtin")
+      val data = new Compressor(-1, 0, 0, dict).compress(body(report(1)))
+      Dictionary.getId(data) === dict.getId
+      Dictionary.getId(new Compressor(-1, 0, 0).compress(body(report(1)))) must beNull
+      Dictionary.getId("{}".getBytes("UTF-8")) must beNull
+      Dictionary.getId("{\"errors\":[]}".getBytes("UTF-8")) must beNull
+      Dictionary.getId("[{\"errors\":[]}]".getBytes("UTF-8")) must beNull
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  def report(i: Int) =
+    "{\"errors\":[{\"occurredAt\":" + (1350000000000L + i) + ",\"message\":\"oops\",\"thread\":\"main\"," +
+      "\"level\":\"ERROR\",\"id\":\"id-" + i + "\",\"exceptions\":[{\"message\":\"boom\"," +
+      "\"class\":\"java.lang.IllegalStateException\",\"stacktrace\":[" +
+      "\"com.example.Service:Service.java:handle:" + i + "\",\"java.lang.Thread:Thread.java:run:722\"]}]}]," +
+      "\"environment\":{\"runtime\":{\"name\":\"Java HotSpot(TM) 64-Bit Server VM\",\"type\":\"java\"}}}"
+
+  def body(s: String) = new Sender.Body {
+    def writeTo(out: OutputStream) {
+      out.write(s.getBytes("UTF-8"))
+    }
+  }
+}
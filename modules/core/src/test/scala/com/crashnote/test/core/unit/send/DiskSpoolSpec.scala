@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.send
+
+import java.io.{RandomAccessFile, File}
+import scala.collection.mutable.ListBuffer
+import org.specs2.mutable.After
+import com.crashnote.core.config.CrashConfig
+import com.crashnote.core.log.LogLogFactory
+import com.crashnote.core.send.DiskSpool
+import com.crashnote.test.base.defs.MockSpec
+
+class DiskSpoolSpec
+  extends MockSpec {
+
+  "Disk Spool" should {
+
+    "re-send spooled bodies in order" >> new Spooled {
+      spool.start()
+      spool.append("application/json", key(1), body(1)) === true
+      spool.append("application/json", key(2), body(2)) === true
+      spool.getPendingCount === 2
+
+      up = true
+      spool.drain() === 2
+      received.map(_._3.head) === List(1, 2)
+      received.head._1 === "application/json"
+      received.head._2 === "k1"
+      spool.getPendingCount === 0
+      spool.getDeliveredCount === 2
+      spool.stop()
+    }
+
+    "stop at the first failure" >> new Spooled {
+      spool.start()
+      spool.append("application/json", key(1), body(1))
+      spool.drain() === 0
+      spool.isBackedUp === true
+      spool.getPendingCount === 1
+
+      up = true
+      spool.drain() === 1
+      spool.isBackedUp === false
+      spool.stop()
+    }
+
+    "recover pending bodies after a restart" >> new Spooled {
+      spool.start()
+      spool.append("application/json", key(1), body(1))
+      spool.append("application/x-ndjson", key(2), body(2))
+      up = true
+      spool.drain() === 2
+      up = false
+      spool.append("application/json", key(3), body(3))
+      spool.stop()
+
+      val restarted = create()
+      restarted.start()
+      restarted.getPendingCount === 1
+      up = true
+      restarted.drain() === 1
+      received.map(_._3.head) === List(1, 2, 3)
+      received.last._2 === "k3"
+      restarted.stop()
+    }
+
+    "not share its directory with another spool" >> new Spooled {
+      spool.start() === true
+      spool.append("application/json", key(1), body(1))
+
+      val other = create()
+      other.start() === false
+      other.append("application/json", key(2), body(2)) === false
+      other.getPendingCount === 0
+
+      spool.stop()
+      other.start() === true
+      other.getPendingCount === 1
+      other.stop()
+    }
+
+    "keep the context of a body across a restart" >> new Spooled {
+      spool.start()
+      spool.append("application/json", key(1), body(1), "env".getBytes("UTF-8"))
+      spool.append("application/json", key(2), body(2))
+      spool.stop()
+
+      val restarted = create()
+      restarted.start()
+      up = true
+      restarted.drain() === 2
+      new String(received(0)._4, "UTF-8") === "env"
+      received(1)._4 must beNull
+      restarted.stop()
+    }
+
+    "ignore a torn record" >> new Spooled {
+      spool.start()
+      spool.append("application/json", key(1), body(1))
+      spool.append("application/json", key(2), body(2))
+      spool.stop()
+
+      // corrupt the body of the second record
+      val file = dir.listFiles().head
+      val raf = new RandomAccessFile(file, "rw")
+      val pos = 2 * (26 + "application/json".length + "k1".length + 100) - 10
+      raf.seek(pos)
+      raf.write(42)
+      raf.close()
+
+      val restarted = create()
+      restarted.start()
+      restarted.getPendingCount === 1
+      up = true
+      restarted.drain() === 1
+      received.map(_._3.head) === List(1)
+      restarted.stop()
+    }
+
+    "drop the oldest segments when full" >> new Spooled {
+      spool.start()
+      for (i <- 1 to 10) spool.append("application/json", key(i), body(i, 30 * 1024))
+      spool.getSegmentCount === 2
+      spool.getPendingCount === 4
+      spool.getDroppedCount === 6
+      dir.list().count(_.endsWith(".log")) === 2
+
+      up = true
+      spool.drain() === 4
+      received.map(_._3.head) === List(7, 8, 9, 10)
+      spool.stop()
+    }
+
+    "drop outdated bodies" >> new Spooled {
+      spool.start()
+      spool.append("application/json", key(1), body(1), null, System.currentTimeMillis() - 2 * 60 * 60 * 1000)
+      spool.append("application/json", key(2), body(2))
+
+      up = true
+      spool.drain() === 1
+      received.map(_._3.head) === List(2)
+      spool.getDroppedCount === 1
+      spool.stop()
+    }
+
+    "not accept bodies larger than a segment" >> new Spooled {
+      spool.start()
+      spool.append("application/json", key(1), body(1, 65 * 1024)) === false
+      spool.getPendingCount === 0
+      spool.stop()
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  def key(n: Int) = "k" + n
+
+  def body(n: Int, size: Int = 100) = {
+    val b = new Array[Byte](size)
+    b(0) = n.toByte
+    b
+  }
+
+  class Spooled extends After {
+    val dir = File.createTempFile("spool", "")
+    dir.delete()
+
+    def after {
+      spool.stop()
+      delete(dir)
+    }
+
+    def delete(f: File) {
+      Option(f.listFiles).foreach(_.foreach(delete))
+      f.delete()
+    }
+
+    @volatile var up = false
+    val received = ListBuffer[(String, String, Array[Byte], Array[Byte])]()
+
+    val delivery = new DiskSpool.Delivery {
+      def deliver(contentType: String, key: String, body: Array[Byte], context: Array[Byte]) = {
+        if (up) received += ((contentType, key, body, context))
+        up
+      }
+    }
+
+    lazy val logger = new LogLogFactory(mock[CrashConfig]).getLogger("")
+
+    def create() =
+      new DiskSpool(dir, 64 * 1024, 128 * 1024, 60 * 60 * 1000, 60 * 60 * 1000, delivery, logger)
+
+    val spool = create()
+  }
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.send
+
+import java.io.File
+import scala.collection.JavaConversions._
+import org.specs2.mutable.After
+import com.crashnote.core.build.Builder
+import com.crashnote.core.collect.Collector
+import com.crashnote.core.model.log.{FrameDictionary, LogReport}
+import com.crashnote.core.report.impl.session.LocalLogSession
+import com.crashnote.core.send.Sender
+import com.crashnote.core.util.SystemUtil
+import com.crashnote.external.config.{ConfigFactory, ConfigParseOptions, ConfigSyntax}
+import com.crashnote.test.core.defs.TargetMockSpec
+import com.crashnote.test.core.util.FrameServer
+
+class FrameDictionarySpec
+  extends TargetMockSpec[Sender] {
+
+  "Frame Dictionary" should {
+
+    "assign an ID to each frame" >> {
+      val dict = new FrameDictionary(16)
+      val a = dict.lookup(frame(1))
+      dict.lookup(frame(2)).getId !== a.getId
+      dict.lookup(frame(1)) must be(a)
+      a.getText === "com.Foo:Foo.java:bar:1"
+      dict.getEntries.map(_.getId).toList === List(0, 1)
+    }
+
+    "define a frame only once" >> {
+      val entry = new FrameDictionary(16).lookup(frame(1))
+      entry.define() must beTrue
+      entry.define() must beFalse
+    }
+
+    "not grow beyond its size" >> {
+      val dict = new FrameDictionary(2)
+      dict.lookup(frame(1))
+      dict.lookup(frame(2))
+      dict.lookup(frame(3)) must beNull
+      dict.lookup(frame(1)).getId === 0
+      dict.size === 2
+    }
+
+    "be shared within the process" >> {
+      FrameDictionary.getShared must be(FrameDictionary.getShared)
+      new FrameDictionary(1).getEpoch !== new FrameDictionary(1).getEpoch
+    }
+  }
+
+  "Collector" should {
+
+    "refer to stack frames by ID" >> new Configured(FRAMES) {
+      val s = session(newLogEvt())
+      val first = parse(collector.streamLog(s).toString)
+      val frames = first.get("frames").asInstanceOf[java.util.Map[String, AnyRef]]
+      frames.get("epoch") === dict.getEpoch
+      stacktraces(first).forall(_.isInstanceOf[Number]) must beTrue
+
+      val defs = frames.get("defs").asInstanceOf[java.util.Map[String, AnyRef]]
+      defs.size === dict.size
+      stacktraces(parse(collector.streamLog(s).toString)) === stacktraces(first)
+    }
+
+    "define the frames until they were delivered" >> new Configured(FRAMES) {
+      val s = session(newLogEvt())
+      val first = collector.streamLog(s)
+      parse(first.toString)
+      first.getFrameDefinitions.size === dict.size
+      defs(parse(collector.streamLog(s).toString)).size === dict.size
+
+      first.getFrameDefinitions.foreach(_.define())
+      defs(parse(collector.streamLog(s).toString)) must beNull
+    }
+
+    "but only if enabled" >> new Configured() {
+      val report = collector.streamLog(session(newLogEvt())).toString
+      report must not contain ("\"frames\"")
+      report must contain("com.crashnote")
+    }
+  }
+
+  "Sender" should {
+
+    "deliver reports the endpoint can resolve" >> new Configured(FRAMES) {
+      val first = session(newLogEvt("first"))
+      val second = session(newLogEvt("second"), newLogEvt("third"))
+      target.send(collector.streamLog(first))
+      target.send(collector.streamLog(second))
+
+      server.requests.toList === List(("/", 200), ("/", 200))
+      stacktraces(server.reports(0)) === stacktraces(collected(first))
+      stacktraces(server.reports(1)) === stacktraces(collected(second))
+    }
+
+    "register the dictionary when the endpoint does not know it" >> new Configured(FRAMES) {
+      target.send(collector.streamLog(session(newLogEvt("first"))))
+      server.reset()
+
+      val s = session(newLogEvt("second"))
+      target.send(collector.streamLog(s))
+      server.requests.toList === List(("/", 200), ("/", 409), ("/frames", 200), ("/", 200))
+      stacktraces(server.reports.last) === stacktraces(collected(s))
+    }
+
+    "define the frames of a report only once it was delivered" >> new Configured(FRAMES) {
+      server.accepting = false
+      target.send(collector.streamLog(session(newLogEvt("first"))))
+      dict.getEntries.exists(_.isDefined) must beFalse
+
+      server.accepting = true
+      val second = collector.streamLog(session(newLogEvt("second")))
+      target.send(second)
+      server.requests.toList === List(("/", 503), ("/", 200))
+      second.getFrameDefinitions.forall(_.isDefined) must beTrue
+    }
+
+    "drop a spooled report that refers to the frames of a former process" >> new Spooled {
+      target.start()
+      target.send(collector.streamLog(session(newLogEvt("first"))))
+      server.accepting = false
+      target.send(collector.streamLog(session(newLogEvt("second"))))
+      target.getSpool.getPendingCount === 1
+      target.stop()
+
+      server.reset()
+      server.accepting = true
+      restarted.start()
+      restarted.getSpool.drain() === 1 // (done with it)
+      restarted.getSpool.getPendingCount === 0
+      server.requests.toList.drop(2) === List(("/", 409), ("/frames", 200), ("/", 409))
+      server.reports.size === 1
+    }
+
+    "but give up if that fails" >> new Configured(FRAMES) {
+      target.send(collector.streamLog(session(newLogEvt("first"))))
+      server.reset()
+      server.registering = false
+
+      target.send(collector.streamLog(session(newLogEvt("second"))))
+      server.requests.toList === List(("/", 200), ("/", 409), ("/frames", 503))
+      server.reports.size === 1
+    }
+  }
+
+  step(server.stop())
+
+  // SETUP ======================================================================================
+
+  lazy val server = new FrameServer
+
+  var dict: FrameDictionary = _
+  var collector: Collector = _
+  var conf: C = _
+  var spoolDir: File = _
+
+  lazy val FRAMES = (config: C) => config.isFrameDictionary returns true
+
+  lazy val SPOOL = (config: C) => {
+    spoolDir = File.createTempFile("spool", "")
+    spoolDir.delete()
+    config.isSpooling returns true
+    config.getSpoolDir returns spoolDir
+    config.getSpoolSegmentSize returns 64 * 1024L
+    config.getSpoolMaxSize returns 1024 * 1024L
+    config.getSpoolMaxAge returns 60 * 60 * 1000L
+    config.getSpoolInterval returns 60 * 60 * 1000L
+  }
+
+  /**
+   * A sender with a spool, plus the one that takes over the spool after a restart.
+   */
+  class Spooled extends Configured(FRAMES, SPOOL) with After {
+    lazy val restarted = new Sender(conf) // (with a dictionary of another epoch)
+
+    def after {
+      target.stop()
+      restarted.stop()
+      delete(spoolDir)
+    }
+
+    def delete(f: File) {
+      Option(f.listFiles).foreach(_.foreach(delete))
+      f.delete()
+    }
+  }
+
+  def configure(config: C) = {
+    server.clear()
+    dict = new FrameDictionary(FrameDictionary.MAX_SIZE)
+    conf = config
+
+    config.getSystemUtil returns new SystemUtil()
+    config.getEnvironmentFilters returns List[String]()
+    config.getPostURL returns server.url
+    config.getConnectionTimeout returns 10000
+    config.getCompressionLevel returns -1
+
+    collector = new Collector(config) {
+      override protected def createFrameDictionary() = dict
+    }
+    new Sender(config) {
+      override protected def createFrameDictionary() = dict
+    }
+  }
+
+  def frame(line: Int) =
+    new StackTraceElement("com.Foo", "bar", "Foo.java", line)
+
+  def session(evts: com.crashnote.core.model.log.LogEvt[_]*) = {
+    val s = new LocalLogSession()
+    evts.foreach(s.addEvent(_))
+    s
+  }
+
+  def collected(s: LocalLogSession) =
+    parse(collector.collectLog(s).toString)
+
+  def defs(report: java.util.Map[String, AnyRef]) =
+    report.get("frames").asInstanceOf[java.util.Map[String, AnyRef]].get("defs").asInstanceOf[java.util.Map[String, AnyRef]]
+
+  def stacktraces(report: java.util.Map[String, AnyRef]) =
+    for (error <- report.get("errors").asInstanceOf[java.util.List[java.util.Map[String, AnyRef]]].toList;
+         excp <- error.get("exceptions").asInstanceOf[java.util.List[java.util.Map[String, AnyRef]]].toList;
+         frame <- excp.get("stacktrace").asInstanceOf[java.util.List[AnyRef]].toList)
+    yield frame
+
+  def parse(json: String) =
+    ConfigFactory.parseString(json, ConfigParseOptions.defaults().setSyntax(ConfigSyntax.JSON))
+      .root().unwrapped().asInstanceOf[java.util.Map[String, AnyRef]]
+}
@@ -17,11 +17,18 @@ package com.crashnote.test.core.unit.send
 
 import java.io._
 import java.net.HttpURLConnection
+import java.util.zip.{GZIPInputStream, GZIPOutputStream}
+import org.mockito.invocation.InvocationOnMock
+import org.mockito.stubbing.Answer
 
+import com.crashnote.core.build.BinaryBuilder
+import com.crashnote.core.build.impl.BinaryDecoder
+import com.crashnote.core.config.CrashConfig
 import com.crashnote.core.model.types.LogType
-import com.crashnote.core.model.log.LogReport
+import com.crashnote.core.model.log.{LogEnv, LogReport}
 import com.crashnote.core.build.impl.JSONDataObject
-import com.crashnote.core.send.Sender
+import com.crashnote.core.send.{Compressor, DeliveryPolicy, Dictionary, DiskSpool, Sender}
+import com.crashnote.core.stats.Statistics
 import com.crashnote.test.core.defs.TargetMockSpec
 
 class SenderSpec
@@ -31,6 +38,8 @@ class SenderSpec
   var m_conn: HttpURLConnection = _
   var m_stream: OutputStream = _
   var m_writer: Writer = _
+  var m_spool: DiskSpool = _
+  var m_response: InputStream = _
 
   "Sender" should {
 
@@ -40,6 +49,12 @@ class SenderSpec
         checkConnection(url)
       }
 
+      "in binary" >> new Response(200, binary = true) {
+        target.send(report)
+        there was one(m_conn).setRequestProperty("Content-Type", BinaryBuilder.BINARY_TYPE)
+        BinaryDecoder.decode(gunzip(sent.toByteArray)).toString === "{}"
+      }
+
       "with stream" >> {
         "write error" >> new Response(0) {
           m_stream.write(any[Array[Byte]]) throws new IOException("oops")
@@ -80,6 +95,199 @@ class SenderSpec
         target.send(report)
       }
     }
+
+    "spool" >> {
+      "when the server fails" >> new Response(503, spooling = true) {
+        target.send(report)
+        there was one(m_spool).append(org.mockito.Matchers.eq("application/json; charset=utf-8"), anyString, any[Array[Byte]], any[Array[Byte]])
+      }
+      "when the connection fails" >> new Response(-1, spooling = true) {
+        target.send(report)
+        there was one(m_spool).append(anyString, anyString, any[Array[Byte]], any[Array[Byte]])
+      }
+      "when the endpoint is known to be down" >> new Response(200, spooling = true) {
+        m_spool.isBackedUp returns true
+        target.send(report)
+        m_conn must beNull
+        there was one(m_spool).append(anyString, anyString, any[Array[Byte]], any[Array[Byte]])
+      }
+      "but not on success" >> new Response(200, spooling = true) {
+        target.send(report)
+        there was no(m_spool).append(anyString, anyString, any[Array[Byte]], any[Array[Byte]])
+      }
+      "but not on a client error" >> new Response(400, spooling = true) {
+        target.send(report)
+        there was no(m_spool).append(anyString, anyString, any[Array[Byte]], any[Array[Byte]])
+      }
+    }
+
+    "retry" >> {
+      "on a server error" >> new Response(503, retries = 2) {
+        target.send(report)
+        connections === 3
+      }
+      "on a connection error" >> new Response(-1, retries = 2) {
+        target.send(report)
+        connections === 3
+      }
+      "but not on success" >> new Response(200, retries = 2) {
+        target.send(report)
+        connections === 1
+      }
+      "but not on a client error" >> new Response(400, retries = 2) {
+        target.send(report)
+        connections === 1
+      }
+      "but not when asked to pause" >> new Response(429, retries = 2, retryAfter = "120") {
+        target.send(report)
+        connections === 1
+        target.getDeliveryPolicy.isPaused === true
+
+        target.send(report)
+        connections === 1
+      }
+    }
+
+    "keep the connection alive" >> {
+      "by reading the response" >> new Response(200, keepAlive = true) {
+        target.send(report)
+        there was one(m_conn).getInputStream
+        there was one(m_response).close()
+        there was no(m_conn).disconnect()
+      }
+      "by reading the error response" >> new Response(400, keepAlive = true) {
+        target.send(report)
+        there was one(m_conn).getErrorStream
+        there was one(m_response).close()
+        there was no(m_conn).disconnect()
+      }
+      "but not after an error" >> new Response(0, keepAlive = true) {
+        target.send(report)
+        there was one(m_conn).disconnect()
+      }
+      "but not with a large response" >> new Response(200, keepAlive = true, responseSize = 100 * 1024) {
+        target.send(report)
+        there was one(m_response).close()
+        there was one(m_conn).disconnect()
+      }
+    }
+
+    "stream the body" >> {
+      "in chunks" >> new Response(200, streaming = true) {
+        target.send(report)
+        there was one(m_conn).setChunkedStreamingMode(8192)
+      }
+      "with a fixed length when buffered" >> new Response(200, streaming = true) {
+        val data = new Array[Byte](1000)
+        sender.postBuffered(data)
+        there was one(m_conn).setFixedLengthStreamingMode(compress(data).length)
+        there was one(m_stream).write(compress(data))
+      }
+      "but not without streaming" >> new Response(200) {
+        sender.postBuffered(new Array[Byte](1000))
+        there was no(m_conn).setFixedLengthStreamingMode(anyInt)
+        there was no(m_conn).setChunkedStreamingMode(anyInt)
+      }
+      "and spool it compressed" >> new Response(503, streaming = true, spooling = true) {
+        val data = new Array[Byte](1000)
+        sender.postBuffered(data)
+        there was one(m_spool).append(anyString, anyString, org.mockito.Matchers.eq(compress(data)), any[Array[Byte]])
+      }
+    }
+
+    "compress" >> {
+      "a large body" >> new Response(200, threshold = 512) {
+        val data = new Array[Byte](1000)
+        sender.postBuffered(data)
+        there was one(m_conn).setRequestProperty("Content-Encoding", "gzip")
+        sent.toByteArray === compress(data)
+      }
+      "but not a small body" >> new Response(200, threshold = 512) {
+        val data = new Array[Byte](100)
+        sender.postBuffered(data)
+        there was no(m_conn).setRequestProperty("Content-Encoding", "gzip")
+        sent.toByteArray === data
+      }
+      "but not a small body in memory" >> new Response(200, threshold = 512, streaming = true) {
+        val data = new Array[Byte](100)
+        sender.postBuffered(data)
+        there was no(m_conn).setRequestProperty("Content-Encoding", "gzip")
+        there was one(m_conn).setFixedLengthStreamingMode(100)
+        there was one(m_stream).write(data)
+      }
+      "with a dictionary" >> new Response(200, dictionary = "builtin") {
+        sender.postBuffered(new Array[Byte](1000))
+        there was one(m_conn).setRequestProperty("Content-Encoding", "deflate")
+        there was one(m_conn).setRequestProperty("Crashnote-Dictionary", Dictionary.load("builtin").getId)
+        Compressor.getEncoding(sent.toByteArray) === "deflate"
+      }
+      "but not name a dictionary for a small body in memory" >> new Response(200, threshold = 512,
+        dictionary = "builtin", streaming = true) {
+        val data = "{\"errors\":[]}".getBytes("UTF-8")
+        sender.postBuffered(data)
+        there was no(m_conn).setRequestProperty(org.mockito.Matchers.eq("Crashnote-Dictionary"), anyString)
+        there was no(m_conn).setRequestProperty(org.mockito.Matchers.eq("Content-Encoding"), anyString)
+        there was one(m_stream).write(data)
+      }
+      "and fall back to gzip if the dictionary is unknown" >> new Response(415, dictionary = "builtin") {
+        sender.postBuffered(new Array[Byte](1000))
+        connections === 2
+        there was one(m_conn).setRequestProperty("Content-Encoding", "gzip")
+        sender.getCompressor.getDictionary must beNull
+
+        sender.postBuffered(new Array[Byte](1000))
+        connections === 3
+      }
+      "and fall back to gzip in memory" >> new Response(415, dictionary = "builtin", streaming = true) {
+        val data = new Array[Byte](1000)
+        sender.postBuffered(data)
+        connections === 2
+        there was one(m_stream).write(compress(data))
+      }
+    }
+
+    "register the environment" >> {
+      "when the endpoint does not know it" >> new Response(412, next = 200) {
+        target.send(new LogReport(new JSONDataObject, env))
+        connections === 3
+        urls(1) === url + "/environment"
+        urls(2) === url
+      }
+      "but not twice for the same report" >> new Response(412) {
+        target.send(new LogReport(new JSONDataObject, env))
+        connections === 2
+      }
+      "but not without an environment" >> new Response(412) {
+        target.send(report)
+        connections === 1
+      }
+    }
+
+    "record statistics" >> {
+      "of a delivered request" >> new Response(200) {
+        target.send(report)
+        stats.getRequests === 1
+        stats.getRequestsFailed === 0
+        stats.getBytesSent === sent.size
+        stats.getRequestSize.getMax === sent.size
+        stats.getRequestLatency.getCount === 1
+      }
+      "of a failed request" >> new Response(503) {
+        target.send(report)
+        stats.getRequests === 1
+        stats.getRequestsFailed === 1
+      }
+    }
+
+    "fail fast when the circuit is open" >> new Response(503, failures = 2) {
+      target.send(report)
+      target.send(report)
+      connections === 2
+      target.getDeliveryPolicy.getState === DeliveryPolicy.State.OPEN
+
+      target.send(report)
+      connections === 2
+    }
   }
 
   private def checkConnection(url: String) =
@@ -88,6 +296,7 @@ class SenderSpec
       expect {
         one(m_conn).setRequestProperty("Content-Encoding", "gzip")
         one(m_conn).setRequestProperty("Content-Type", "application/json; charset=utf-8")
+        one(m_conn).setRequestProperty(org.mockito.Matchers.eq("Idempotency-Key"), anyString)
 
         one(m_conn).setUseCaches(false)
         one(m_conn).setDoOutput(true)
@@ -102,6 +311,32 @@ class SenderSpec
 
   // SETUP ======================================================================================
 
+  def compress(data: Array[Byte]) = {
+    val bos = new ByteArrayOutputStream()
+    val gz = new GZIPOutputStream(bos)
+    gz.write(data)
+    gz.close()
+    bos.toByteArray
+  }
+
+  def gunzip(data: Array[Byte]) = {
+    val in = new GZIPInputStream(new ByteArrayInputStream(data))
+    val bos = new ByteArrayOutputStream()
+    val buf = new Array[Byte](1024)
+    var n = in.read(buf)
+    while (n != -1) {
+      bos.write(buf, 0, n)
+      n = in.read(buf)
+    }
+    bos.toByteArray
+  }
+
+  val env = {
+    val data = new JSONDataObject
+    data.put("app", "spec")
+    new LogEnv("0123456789abcdef", data)
+  }
+
   val key = "0000000000000000000000000000000"
   val url = "https://error.crashnote.io:443"
   val client = "spec-1.0"
@@ -112,18 +347,47 @@ class SenderSpec
     mc.getPostURL returns url
     mc.getClientInfo returns client
     mc.getConnectionTimeout returns 10000
+    mc.getCompressionLevel returns -1
     mc
   }
 
-  class Response(resp: java.lang.Integer, repType: LogType = LogType.ERR) extends Configured {
+  class Response(resp: java.lang.Integer, repType: LogType = LogType.ERR, spooling: Boolean = false,
+                 retries: Int = 0, failures: Int = 0, retryAfter: String = null,
+                 keepAlive: Boolean = false, responseSize: Int = 2, streaming: Boolean = false,
+                 threshold: Int = 0, dictionary: String = null, binary: Boolean = false,
+                 next: Int = 0)
+    extends Configured {
 
     val m_conf = mockConfig()
+    m_conf.isSpooling returns spooling
+    m_conf.getRetryMax returns retries
+    m_conf.getCircuitFailures returns failures
+    m_conf.getCircuitOpenTime returns 60000L
+    m_conf.isKeepAlive returns keepAlive
+    m_conf.isStreamingRequests returns streaming
+    m_conf.getChunkSize returns 8192
+    m_conf.getCompressionThreshold returns threshold
+    m_conf.getCompressionDictionary returns dictionary
+    if (binary) m_conf.getBuilder returns new BinaryBuilder
+    val stats = new Statistics
+    m_conf.getStatistics returns stats
+    var connections = 0
+    val urls = scala.collection.mutable.ListBuffer[String]()
+    val sent = new ByteArrayOutputStream()
     configure(m_conf)
 
-    target = new Sender(m_conf) {
+    m_conn = null
+    m_spool = mock[DiskSpool]
+    m_spool.append(anyString, anyString, any[Array[Byte]], any[Array[Byte]]) returns true
+
+    class StubSender extends Sender(m_conf) {
+      override protected def createSpool[C <: CrashConfig](config: C) = m_spool
+
       override protected def createConnection(url: String) = {
         m_conn = null
         m_stream = null
+        connections += 1
+        urls += url
 
         if (resp == -1) throw new IOException("oops")
 
@@ -132,11 +396,30 @@ class SenderSpec
         if (resp == 0)
           doThrow(new IOException("oops")).when(m_conn).getResponseCode
         else
-          doReturn(resp).when(m_conn).getResponseCode
+          doReturn(if (connections > 1 && next != 0) next else resp.intValue).when(m_conn).getResponseCode
+        doReturn(retryAfter).when(m_conn).getHeaderField("Retry-After")
+
+        // init response
+        m_response = spy[InputStream](new ByteArrayInputStream(new Array[Byte](responseSize)))
+        doReturn(m_response).when(m_conn).getInputStream
+        doReturn(m_response).when(m_conn).getErrorStream
 
         // init stream
         m_stream = mock[OutputStream]
         doReturn(m_stream).when(m_conn).getOutputStream
+        org.mockito.Mockito.doAnswer(new Answer[Unit] {
+          def answer(inv: InvocationOnMock) {
+            val args = inv.getArguments
+            if (args(0) != null)
+              sent.write(args(0).asInstanceOf[Array[Byte]], args(1).asInstanceOf[Int], args(2).asInstanceOf[Int])
+          }
+        }).when(m_stream).write(any[Array[Byte]], anyInt, anyInt)
+        org.mockito.Mockito.doAnswer(new Answer[Unit] {
+          def answer(inv: InvocationOnMock) {
+            if (inv.getArguments()(0) != null)
+              sent.write(inv.getArguments()(0).asInstanceOf[Array[Byte]])
+          }
+        }).when(m_stream).write(any[Array[Byte]])
 
         m_conn
       }
@@ -145,8 +428,19 @@ class SenderSpec
         m_writer = mock[Writer]
         m_writer
       }
+
+      def postBuffered(data: Array[Byte]) {
+        POST(url, "application/json", new Sender.BufferedBody {
+          def writeTo(out: OutputStream) {
+            out.write(data)
+          }
+        })
+      }
     }
 
+    val sender = new StubSender
+    target = sender
+
     report = new LogReport(new JSONDataObject)
   }
 
@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.send
+
+import java.io.{ByteArrayInputStream, ByteArrayOutputStream, File}
+import java.net.{HttpURLConnection, URL}
+import java.util.zip.GZIPInputStream
+import scala.collection.mutable.ListBuffer
+import org.specs2.mutable.After
+
+import com.crashnote.core.build.impl.JSONDataObject
+import com.crashnote.core.config.CrashConfig
+import com.crashnote.core.model.log.{LogEnv, LogReport}
+import com.crashnote.core.send.{Compressor, Sender}
+import com.crashnote.test.core.defs.TargetMockSpec
+
+class SpoolReplaySpec
+  extends TargetMockSpec[Sender] {
+
+  "Sender with a spool" should {
+
+    "register the environment of a spooled body after a restart" >> new Endpoint {
+      down = true
+      create(envA).send(report(envA))
+      restart()
+
+      down = false
+      val sender = create(envB)
+      sender.getSpool.getPendingCount === 1
+      sender.getSpool.drain() === 1
+      registered.toList === List("aaaa")
+      delivered.toList === List("aaaa")
+
+      sender.send(report(envB))
+      delivered.toList === List("aaaa", "bbbb")
+    }
+
+    "drop a spooled body if its environment can't be registered" >> new Endpoint {
+      down = true
+      create(envA).send(report(envA))
+      restart()
+
+      down = false
+      rejectEnv = true
+      val sender = create(envB)
+      sender.getSpool.drain() === 1 // (done with it)
+      sender.getSpool.getPendingCount === 0
+      sender.getSpool.isBackedUp === false
+      delivered must beEmpty
+
+      registered.clear()
+      rejectEnv = false
+      sender.send(report(envB))
+      delivered.toList === List("bbbb")
+    }
+
+    "keep a spooled body while the environment can't be registered yet" >> new Endpoint {
+      down = true
+      create(envA).send(report(envA))
+      restart()
+
+      failEnv = true
+      down = false
+      val sender = create(envB)
+      sender.getSpool.drain() === 0
+      sender.getSpool.getPendingCount === 1
+
+      failEnv = false
+      sender.getSpool.drain() === 1
+      delivered.toList === List("aaaa")
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  val url = "http://localhost:1"
+
+  val envA = createEnv("aaaa")
+  val envB = createEnv("bbbb")
+
+  def createEnv(hash: String) = {
+    val data = new JSONDataObject
+    data.put("app", hash)
+    new LogEnv(hash, data)
+  }
+
+  def report(env: LogEnv) = {
+    val data = new JSONDataObject
+    data.put("environmentHash", env.getHash)
+    new LogReport(data, env)
+  }
+
+  /**
+   * A stand-in for the endpoint that knows the environments registered with it.
+   */
+  class Endpoint extends After {
+    val dir = File.createTempFile("spool", "")
+    dir.delete()
+
+    @volatile var down = false
+    @volatile var rejectEnv = false
+    @volatile var failEnv = false
+    val registered = ListBuffer[String]()
+    val delivered = ListBuffer[String]()
+    val senders = ListBuffer[Sender]()
+
+    def after {
+      restart()
+      delete(dir)
+    }
+
+    def delete(f: File) {
+      Option(f.listFiles).foreach(_.foreach(delete))
+      f.delete()
+    }
+
+    def restart() {
+      senders.foreach(_.stop())
+      senders.clear()
+    }
+
+    def create(env: LogEnv) = {
+      val conf = mockConfig()
+      conf.getPostURL returns url
+      conf.getConnectionTimeout returns 1000
+      conf.getCompressionLevel returns -1
+      conf.isSpooling returns true
+      conf.getSpoolDir returns dir
+      conf.getSpoolSegmentSize returns 64 * 1024L
+      conf.getSpoolMaxSize returns 1024 * 1024L
+      conf.getSpoolMaxAge returns 60 * 60 * 1000L
+      conf.getSpoolInterval returns 60 * 60 * 1000L
+
+      val sender = new Sender(conf) {
+        override protected def createConnection(spec: String) = new Connection(new URL(spec))
+      }
+      sender.start()
+      senders += sender
+      sender
+    }
+
+    def answer(path: String, body: String) = {
+      val hash = "\"environmentHash\":\"(\\w+)\"".r.findFirstMatchIn(body).map(_.group(1)).orNull
+      if (down) 503
+      else if (path == "/environment") {
+        if (failEnv) 503
+        else if (rejectEnv) 400
+        else {
+          registered += hash
+          200
+        }
+      } else if (!registered.contains(hash)) 412
+      else {
+        delivered += hash
+        200
+      }
+    }
+
+    class Connection(u: URL) extends HttpURLConnection(u) {
+      val out = new ByteArrayOutputStream()
+      lazy val code = answer(u.getPath, decode(out.toByteArray))
+
+      def connect() {
+        connected = true
+      }
+
+      def disconnect() {}
+
+      def usingProxy = false
+
+      override def getOutputStream = out
+
+      override def getInputStream = new ByteArrayInputStream(new Array[Byte](0))
+
+      override def getErrorStream = getInputStream
+
+      override def getResponseCode = code
+    }
+
+    def decode(data: Array[Byte]) =
+      if (Compressor.getEncoding(data) == null) new String(data, "UTF-8")
+      else scala.io.Source.fromInputStream(new GZIPInputStream(new ByteArrayInputStream(data)), "UTF-8").mkString
+  }
+
+  def configure(config: C) = null
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.stats
+
+import java.lang.management.ManagementFactory
+import javax.management.Attribute
+import com.crashnote.core.model.types.LogLevel
+import com.crashnote.core.report.Reporter
+import com.crashnote.core.report.impl.admission.AdmissionControl
+import com.crashnote.core.report.impl.processor.Processor
+import com.crashnote.core.stats.{Monitor, Statistics}
+import com.crashnote.test.core.defs.TargetMockSpec
+
+class MonitorSpec
+  extends TargetMockSpec[Monitor] {
+
+  "Monitor" should {
+
+    "expose the statistics via JMX" >> new Configured() {
+      target.register("Test") === true
+      val name = target.getName
+      name.toString must startWith("com.crashnote:type=Test,id=")
+      try {
+        stats.eventReceived()
+        stats.requestSent(100, 2000000, true)
+        m_processor.getQueueSize returns 3
+
+        server.getAttribute(name, "EventsReceived") === 1
+        server.getAttribute(name, "QueueSize") === 3
+        server.getAttribute(name, "BytesSent") === 100
+        server.getAttribute(name, "RequestLatencyMaxMillis") === 2.0
+
+        server.invoke(name, "resetStatistics", null, null)
+        server.getAttribute(name, "EventsReceived") === 0
+      } finally {
+        target.unregister()
+      }
+      server.isRegistered(name) === false
+      target.getName must beNull
+    }
+
+    "change the sample target" >> new Configured() {
+      m_reporter.getAdmissionControl returns m_admission
+      m_admission.getSampleTarget returns 20L
+
+      target.getSampleTarget === 20
+      target.setSampleTarget(5)
+      there was one(m_admission).setSampleTarget(5)
+    }
+
+    "but not without admission control" >> new Configured() {
+      target.getSampleTarget === 0
+      target.getSampleProbability === 1.0
+      target.setSampleTarget(5) must throwA[IllegalStateException]
+    }
+
+    "change the log level" >> new Configured() {
+      var applied: LogLevel = null
+      target = new Monitor(m_reporter, LogLevel.ERROR, new Monitor.LogLevelControl {
+        def setLogLevel(lvl: LogLevel) {
+          applied = lvl
+        }
+      })
+      target.getLogLevel === "ERROR"
+      target.setLogLevel("warn")
+      applied === LogLevel.WARN
+      target.getLogLevel === "WARN"
+
+      target.setLogLevel("loud") must throwA[IllegalArgumentException]
+      target.getLogLevel === "WARN"
+
+      target.register("Test") === true
+      try {
+        server.setAttribute(target.getName, new Attribute("LogLevel", "DEBUG"))
+        applied === LogLevel.DEBUG
+      } finally {
+        target.unregister()
+      }
+    }
+
+    "but not without appenders" >> new Configured() {
+      target.setLogLevel("WARN") must throwA[IllegalStateException]
+      target.getLogLevel === "ERROR"
+
+      target.register("Test") === true
+      try {
+        server.setAttribute(target.getName, new Attribute("LogLevel", "WARN")) must throwA[Exception]
+        server.getAttribute(target.getName, "LogLevel") === "ERROR"
+      } finally {
+        target.unregister()
+      }
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  val server = ManagementFactory.getPlatformMBeanServer
+
+  var stats: Statistics = _
+  var m_reporter: Reporter = _
+  var m_processor: Processor = _
+  var m_admission: AdmissionControl = _
+
+  def configure(config: C) = {
+    stats = new Statistics
+    m_processor = mock[Processor]
+    m_admission = mock[AdmissionControl]
+    m_reporter = mock[Reporter]
+    m_reporter.getStatistics returns stats
+    m_reporter.getProcessor returns m_processor
+    m_reporter.getLogger returns config.getLogger(classOf[Monitor])
+    new Monitor(m_reporter, LogLevel.ERROR)
+  }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.util
+
+import com.crashnote.core.util.ClassFilter
+import com.crashnote.test.base.defs.UnitSpec
+import scala.collection.JavaConversions._
+
+class ClassFilterSpec
+  extends UnitSpec {
+
+  "Class Filter" should {
+
+    val filter = new ClassFilter(List("sun.reflect.*", "*$$Enhancer*", "com.example.Exact", "org.*.Impl*"))
+
+    "match prefixes" >> {
+      filter.matches("sun.reflect.NativeMethodAccessorImpl") === true
+      filter.matches("sun.misc.Unsafe") === false
+    }
+
+    "match infixes" >> {
+      filter.matches("com.example.DAO$$EnhancerByCGLIB$$1a") === true
+    }
+
+    "match exact names" >> {
+      filter.matches("com.example.Exact") === true
+      filter.matches("com.example.ExactNot") === false
+    }
+
+    "match other patterns" >> {
+      filter.matches("org.example.ImplFoo") === true
+      filter.matches("org.example.Foo") === false
+    }
+
+    "treat special characters literally" >> {
+      new ClassFilter(List("a.b*")).matches("aXb") === false
+    }
+
+    "be empty without patterns" >> {
+      new ClassFilter(null).isEmpty === true
+      new ClassFilter(List[String]()).matches("any") === false
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.unit.util
+
+import java.net.InetAddress
+import java.util.concurrent.CountDownLatch
+import com.crashnote.core.util.HostResolver
+import com.crashnote.test.base.defs.UnitSpec
+
+class HostResolverSpec
+  extends UnitSpec {
+
+  "Host Resolver" should {
+
+    "return placeholders while resolving" >> {
+      val latch = new CountDownLatch(1)
+      val resolver = new SlowResolver(latch)
+
+      resolver.getHostName === HostResolver.UNKNOWN
+      resolver.getHostAddress === HostResolver.UNKNOWN
+      resolver.getMacAddress === null
+      resolver.isResolved === false
+
+      latch.countDown()
+      resolver.await(5000) === true
+      resolver.getHostName === "test-host"
+      resolver.getHostAddress === "10.0.0.1"
+    }
+
+    "keep the last known identity when a refresh fails" >> {
+      val resolver = new FlakyResolver()
+      resolver.refresh()
+      resolver.await(5000) === true
+      resolver.getHostName === "test-host"
+
+      resolver.fail = true
+      Thread.sleep(20)
+      resolver.getHostName === "test-host"
+      Thread.sleep(50)
+      resolver.getHostName === "test-host"
+      resolver.lookups must be_>(1)
+    }
+
+    "retry a failed lookup before the time-to-live expired" >> {
+      val resolver = new FlakyResolver(60000, 10)
+      resolver.fail = true
+      resolver.refresh()
+      resolver.await(5000) === true
+      resolver.isResolved === false
+
+      resolver.fail = false
+      Thread.sleep(20)
+      resolver.getHostName === HostResolver.UNKNOWN
+      Thread.sleep(50)
+      resolver.getHostName === "test-host"
+      resolver.lookups === 2
+    }
+
+    "share an instance" >> {
+      HostResolver.getShared(1000) must beTheSameAs(HostResolver.getShared(2000))
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  def testHost = InetAddress.getByAddress("test-host", Array[Byte](10, 0, 0, 1))
+
+  class SlowResolver(latch: CountDownLatch) extends HostResolver(60000) {
+    override def lookup() = {
+      latch.await()
+      testHost
+    }
+  }
+
+  class FlakyResolver(ttl: Long = 10, retryDelay: Long = 10) extends HostResolver(ttl, retryDelay) {
+    @volatile var fail = false
+    @volatile var lookups = 0
+
+    override def lookup() = {
+      lookups += 1
+      if (fail) throw new java.net.UnknownHostException("test")
+      testHost
+    }
+  }
+}
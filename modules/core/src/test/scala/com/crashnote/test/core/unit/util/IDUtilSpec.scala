@@ -36,5 +36,80 @@ class IDUtilSpec
       id1 !== 0
       id1 !== id2
     }
+
+    "generate increasing IDs within a thread" >> {
+      val ids = Seq.fill(10000)(nextID())
+      ids.sliding(2).forall { case Seq(a, b) => a < b } === true
+      ids.forall(_ > 0) === true
+    }
+
+    "generate unique IDs across threads" >> {
+      val pool = java.util.concurrent.Executors.newFixedThreadPool(4)
+      val tasks = (1 to 4).map { _ =>
+        pool.submit(new java.util.concurrent.Callable[Seq[Long]] {
+          def call() = Seq.fill(50000)(nextID())
+        })
+      }
+      val ids = tasks.flatMap(_.get)
+      pool.shutdown()
+
+      ids.toSet.size === ids.size
+    }
+
+    "generate unique IDs for more threads than there are nodes" >> {
+      val start = new java.util.concurrent.CountDownLatch(1)
+      val ids = new java.util.concurrent.ConcurrentLinkedQueue[Long]()
+      val threads = (1 to 2000).map { _ =>
+        val t = new Thread(new Runnable {
+          def run() {
+            start.await()
+            ids.add(nextID())
+            ids.add(nextID())
+          }
+        })
+        t.start()
+        t
+      }
+      start.countDown()
+      threads.foreach(_.join())
+
+      ids.size === 4000
+      ids.toArray.toSet.size === 4000
+    }
+
+    "generate unique IDs for threads that replace finished ones" >> {
+      val ids = new java.util.concurrent.ConcurrentLinkedQueue[Long]()
+      for (wave <- 1 to 3) {
+        val threads = (1 to 1000).map { _ =>
+          val t = new Thread(new Runnable {
+            def run() {
+              for (i <- 1 to 20) ids.add(nextID()) // (more than one block)
+            }
+          })
+          t.start()
+          t
+        }
+        threads.foreach(_.join())
+      }
+
+      ids.size === 60000
+      ids.toArray.toSet.size === 60000
+    }
+
+    "tell when an ID was generated" >> {
+      val before = System.currentTimeMillis()
+      val ts = getTimestamp(nextID())
+      ts must be_>=(before)
+      ts must be_<=(System.currentTimeMillis() + 1000)
+    }
+
+    "format an ID so it sorts like the number" >> {
+      format(0x1fL) === "000000000000001f"
+      format(java.lang.Long.MAX_VALUE) === "7fffffffffffffff"
+
+      val (a, b) = (nextID(), nextID())
+      format(a).length === 16
+      format(a) must be_<(format(b))
+    }
   }
 }
\ No newline at end of file
@@ -57,6 +57,8 @@ class SystemUtilSpec
     }
 
     "access network props" >> {
+      util.getHostResolver.await(10000) === true
+
       util.getSystemId must not be empty
       util.getHostName must not be empty
       util.getHostAddress must not be empty
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.core.util
+
+import java.io.{ByteArrayOutputStream, InputStream}
+import java.net.InetSocketAddress
+import java.util.zip.{GZIPInputStream, InflaterInputStream}
+import scala.collection.JavaConversions._
+import scala.collection.mutable
+import com.sun.net.httpserver.{HttpExchange, HttpHandler, HttpServer}
+import com.crashnote.external.config.{ConfigFactory, ConfigParseOptions, ConfigSyntax}
+
+/**
+ * Local stand-in for an endpoint that resolves frame IDs (see FrameDictionary): it keeps the
+ * frames of every epoch it was told about, answers with 409 if a report refers to an unknown
+ * epoch or frame and otherwise records the report - with the IDs replaced by the frames' text.
+ */
+class FrameServer {
+
+  type Doc = java.util.Map[String, AnyRef]
+
+  val epochs = mutable.Map[String, mutable.Map[Int, String]]()
+  val reports = mutable.ListBuffer[Doc]()
+  val requests = mutable.ListBuffer[(String, Int)]()
+
+  // whether dictionaries can be registered (otherwise answered with 503)
+  @volatile var registering = true
+
+  // whether reports are taken (otherwise answered with 503, like an endpoint that is down)
+  @volatile var accepting = true
+
+  private val server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0)
+  server.createContext("/", new HttpHandler {
+    def handle(ex: HttpExchange) {
+      val path = ex.getRequestURI.getPath
+      val status =
+        try receive(path, parse(ex))
+        catch {
+          case e: Exception => 400
+        }
+      requests.synchronized(requests += ((path, status)))
+      ex.sendResponseHeaders(status, -1)
+      ex.close()
+    }
+  })
+  server.start()
+
+  def url = "http://127.0.0.1:" + server.getAddress.getPort
+
+  def stop() {
+    server.stop(0)
+  }
+
+  /**
+   * Forgets all epochs, like a restarted endpoint.
+   */
+  def reset() {
+    synchronized(epochs.clear())
+  }
+
+  /**
+   * Forgets everything, including the received requests.
+   */
+  def clear() {
+    synchronized {
+      epochs.clear()
+      reports.clear()
+      requests.clear()
+      registering = true
+      accepting = true
+    }
+  }
+
+  def receive(path: String, doc: Doc): Int = synchronized {
+    if (path.endsWith("/frames")) {
+      if (!registering) return 503
+      define(doc)
+      200
+    } else {
+      if (!accepting) return 503
+      val frames = doc.remove("frames").asInstanceOf[Doc]
+      if (frames != null) define(frames)
+      val dict = if (frames == null) None else epochs.get(frames.get("epoch").toString)
+
+      for (error <- list(doc.get("errors")); excp <- list(error.get("exceptions"))) {
+        val resolved = new java.util.ArrayList[AnyRef]()
+        for (frame <- excp.get("stacktrace").asInstanceOf[java.util.List[AnyRef]]) frame match {
+          case id: Number =>
+            dict.flatMap(_.get(id.intValue)) match {
+              case Some(text) => resolved.add(text)
+              case None => return 409
+            }
+          case text => resolved.add(text)
+        }
+        excp.put("stacktrace", resolved)
+      }
+      reports += doc
+      200
+    }
+  }
+
+  // INTERNALS ==================================================================================
+
+  private def define(frames: Doc) {
+    val dict = epochs.getOrElseUpdate(frames.get("epoch").toString, mutable.Map[Int, String]())
+    val defs = frames.get("defs").asInstanceOf[Doc]
+    if (defs != null)
+      for ((id, text) <- defs) dict(id.toInt) = text.toString
+  }
+
+  private def list(value: AnyRef) =
+    if (value == null) Nil else value.asInstanceOf[java.util.List[Doc]].toList
+
+  private def parse(ex: HttpExchange): Doc = {
+    val in: InputStream = ex.getRequestHeaders.getFirst("Content-Encoding") match {
+      case "gzip" => new GZIPInputStream(ex.getRequestBody)
+      case "deflate" => new InflaterInputStream(ex.getRequestBody)
+      case _ => ex.getRequestBody
+    }
+    val bos = new ByteArrayOutputStream()
+    val buf = new Array[Byte](1024)
+    var n = in.read(buf)
+    while (n != -1) {
+      bos.write(buf, 0, n)
+      n = in.read(buf)
+    }
+    val json = new String(bos.toByteArray, "UTF-8")
+    ConfigFactory.parseString(json, ConfigParseOptions.defaults().setSyntax(ConfigSyntax.JSON))
+      .root().unwrapped()
+  }
+}
@@ -16,6 +16,7 @@
 package com.crashnote.external.json;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -41,6 +42,11 @@ public class JSONArray
      * @see JSONValue#writeJSONString(Object, Writer)
      */
     public static void writeJSONString(final List list, final Writer out) throws IOException {
+        if (out instanceof JSONEncoder.EncoderWriter) {
+            ((JSONEncoder.EncoderWriter) out).getEncoder().writeList(list);
+            return;
+        }
+
         if (list == null) {
             out.write("null");
             return;
@@ -72,6 +78,17 @@ public class JSONArray
         writeJSONString(this, out);
     }
 
+    /**
+     * Encode into JSON text and write it to out as UTF-8, using a {@link JSONEncoder}.
+     *
+     * @param out
+     */
+    public void writeJSONString(final OutputStream out) throws IOException {
+        final JSONEncoder encoder = new JSONEncoder(out);
+        writeJSONString(encoder.asWriter());
+        encoder.flush();
+    }
+
     /**
      * Convert a list to JSON text. The result is a JSON array.
      * If this list is also a JSONAware, JSONAware specific behaviours will be omitted at this top level.
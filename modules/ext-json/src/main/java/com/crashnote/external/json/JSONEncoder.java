@@ -0,0 +1,445 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.external.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes JSON text as UTF-8 bytes into a reusable buffer, which is drained into an
+ * {@link OutputStream} (e.g. a GZIPOutputStream) whenever it is full. Without a stream the
+ * buffer grows instead, its content can then be copied into a byte array or {@link ByteBuffer}.
+ * <p/>
+ * Strings are escaped and encoded in a single pass, runs of ASCII characters go through a lookup
+ * table; integers are formatted without creating strings. The output is identical to the one of
+ * {@link JSONValue#writeJSONString(Object, Writer)} encoded as UTF-8.
+ * <p/>
+ * Code that writes to a {@link Writer} can use {@link #asWriter()}: the JSON classes of this
+ * package recognize that writer and switch to the encoder. An instance is not thread-safe.
+ */
+@SuppressWarnings("rawtypes")
+public class JSONEncoder {
+
+    // CONST ======================================================================================
+
+    private static final int DEFAULT_SIZE = 8192;
+
+    /**
+     * max number of bytes a single char can turn into (unicode escape)
+     */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    private static final byte[] HEX = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] MIN_LONG = {
+        '-', '9', '2', '2', '3', '3', '7', '2', '0', '3', '6', '8', '5', '4', '7', '7', '5', '8', '0', '8'};
+
+    /**
+     * escapes of the ASCII chars: 0 = none, 'u' = unicode escape, else char following the backslash
+     */
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) ESCAPES[c] = 'u';
+        ESCAPES[0x7F] = 'u';
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['/'] = '/';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\t'] = 't';
+    }
+
+
+    // VARS =======================================================================================
+
+    private OutputStream out;
+    private byte[] buf;
+    private int pos;
+
+    // high surrogate at the end of the last chunk written via the writer
+    private char pendingHigh;
+
+    private EncoderWriter writer;
+
+
+    // SETUP ======================================================================================
+
+    public JSONEncoder() {
+        this(null, DEFAULT_SIZE);
+    }
+
+    public JSONEncoder(final OutputStream out) {
+        this(out, DEFAULT_SIZE);
+    }
+
+    public JSONEncoder(final OutputStream out, final int bufferSize) {
+        this.out = out;
+        this.buf = new byte[Math.max(16, bufferSize)];
+    }
+
+    /**
+     * Discards any buffered output and directs the encoder to a new stream, keeping the buffer.
+     */
+    public JSONEncoder reset(final OutputStream out) {
+        this.out = out;
+        this.pos = 0;
+        this.pendingHigh = 0;
+        return this;
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * Encodes any value, see {@link JSONValue#writeJSONString(Object, Writer)}.
+     */
+    public void writeValue(final Object value) throws IOException {
+        if (value == null) writeRaw(NULL, 0, NULL.length);
+        else if (value instanceof String) writeString((String) value);
+        else if (value instanceof Double) writeDouble((Double) value);
+        else if (value instanceof Float) writeDouble((Float) value);
+        else if (value instanceof Integer || value instanceof Long
+            || value instanceof Short || value instanceof Byte) writeLong(((Number) value).longValue());
+        else if (value instanceof Number || value instanceof Boolean) writeRaw(value.toString());
+        else if (value instanceof JSONStreamAware) ((JSONStreamAware) value).writeJSONString(asWriter());
+        else if (value instanceof JSONAware) writeRaw(((JSONAware) value).toJSONString());
+        else if (value instanceof Map) writeMap((Map) value);
+        else if (value instanceof List) writeList((List) value);
+        else writeRaw(value.toString());
+    }
+
+    public void writeMap(final Map map) throws IOException {
+        if (map == null) {
+            writeRaw(NULL, 0, NULL.length);
+            return;
+        }
+
+        writeAscii('{');
+        boolean first = true;
+        for (final Iterator iter = map.entrySet().iterator(); iter.hasNext(); ) {
+            if (first) first = false;
+            else writeAscii(',');
+
+            final Map.Entry entry = (Map.Entry) iter.next();
+            writeString(String.valueOf(entry.getKey()));
+            writeAscii(':');
+            writeValue(entry.getValue());
+        }
+        writeAscii('}');
+    }
+
+    public void writeList(final List list) throws IOException {
+        if (list == null) {
+            writeRaw(NULL, 0, NULL.length);
+            return;
+        }
+
+        writeAscii('[');
+        boolean first = true;
+        for (final Iterator iter = list.iterator(); iter.hasNext(); ) {
+            if (first) first = false;
+            else writeAscii(',');
+            writeValue(iter.next());
+        }
+        writeAscii(']');
+    }
+
+    /**
+     * Writes the string in quotes, escaped.
+     */
+    public void writeString(final String s) throws IOException {
+        writeAscii('"');
+        encode(s, 0, s.length(), true);
+        writeAscii('"');
+    }
+
+    /**
+     * Writes the string escaped, but without quotes (e.g. to compose a string value of parts).
+     */
+    public void writeEscaped(final String s) throws IOException {
+        encode(s, 0, s.length(), true);
+    }
+
+    public void writeLong(final long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeRaw(MIN_LONG, 0, MIN_LONG.length);
+            return;
+        }
+        ensure(20);
+
+        long v = value;
+        if (v < 0) {
+            buf[pos++] = '-';
+            v = -v;
+        }
+
+        int digits = 1;
+        for (long n = v / 10; n != 0; n /= 10) digits++;
+
+        int p = pos + digits;
+        pos = p;
+        do {
+            buf[--p] = (byte) ('0' + (v % 10));
+            v /= 10;
+        } while (v != 0);
+    }
+
+    /**
+     * Writes a floating point number like {@link Double#toString(double)} (non-finite values as
+     * 'null'), this still creates a temporary string.
+     */
+    public void writeDouble(final double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) writeRaw(NULL, 0, NULL.length);
+        else writeRaw(Double.toString(value));
+    }
+
+    /**
+     * Writes a single ASCII char (e.g. a bracket), as is.
+     */
+    public void writeAscii(final char c) throws IOException {
+        if (pos == buf.length) makeRoom(1);
+        buf[pos++] = (byte) c;
+    }
+
+    /**
+     * Writes the string as is, encoded as UTF-8.
+     */
+    public void writeRaw(final String s) throws IOException {
+        encode(s, 0, s.length(), false);
+    }
+
+    /**
+     * Writes already encoded bytes as is.
+     */
+    public void writeRaw(final byte[] bytes, final int off, final int len) throws IOException {
+        if (buf.length - pos < len) makeRoom(len);
+        if (buf.length - pos >= len) {
+            System.arraycopy(bytes, off, buf, pos, len);
+            pos += len;
+        } else {
+            out.write(bytes, off, len);
+        }
+    }
+
+    /**
+     * Drains the buffer into the stream and flushes it.
+     */
+    public void flush() throws IOException {
+        if (out != null) {
+            if (pos > 0) out.write(buf, 0, pos);
+            pos = 0;
+            out.flush();
+        }
+    }
+
+    /**
+     * Flushes and closes the stream.
+     */
+    public void close() throws IOException {
+        if (out != null) {
+            try {
+                flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * @return number of bytes currently in the buffer
+     */
+    public int size() {
+        return pos;
+    }
+
+    public byte[] toByteArray() {
+        final byte[] res = new byte[pos];
+        System.arraycopy(buf, 0, res, 0, pos);
+        return res;
+    }
+
+    /**
+     * Copies the buffered bytes into the passed buffer and clears this encoder's buffer.
+     */
+    public void writeTo(final ByteBuffer dst) {
+        dst.put(buf, 0, pos);
+        pos = 0;
+    }
+
+    /**
+     * @return a writer that encodes all chars written to it as (unescaped) UTF-8 into this encoder
+     */
+    public Writer asWriter() {
+        if (writer == null) writer = new EncoderWriter(this);
+        return writer;
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private void ensure(final int n) throws IOException {
+        if (buf.length - pos < n) makeRoom(n);
+    }
+
+    /**
+     * Drains the buffer into the stream; grows it if there is no stream or it is still too small.
+     */
+    private void makeRoom(final int n) throws IOException {
+        if (out != null && pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+        if (buf.length - pos < n && (out == null || n <= DEFAULT_SIZE * 8)) {
+            final byte[] grown = new byte[Math.max(buf.length * 2, pos + n)];
+            System.arraycopy(buf, 0, grown, 0, pos);
+            buf = grown;
+        }
+    }
+
+    private void encode(final CharSequence s, final int from, final int to, final boolean escape)
+        throws IOException {
+        int i = from;
+        if (pendingHigh != 0 && i < to) {
+            final char high = pendingHigh;
+            pendingHigh = 0;
+            ensure(4);
+            if (Character.isLowSurrogate(s.charAt(i)))
+                pos = utf8(buf, pos, Character.toCodePoint(high, s.charAt(i++)));
+            else
+                buf[pos++] = '?';
+        }
+
+        while (i < to) {
+            if (buf.length - pos < 2 * MAX_CHAR_BYTES) makeRoom(2 * MAX_CHAR_BYTES);
+
+            // each char is guaranteed room for its longest encoding
+            final int stop = Math.min(to, i + (buf.length - pos) / MAX_CHAR_BYTES);
+            final byte[] b = buf;
+            int p = pos;
+            while (i < stop) {
+                final char c = s.charAt(i++);
+                if (c < 0x80) {
+                    final byte esc = escape ? ESCAPES[c] : 0;
+                    if (esc == 0) {
+                        b[p++] = (byte) c;
+                    } else if (esc == 'u') {
+                        p = unicodeEscape(b, p, c);
+                    } else {
+                        b[p++] = '\\';
+                        b[p++] = esc;
+                    }
+                } else if (escape && (c <= 0x9F || (c >= 0x2000 && c <= 0x20FF))) {
+                    p = unicodeEscape(b, p, c);
+                } else if (c < 0x800) {
+                    b[p++] = (byte) (0xC0 | (c >> 6));
+                    b[p++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c)) {
+                    if (i < to && Character.isLowSurrogate(s.charAt(i))) {
+                        p = utf8(b, p, Character.toCodePoint(c, s.charAt(i++)));
+                    } else if (i == to && !escape) {
+                        pendingHigh = c; // pair is split across writes
+                    } else {
+                        b[p++] = '?';
+                    }
+                } else if (Character.isLowSurrogate(c)) {
+                    b[p++] = '?';
+                } else {
+                    b[p++] = (byte) (0xE0 | (c >> 12));
+                    b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    b[p++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            pos = p;
+        }
+    }
+
+    private static int unicodeEscape(final byte[] b, int p, final char c) {
+        b[p++] = '\\';
+        b[p++] = 'u';
+        b[p++] = HEX[(c >> 12) & 0xF];
+        b[p++] = HEX[(c >> 8) & 0xF];
+        b[p++] = HEX[(c >> 4) & 0xF];
+        b[p++] = HEX[c & 0xF];
+        return p;
+    }
+
+    private static int utf8(final byte[] b, int p, final int cp) {
+        if (cp < 0x10000) {
+            b[p++] = (byte) (0xE0 | (cp >> 12));
+            b[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        } else {
+            b[p++] = (byte) (0xF0 | (cp >> 18));
+            b[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            b[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        }
+        b[p++] = (byte) (0x80 | (cp & 0x3F));
+        return p;
+    }
+
+    /**
+     * Bridges char-based code into the encoder; all chars are written without escaping.
+     */
+    public static final class EncoderWriter
+        extends Writer {
+
+        private final JSONEncoder encoder;
+
+        private EncoderWriter(final JSONEncoder encoder) {
+            this.encoder = encoder;
+        }
+
+        public JSONEncoder getEncoder() {
+            return encoder;
+        }
+
+        @Override
+        public void write(final int c) throws IOException {
+            if (c < 0x80 && encoder.pendingHigh == 0) encoder.writeAscii((char) c);
+            else encoder.encode(String.valueOf((char) c), 0, 1, false);
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) throws IOException {
+            encoder.encode(CharBuffer.wrap(cbuf), off, off + len, false);
+        }
+
+        @Override
+        public void write(final String str, final int off, final int len) throws IOException {
+            encoder.encode(str, off, off + len, false);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            encoder.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            encoder.close();
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package com.crashnote.external.json;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -46,6 +47,11 @@ public class JSONObject
      * @see JSONValue#writeJSONString(Object, Writer)
      */
     public static void writeJSONString(final Map map, final Writer out) throws IOException {
+        if (out instanceof JSONEncoder.EncoderWriter) {
+            ((JSONEncoder.EncoderWriter) out).getEncoder().writeMap(map);
+            return;
+        }
+
         if (map == null) {
             out.write("null");
             return;
@@ -75,6 +81,17 @@ public class JSONObject
         writeJSONString(this, out);
     }
 
+    /**
+     * Encode into JSON text and write it to out as UTF-8, using a {@link JSONEncoder}.
+     *
+     * @param out
+     */
+    public void writeJSONString(final OutputStream out) throws IOException {
+        final JSONEncoder encoder = new JSONEncoder(out);
+        writeJSONString(encoder.asWriter());
+        encoder.flush();
+    }
+
     /**
      * Convert a map to JSON text. The result is a JSON object.
      * If this map is also a JSONAware, JSONAware specific behaviours will be omitted at this top level.
@@ -39,6 +39,11 @@ public class JSONValue {
      * @see JSONArray#writeJSONString(List, Writer)
      */
     public static void writeJSONString(final Object value, final Writer out) throws IOException {
+        if (out instanceof JSONEncoder.EncoderWriter) {
+            ((JSONEncoder.EncoderWriter) out).getEncoder().writeValue(value);
+            return;
+        }
+
         if (value == null) {
             out.write("null");
             return;
@@ -0,0 +1,400 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.load;
+
+import com.crashnote.core.model.data.Histogram;
+import com.crashnote.core.send.Dictionary;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Local stand-in for the crashnote endpoint, on top of the JDK's HTTP server.
+ * <p/>
+ * It accepts every report (and environment or frame registration), decompresses it and counts
+ * the events within - recognized by a {@link #marker(long, long)} in their message, which also
+ * tells the time the event was logged, hence its delivery latency.
+ * <p/>
+ * Faults can be injected at any time: a latency per request and shares of requests that fail
+ * (503), are throttled (429) or whose connection is closed without an answer.
+ */
+public class CollectorServer {
+
+    // CONST ======================================================================================
+
+    private static final Pattern MARKER = Pattern.compile("load#(\\d+)@(\\d+)");
+
+
+    // VARS =======================================================================================
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Random random = new Random();
+
+    // dictionaries that compressed requests may refer to
+    private final ConcurrentMap<String, Dictionary> dictionaries = new ConcurrentHashMap<String, Dictionary>();
+
+    // injected faults
+    private volatile long latency;
+    private volatile double failRate;
+    private volatile double throttleRate;
+    private volatile double resetRate;
+
+    // traffic
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+
+    // events: sequence numbers seen, duplicates (e.g. retried after a lost answer) and latency
+    private final ConcurrentMap<Long, Boolean> events = new ConcurrentHashMap<Long, Boolean>();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong lastEvent = new AtomicLong();
+    private final Histogram deliveryLatency = new Histogram();
+
+
+    // SETUP ======================================================================================
+
+    public CollectorServer() throws IOException {
+        this(0, 4);
+    }
+
+    /**
+     * @param port    port to listen on (0 = any free one)
+     * @param threads number of threads that handle requests
+     */
+    public CollectorServer(final int port, final int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange ex) throws IOException {
+                CollectorServer.this.handle(ex);
+            }
+        });
+        executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        server.setExecutor(executor);
+
+        final Dictionary builtin = Dictionary.load(Dictionary.BUILTIN);
+        dictionaries.put(builtin.getId(), builtin);
+    }
+
+
+    // LIFECYCLE ==================================================================================
+
+    public CollectorServer start() {
+        server.start();
+        return this;
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    /**
+     * @return the text to put into a log message, so the server recognizes the event
+     */
+    public static String marker(final long seq, final long nanoTime) {
+        return "load#" + seq + "@" + nanoTime;
+    }
+
+    /**
+     * Accepts requests compressed with the given dictionary, too.
+     */
+    public void addDictionary(final Dictionary dict) {
+        dictionaries.put(dict.getId(), dict);
+    }
+
+    /**
+     * Forgets the traffic so far (but not the faults).
+     */
+    public void clear() {
+        requests.set(0);
+        accepted.set(0);
+        rejected.set(0);
+        failed.set(0);
+        throttled.set(0);
+        resets.set(0);
+        bytes.set(0);
+        rawBytes.set(0);
+        events.clear();
+        duplicates.set(0);
+        lastEvent.set(0);
+        deliveryLatency.reset();
+    }
+
+
+    // SHARED =====================================================================================
+
+    protected void handle(final HttpExchange ex) throws IOException {
+        try {
+            requests.incrementAndGet();
+            final byte[] data = read(ex.getRequestBody());
+            bytes.addAndGet(data.length);
+
+            if (latency > 0)
+                Thread.sleep(latency);
+
+            final double r = random.nextDouble();
+            if (r < resetRate) {
+                // closing the exchange before the answer closes the connection
+                resets.incrementAndGet();
+                return;
+            }
+            if (r < resetRate + failRate) {
+                failed.incrementAndGet();
+                ex.sendResponseHeaders(503, -1);
+                return;
+            }
+            if (r < resetRate + failRate + throttleRate) {
+                throttled.incrementAndGet();
+                ex.getResponseHeaders().set("Retry-After", "1");
+                ex.sendResponseHeaders(429, -1);
+                return;
+            }
+
+            final byte[] body;
+            try {
+                body = decode(data, ex.getRequestHeaders().getFirst("Content-Encoding"));
+            } catch (IOException e) {
+                rejected.incrementAndGet();
+                ex.sendResponseHeaders(e instanceof UnknownDictionaryException ? 415 : 400, -1);
+                return;
+            }
+            rawBytes.addAndGet(body.length);
+            count(body);
+
+            accepted.incrementAndGet();
+            ex.sendResponseHeaders(202, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            ex.close();
+        }
+    }
+
+    /**
+     * Counts the events within the (uncompressed) body of a request, whatever its encoding.
+     */
+    protected void count(final byte[] body) throws IOException {
+        final long now = System.nanoTime();
+        final Matcher m = MARKER.matcher(new String(body, "ISO-8859-1"));
+        while (m.find()) {
+            final long seq = Long.parseLong(m.group(1));
+            if (events.putIfAbsent(seq, Boolean.TRUE) != null) {
+                duplicates.incrementAndGet();
+                continue;
+            }
+            deliveryLatency.record(TimeUnit.NANOSECONDS.toMicros(now - Long.parseLong(m.group(2))));
+            lastEvent.set(now);
+        }
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private byte[] decode(final byte[] data, final String encoding) throws IOException {
+        if ("gzip".equals(encoding))
+            return read(new GZIPInputStream(new ByteArrayInputStream(data)));
+        if ("deflate".equals(encoding))
+            return inflate(data);
+        return data;
+    }
+
+    private byte[] inflate(final byte[] data) throws IOException {
+        final Inflater inf = new Inflater();
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            final byte[] buf = new byte[8192];
+            inf.setInput(data);
+            while (!inf.finished()) {
+                int n = inf.inflate(buf);
+                if (n == 0 && inf.needsDictionary()) {
+                    final String id = Dictionary.getId(data);
+                    final Dictionary dict = id == null ? null : dictionaries.get(id);
+                    if (dict == null) throw new UnknownDictionaryException(id);
+                    inf.setDictionary(dict.getData());
+                    n = inf.inflate(buf);
+                }
+                if (n == 0 && inf.needsInput())
+                    throw new IOException("truncated data");
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("invalid data: " + e.getMessage());
+        } finally {
+            inf.end();
+        }
+    }
+
+    private static byte[] read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1)
+            out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+
+    @SuppressWarnings("serial")
+    private static final class UnknownDictionaryException
+        extends IOException {
+
+        UnknownDictionaryException(final String id) {
+            super("unknown dictionary '" + id + "'");
+        }
+    }
+
+
+    // GET ========================================================================================
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + getPort();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    public long getResets() {
+        return resets.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getRawBytes() {
+        return rawBytes.get();
+    }
+
+    /**
+     * @return number of distinct events received
+     */
+    public long getEvents() {
+        return events.size();
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    /**
+     * @return when the latest new event was received ({@link System#nanoTime()}, 0 if none)
+     */
+    public long getLastEvent() {
+        return lastEvent.get();
+    }
+
+    /**
+     * @return time from logging an event until it was received, in microseconds
+     */
+    public Histogram getDeliveryLatency() {
+        return deliveryLatency;
+    }
+
+    // ===== Faults
+
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * @param latency time to wait before answering a request, in milliseconds
+     */
+    public void setLatency(final long latency) {
+        this.latency = latency;
+    }
+
+    public double getFailRate() {
+        return failRate;
+    }
+
+    /**
+     * @param failRate share of requests answered with 503 (0 to 1)
+     */
+    public void setFailRate(final double failRate) {
+        this.failRate = failRate;
+    }
+
+    public double getThrottleRate() {
+        return throttleRate;
+    }
+
+    /**
+     * @param throttleRate share of requests answered with 429 (0 to 1)
+     */
+    public void setThrottleRate(final double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    public double getResetRate() {
+        return resetRate;
+    }
+
+    /**
+     * @param resetRate share of requests whose connection is closed without an answer (0 to 1)
+     */
+    public void setResetRate(final double resetRate) {
+        this.resetRate = resetRate;
+    }
+}
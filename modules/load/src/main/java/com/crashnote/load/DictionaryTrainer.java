@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.load;
+
+import com.crashnote.core.send.Dictionary;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Trains a compression {@link Dictionary} from sample reports on disk:
+ * <pre>
+ *   gradle :modules:load:dictionary -PtrainArgs="&lt;sample dir&gt; &lt;dictionary file&gt; [max size]"
+ * </pre>
+ * The file can then be configured as 'network.compression.dictionary' (and has to be known by
+ * the endpoint).
+ */
+public class DictionaryTrainer {
+
+    // CONST ======================================================================================
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // JSON strings (keys include their colon) and key-value pairs of strings
+    private static final Pattern TOKEN = Pattern.compile(
+        "\"(?:[^\"\\\\]|\\\\.)*\":\"(?:[^\"\\\\]|\\\\.)*\"|\"(?:[^\"\\\\]|\\\\.)*\":?[\\[{]?");
+
+
+    // INTERFACE ==================================================================================
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: DictionaryTrainer <sample dir> <dictionary file> [max size]");
+            System.exit(1);
+        }
+
+        final File[] files = new File(args[0]).listFiles();
+        if (files == null) throw new FileNotFoundException(args[0]);
+        final List<byte[]> samples = new ArrayList<byte[]>();
+        for (final File f : files)
+            if (f.isFile()) samples.add(read(f));
+
+        final Dictionary dict = train(samples, args.length > 2 ? Integer.parseInt(args[2]) : Dictionary.MAX_SIZE);
+        final OutputStream out = new FileOutputStream(args[1]);
+        try {
+            out.write(dict.getData());
+        } finally {
+            out.close();
+        }
+        System.out.println("trained dictionary '" + dict.getId() + "' (" + dict.getData().length
+            + " bytes) from " + samples.size() + " sample(s)");
+    }
+
+    /**
+     * Creates a dictionary from sample reports: strings that appear in more than one sample are
+     * picked by how much they would save; the most valuable strings go last, since they are the
+     * cheapest to refer to.
+     */
+    public static Dictionary train(final List<byte[]> samples, final int maxSize) {
+        final int limit = Math.min(Math.max(1, maxSize), Dictionary.MAX_SIZE);
+
+        // count in how many samples each token appears
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (final byte[] sample : samples) {
+            final Set<String> seen = new HashSet<String>();
+            final Matcher m = TOKEN.matcher(new String(sample, UTF8));
+            while (m.find()) {
+                final String token = m.group();
+                if (token.length() > 3 && seen.add(token)) {
+                    final Integer c = counts.get(token);
+                    counts.put(token, c == null ? 1 : c + 1);
+                }
+            }
+        }
+
+        final int minCount = samples.size() > 1 ? 2 : 1;
+        final List<Map.Entry<String, Integer>> ranked = new ArrayList<Map.Entry<String, Integer>>();
+        for (final Map.Entry<String, Integer> e : counts.entrySet())
+            if (e.getValue() >= minCount) ranked.add(e);
+        Collections.sort(ranked, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(final Map.Entry<String, Integer> a, final Map.Entry<String, Integer> b) {
+                final long sa = score(a), sb = score(b);
+                return sa != sb ? (sa > sb ? -1 : 1) : a.getKey().compareTo(b.getKey());
+            }
+        });
+
+        // pick the best tokens that fit (and are not part of a better one)
+        final List<byte[]> picked = new ArrayList<byte[]>();
+        final StringBuilder text = new StringBuilder();
+        int size = 0;
+        for (final Map.Entry<String, Integer> e : ranked) {
+            final String token = e.getKey();
+            final byte[] b = token.getBytes(UTF8);
+            if (size + b.length > limit || text.indexOf(token) >= 0) continue;
+            picked.add(b);
+            text.append(token).append('\n');
+            size += b.length;
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        for (int i = picked.size() - 1; i >= 0; i--)
+            out.write(picked.get(i), 0, picked.get(i).length);
+        return new Dictionary(out.size() > 0 ? out.toByteArray() : new byte[]{'{'});
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private static long score(final Map.Entry<String, Integer> e) {
+        // a back-reference costs about 3 bytes
+        return (long) e.getValue() * (e.getKey().length() - 3);
+    }
+
+    private static byte[] read(final File file) throws IOException {
+        final InputStream in = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) != -1)
+                out.write(buf, 0, n);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
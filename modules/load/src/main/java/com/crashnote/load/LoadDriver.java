@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2012 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.load;
+
+import com.crashnote.core.config.ConfigLoader;
+import com.crashnote.core.model.data.Histogram;
+import com.crashnote.core.stats.Statistics;
+import com.crashnote.external.config.Config;
+import com.crashnote.logger.config.LoggerConfig;
+import com.crashnote.logger.report.LoggerReporter;
+import com.crashnote.web.CrashSystem;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+/**
+ * Pushes log events through a {@link CrashSystem} (via 'java.util.logging') into a local
+ * {@link CollectorServer} and measures the throughput, the delivery latency, the share of
+ * errors that never arrived and the time the application's threads spend in the logger.
+ * <p/>
+ * Settings are read from system properties (defaults in brackets):
+ * <ul>
+ * <li>load.threads: application threads [4]</li>
+ * <li>load.duration: seconds to produce events [10]</li>
+ * <li>load.rate: log events per second and thread [1000]</li>
+ * <li>load.errors: share of the events that are errors (0 to 1) [0.01]</li>
+ * <li>load.depth: stack depth of the errors [32]</li>
+ * <li>load.drain: max seconds to wait for the last errors to arrive [30]</li>
+ * <li>load.latency, load.fail, load.throttle, load.reset: faults of the server, see
+ * {@link CollectorServer}</li>
+ * </ul>
+ * Any 'crashnote.*' property configures the library as usual (e.g. 'crashnote.queue.engine').
+ */
+public class LoadDriver {
+
+    // CONST ======================================================================================
+
+    private static final String LOGGER = "com.example.shop.OrderService";
+
+
+    // VARS =======================================================================================
+
+    private final int threads;
+    private final long duration;
+    private final int rate;
+    private final double errors;
+    private final int depth;
+    private final long drain;
+
+    private final CollectorServer server;
+
+    private final AtomicLong seq = new AtomicLong();
+    private final AtomicLong infos = new AtomicLong();
+
+    // time spent within the logger, in nanoseconds
+    private final Histogram errorOverhead = new Histogram();
+    private final Histogram infoOverhead = new Histogram();
+
+
+    // SETUP ======================================================================================
+
+    public LoadDriver(final CollectorServer server) {
+        this.server = server;
+        this.threads = Integer.getInteger("load.threads", 4);
+        this.duration = TimeUnit.SECONDS.toNanos(Long.getLong("load.duration", 10));
+        this.rate = Integer.getInteger("load.rate", 1000);
+        this.errors = getDouble("load.errors", 0.01);
+        this.depth = Integer.getInteger("load.depth", 32);
+        this.drain = TimeUnit.SECONDS.toNanos(Long.getLong("load.drain", 30));
+
+        server.setLatency(Long.getLong("load.latency", 0));
+        server.setFailRate(getDouble("load.fail", 0));
+        server.setThrottleRate(getDouble("load.throttle", 0));
+        server.setResetRate(getDouble("load.reset", 0));
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final CollectorServer server = new CollectorServer().start();
+        try {
+            new LoadDriver(server).run(System.out);
+        } finally {
+            server.stop();
+        }
+    }
+
+
+    // INTERFACE ==================================================================================
+
+    public void run(final PrintStream out) throws InterruptedException {
+        // only the crash handler should be attached, not the console
+        LogManager.getLogManager().reset();
+
+        final CrashSystem<LoggerConfig, LoggerReporter> system = new CrashSystem<LoggerConfig, LoggerReporter>();
+        system.start(createConfig());
+        try {
+            final long start = System.nanoTime();
+            final List<Thread> workers = new ArrayList<Thread>(threads);
+            for (int i = 0; i < threads; i++) {
+                final Thread t = new Thread(createWorker(start + duration, i), "load-" + i);
+                workers.add(t);
+                t.start();
+            }
+            for (final Thread t : workers)
+                t.join();
+
+            awaitDelivery(seq.get());
+            final Statistics stats = system.getReporter().getStatistics();
+            print(out, start, stats);
+        } finally {
+            system.stop();
+        }
+    }
+
+
+    // SHARED =====================================================================================
+
+    protected LoggerConfig createConfig() {
+        final ConfigLoader loader = new ConfigLoader();
+        final Config conf = loader.fromSystemProps()
+            .withFallback(loader.fromString(
+                "crashnote { enabled = true, projectId = load, key = \"00000000-0000-0000-0000-000000000000\", " +
+                    "network { protocol = http, host = \"127.0.0.1\", port = " + server.getPort() + " } }"))
+            .withFallback(loader.fromFile("crashnote.default"));
+        return new LoggerConfig(conf);
+    }
+
+    protected Runnable createWorker(final long end, final int id) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                final Logger log = Logger.getLogger(LOGGER);
+                final Random random = new Random(id);
+                final Throwable th = createException(depth);
+                final long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, rate);
+
+                long next = System.nanoTime();
+                while (next < end) {
+                    if (random.nextDouble() < errors) {
+                        final String msg = "unable to process order: " + CollectorServer.marker(seq.incrementAndGet(), System.nanoTime());
+                        final long t = System.nanoTime();
+                        log.log(Level.SEVERE, msg, th);
+                        errorOverhead.record(System.nanoTime() - t);
+                    } else {
+                        final long t = System.nanoTime();
+                        log.log(Level.INFO, "order received");
+                        infoOverhead.record(System.nanoTime() - t);
+                        infos.incrementAndGet();
+                    }
+
+                    // keep the pace (without catching up forever after a stall)
+                    next = Math.max(next + interval, System.nanoTime() - interval);
+                    final long wait = next - System.nanoTime();
+                    if (wait > 0) LockSupport.parkNanos(wait);
+                }
+            }
+        };
+    }
+
+    /**
+     * Waits until all errors arrived, or no new one did for a while, or the drain time is up.
+     */
+    protected void awaitDelivery(final long logged) throws InterruptedException {
+        final long deadline = System.nanoTime() + drain;
+        final long quiet = TimeUnit.SECONDS.toNanos(5);
+        long last = System.nanoTime();
+        long received = server.getEvents();
+        while (received < logged && System.nanoTime() < deadline && System.nanoTime() - last < quiet) {
+            Thread.sleep(50);
+            final long now = server.getEvents();
+            if (now != received) last = System.nanoTime();
+            received = now;
+        }
+    }
+
+
+    // INTERNALS ==================================================================================
+
+    private void print(final PrintStream out, final long start, final Statistics stats) {
+        final long logged = seq.get();
+        final long received = server.getEvents();
+        final long lastEvent = server.getLastEvent();
+        final double secs = Math.max(1, (lastEvent > 0 ? lastEvent : System.nanoTime()) - start) / 1e9;
+        final Histogram latency = server.getDeliveryLatency();
+
+        out.println("=== load: " + threads + " thread(s) x " + rate + " events/s, " + (errors * 100) + "% errors");
+        out.printf("events logged       : %d errors, %d other%n", logged, infos.get());
+        out.printf("errors received     : %d (%d duplicates)%n", received, server.getDuplicates());
+        out.printf("drop rate           : %.2f%%%n", logged == 0 ? 0.0 : 100.0 * (logged - received) / logged);
+        out.printf("throughput          : %.1f errors/s%n", received / secs);
+        out.printf("delivery latency    : p50 %s, p90 %s, p99 %s, max %s (ms)%n",
+            ms(latency.getQuantile(0.5)), ms(latency.getQuantile(0.9)),
+            ms(latency.getQuantile(0.99)), ms(latency.getMax()));
+        out.printf("overhead (error)    : p50 %d, p99 %d, mean %.0f (us)%n",
+            errorOverhead.getQuantile(0.5) / 1000, errorOverhead.getQuantile(0.99) / 1000,
+            errorOverhead.getMean() / 1000);
+        out.printf("overhead (other)    : p50 %d, p99 %d, mean %.0f (ns)%n",
+            infoOverhead.getQuantile(0.5), infoOverhead.getQuantile(0.99), infoOverhead.getMean());
+        out.printf("requests            : %d (%d accepted, %d rejected, %d failed, %d throttled, %d reset)%n",
+            server.getRequests(), server.getAccepted(), server.getRejected(), server.getFailed(),
+            server.getThrottled(), server.getResets());
+        out.printf("bytes               : %d on the wire, %d uncompressed%n", server.getBytes(), server.getRawBytes());
+        out.printf("pipeline            : %d received, %d rejected, %d sessions dropped, %d reports, %d requests failed%n",
+            stats.getEventsReceived(), stats.getEventsRejected(), stats.getSessionsDropped(),
+            stats.getReports(), stats.getRequestsFailed());
+        out.println("(percentiles are upper bounds of power-of-two buckets)");
+    }
+
+    private static String ms(final long micros) {
+        return String.format("%.1f", micros / 1000.0);
+    }
+
+    private static double getDouble(final String name, final double def) {
+        final String value = System.getProperty(name);
+        return value == null ? def : Double.parseDouble(value);
+    }
+
+    /**
+     * @return an exception thrown 'depth' frames deep
+     */
+    private static Throwable createException(final int depth) {
+        try {
+            descend(depth);
+        } catch (RuntimeException e) {
+            return e;
+        }
+        throw new AssertionError("unreachable");
+    }
+
+    private static void descend(final int depth) {
+        if (depth <= 1) throw new IllegalStateException("invalid order id: 'A-1234'");
+        descend(depth - 1);
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2011 - 101loops.com <dev@101loops.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.crashnote.test.load
+
+import java.io.OutputStream
+import com.crashnote.core.send.{Compressor, Sender}
+import com.crashnote.load.DictionaryTrainer
+import com.crashnote.test.base.defs.UnitSpec
+
+class DictionaryTrainerSpec
+  extends UnitSpec {
+
+  "Dictionary Trainer" should {
+
+    "train a dictionary from samples" >> {
+      val samples = new java.util.ArrayList[Array[Byte]]()
+      for (i <- 1 to 20) samples.add(report(i).getBytes("UTF-8"))
+
+      val dict = DictionaryTrainer.train(samples, 1024)
+      val text = new String(dict.getData, "UTF-8")
+      dict.getData.length must be_<=(1024)
+      text must contain("\"errors\":[")
+      text must not contain ("id-7")
+
+      val trained = new Compressor(-1, 0, 0, dict).compress(body(report(42))).length
+      val plain = new Compressor(-1, 0, 0).compress(body(report(42))).length
+      trained must be_<(plain)
+    }
+  }
+
+  // SETUP ======================================================================================
+
+  def report(i: Int) =
+    "{\"errors\":[{\"occurredAt\":" + (1350000000000L + i) + ",\"message\":\"oops\",\"thread\":\"main\"," +
+      "\"level\":\"ERROR\",\"id\":\"id-" + i + "\",\"exceptions\":[{\"message\":\"boom\"," +
+      "\"class\":\"java.lang.IllegalStateException\",\"stacktrace\":[" +
+      "\"com.example.Service:Service.java:handle:" + i + "\",\"java.lang.Thread:Thread.java:run:722\"]}]}]," +
+      "\"environment\":{\"runtime\":{\"name\":\"Java HotSpot(TM) 64-Bit Server VM\",\"type\":\"java\"}}}"
+
+  def body(s: String) = new Sender.Body {
+    def writeTo(out: OutputStream) {
+      out.write(s.getBytes("UTF-8"))
+    }
+  }
+}
@@ -36,14 +36,17 @@ public class CrashHandler
 
     // VARS =======================================================================================
 
-    private boolean started;
-    private Level logLevel = Level.INFO;
+    private volatile boolean started;
+    private volatile Level logLevel = Level.INFO;
+
+    // least severe level that is reported (the log level)
+    private volatile int minLevel = Level.SEVERE.intValue();
 
     //private MDCAdapter mdc;
-    private LoggerReporter reporter;
+    private volatile LoggerReporter reporter;
 
     // config
-    private LoggerConfig config;
+    private volatile LoggerConfig config;
     private final LoggerConfigFactory<LoggerConfig> configFactory;
 
 
@@ -109,11 +112,12 @@ public class CrashHandler
             logLevel = Level.WARNING;
         else
             logLevel = Level.SEVERE;
+        minLevel = logLevel.intValue();
     }
 
     @Override
     public boolean isLoggable(final LogRecord record) {
-        return record.getLevel().intValue() >= logLevel.intValue() &&
+        return record.getLevel().intValue() >= minLevel &&
                 getReporter().doAcceptLog(record.getLoggerName());
     }
 
@@ -23,25 +23,49 @@ import com.crashnote.logger.config.LoggerConfigFactory;
 import com.crashnote.logger.report.LoggerReporter;
 
 import org.apache.log4j.*;
+import org.apache.log4j.helpers.OnlyOnceErrorHandler;
+import org.apache.log4j.spi.ErrorHandler;
 import org.apache.log4j.spi.Filter;
 import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.OptionHandler;
 
 import java.util.Map;
 
 /**
  * Appender that writes logs from 'Log4J' to the cloud
+ * <p/>
+ * Unlike {@link AppenderSkeleton}, whose 'doAppend' is synchronized, it does not lock while
+ * appending: the threshold is volatile and the filters are an immutable array that is replaced
+ * as a whole, so logging threads do not queue up behind each other.
+ * <p/>
+ * Events below the threshold are dropped before anything else, without allocating.
  */
 public class CrashAppender
-    extends AppenderSkeleton implements ICrashAppender {
+    implements Appender, OptionHandler, ICrashAppender {
+
+    // CONST ======================================================================================
+
+    private static final Filter[] NO_FILTERS = new Filter[0];
+
 
     // VARS =======================================================================================
 
-    private boolean started;
+    private volatile boolean started;
+
+    private volatile String name;
+    private volatile Priority threshold;
 
-    private LoggerReporter reporter;
+    // least severe level that is reported (the threshold)
+    private volatile int minLevel = Level.ERROR_INT;
+    private volatile ErrorHandler errorHandler = new OnlyOnceErrorHandler();
+
+    // filters in order (copy-on-write)
+    private volatile Filter[] filters = NO_FILTERS;
+
+    private volatile LoggerReporter reporter;
 
     // config
-    private LoggerConfig config;
+    private volatile LoggerConfig config;
     private final LoggerConfigFactory<LoggerConfig> configFactory;
 
 
@@ -66,6 +90,25 @@ public class CrashAppender
 
     // INTERFACE ==================================================================================
 
+    @Override
+    public void doAppend(final LoggingEvent event) {
+        if (!started || event.getLevel().toInt() < minLevel)
+            return;
+
+        for (final Filter f : filters) {
+            final int decision = f.decide(event);
+            if (decision == Filter.DENY) return;
+            if (decision == Filter.ACCEPT) break;
+        }
+
+        append(event);
+    }
+
+    @Override
+    public void activateOptions() {
+        // nothing to do
+    }
+
     @Override
     public boolean requiresLayout() {
         return false;
@@ -94,16 +137,46 @@ public class CrashAppender
             setThreshold(Level.DEBUG);
         else if (lvl == LogLevel.INFO)
             setThreshold(Level.INFO);
-        if (lvl == LogLevel.WARN)
+        else if (lvl == LogLevel.WARN)
             setThreshold(Level.WARN);
         else
             setThreshold(Level.ERROR);
     }
 
+    public boolean isAsSevereAsThreshold(final Priority priority) {
+        final Priority t = threshold;
+        return t == null || priority.isGreaterOrEqual(t);
+    }
+
+    // ===== Filters
 
-    // SHARED =====================================================================================
+    @Override
+    public synchronized void addFilter(final Filter filter) {
+        final Filter[] current = filters;
+        final Filter[] next = new Filter[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = filter;
+
+        // keep the chain of the filters intact, for anyone who walks it
+        if (current.length > 0)
+            current[current.length - 1].setNext(filter);
+        filters = next;
+    }
 
     @Override
+    public Filter getFilter() {
+        final Filter[] current = filters;
+        return current.length == 0 ? null : current[0];
+    }
+
+    @Override
+    public synchronized void clearFilters() {
+        filters = NO_FILTERS;
+    }
+
+
+    // SHARED =====================================================================================
+
     protected void append(final LoggingEvent event) {
         if (isStarted())
             getReporter().reportLog(new Log4jEvt(event, getMDC()));
@@ -144,4 +217,47 @@ public class CrashAppender
     private Map<String, Object> getMDC() {
         return MDC.getContext();
     }
-}
\ No newline at end of file
+
+
+    // GET ========================================================================================
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    public Priority getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(final Priority threshold) {
+        this.threshold = threshold;
+        this.minLevel = threshold == null ? Level.ALL_INT : threshold.toInt();
+    }
+
+    @Override
+    public ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
+    @Override
+    public void setErrorHandler(final ErrorHandler errorHandler) {
+        if (errorHandler != null)
+            this.errorHandler = errorHandler;
+    }
+
+    @Override
+    public Layout getLayout() {
+        return null;
+    }
+
+    @Override
+    public void setLayout(final Layout layout) {
+        // no layout required
+    }
+}
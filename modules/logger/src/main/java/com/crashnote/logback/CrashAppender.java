@@ -23,7 +23,7 @@ import org.slf4j.LoggerFactory;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
 import ch.qos.logback.core.filter.Filter;
 import ch.qos.logback.core.spi.FilterReply;
 
@@ -36,18 +36,22 @@ import com.crashnote.logger.report.LoggerReporter;
 
 /**
  * Appender that writes logs from 'Logback' to the cloud
+ * <p/>
+ * It does not lock while appending (unlike {@link ch.qos.logback.core.AppenderBase}), so logging
+ * threads do not queue up behind each other - most of their events are filtered out anyway.
  */
 public class CrashAppender
-        extends AppenderBase<ILoggingEvent> implements ICrashAppender {
+        extends UnsynchronizedAppenderBase<ILoggingEvent> implements ICrashAppender {
 
     // VARS =======================================================================================
 
-    private Level threshold;
+    // least severe level that is reported (the log level)
+    private volatile int minLevel = Level.ERROR_INT;
 
-    private LoggerReporter reporter;
+    private volatile LoggerReporter reporter;
 
     // config
-    private LoggerConfig config;
+    private volatile LoggerConfig config;
     private final LoggerConfigFactory<LoggerConfig> configFactory;
 
 
@@ -63,9 +67,7 @@ public class CrashAppender
         addFilter(new Filter<ILoggingEvent>() {
             @Override
             public FilterReply decide(final ILoggingEvent event) {
-                final boolean res =
-                        event.getLevel().isGreaterOrEqual(threshold) &&
-                                getReporter().doAcceptLog(event.getLoggerName());
+                final boolean res = getReporter().doAcceptLog(event.getLoggerName());
                 return res ? FilterReply.ACCEPT : FilterReply.DENY;
             }
         });
@@ -80,6 +82,16 @@ public class CrashAppender
 
     // INTERFACE ==================================================================================
 
+    /**
+     * Drops events below the {@link #minLevel} right away, before the filters and without
+     * allocating anything - most events of an application end here.
+     */
+    @Override
+    public void doAppend(final ILoggingEvent event) {
+        if (event.getLevel().levelInt >= minLevel)
+            super.doAppend(event);
+    }
+
     @Override
     public void start() {
         if (!started) {
@@ -99,6 +111,7 @@ public class CrashAppender
 
     @Override
     public void setLogLevel(final LogLevel lvl) {
+        final Level threshold;
         if (lvl == LogLevel.DEBUG)
             threshold = Level.DEBUG;
         else if (lvl == LogLevel.INFO)
@@ -107,6 +120,7 @@ public class CrashAppender
             threshold = Level.WARN;
         else
             threshold = Level.ERROR;
+        minLevel = threshold.levelInt;
     }
 
     public static Logger getTargetLogger(final Class<?> clazz) {
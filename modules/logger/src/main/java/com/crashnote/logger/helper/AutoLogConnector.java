@@ -17,6 +17,7 @@ package com.crashnote.logger.helper;
 
 import com.crashnote.core.Lifecycle;
 import com.crashnote.core.model.excp.CrashnoteException;
+import com.crashnote.core.model.types.LogLevel;
 import com.crashnote.jul.impl.JulConnector;
 import com.crashnote.log4j.impl.Log4jConnector;
 import com.crashnote.logback.impl.LogbackConnector;
@@ -84,6 +85,18 @@ public class AutoLogConnector
     }
 
 
+    // INTERFACE ==================================================================================
+
+    /**
+     * Changes the log level of all attached appenders.
+     */
+    public void setLogLevel(final LogLevel lvl) {
+        for (final LogConnector<LoggerConfig, ?> c : connectors)
+            if (c.getAppender() != null)
+                c.getAppender().setLogLevel(lvl);
+    }
+
+
     // INTERNAL ===================================================================================
 
     private void connect(final Class<LogConnector> cls,
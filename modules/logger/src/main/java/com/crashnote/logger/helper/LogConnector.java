@@ -65,4 +65,10 @@ public abstract class LogConnector<C extends LoggerConfig, A extends ICrashAppen
 
     protected abstract void detach();
 
+
+    // GET ========================================================================================
+
+    public A getAppender() {
+        return myAppender;
+    }
 }
@@ -16,6 +16,7 @@
 package com.crashnote.test.logger.unit.jul
 
 import java.util.logging._
+import com.crashnote.core.model.types.LogLevel
 import com.crashnote.jul.CrashHandler
 import com.crashnote.jul.impl.JulEvt
 import com.crashnote.test.logger.defs._
@@ -55,6 +56,22 @@ class CrashHandlerSpec
     }
   }
 
+  "drop events below the log level right away" >> new Mock() {
+    create(() => new CrashHandler(m_conf, m_reporter))
+    target.setLogLevel(LogLevel.ERROR)
+
+    val rec = new LogRecord(Level.WARNING, "careful")
+    rec.setLoggerName("com.example")
+    target.isLoggable(rec) === false
+    target.publish(rec)
+
+    there was no(m_reporter).doAcceptLog(anyString)
+    there was no(m_reporter).reportLog(any[JulEvt])
+
+    target.setLogLevel(LogLevel.WARN)
+    target.isLoggable(rec) === true
+  }
+
   // SETUP =====================================================================================
 
   override def configure(config: C) = {
@@ -15,7 +15,9 @@
  */
 package com.crashnote.test.logger.unit.log4j
 
+import java.util.concurrent.{CountDownLatch, TimeUnit}
 import com.crashnote.test.logger.defs._
+import com.crashnote.core.model.types.LogLevel
 import com.crashnote.log4j.CrashAppender
 import com.crashnote.log4j.impl.Log4jEvt
 import org.apache.log4j.Level
@@ -57,6 +59,58 @@ class CrashAppenderSpec
     }
   }
 
+  "append without holding the appender's lock" >> new Mock() {
+    create(() => new CrashAppender(m_conf, m_reporter))
+
+    val done = new CountDownLatch(1)
+    target.synchronized {
+      new Thread() {
+        override def run() {
+          target.doAppend(m_evt)
+          done.countDown()
+        }
+      }.start()
+      done.await(5, TimeUnit.SECONDS) === true
+    }
+    there was one(m_reporter).reportLog(any[Log4jEvt])
+  }
+
+  "reject events below the threshold and denied by a filter" >> new Mock() {
+    create(() => new CrashAppender(m_conf, m_reporter))
+
+    val m_info = mock[LoggingEvent]
+    m_info.getLevel returns Level.INFO
+    target.doAppend(m_info)
+    there was no(m_reporter).doAcceptLog(anyString)
+
+    target.addFilter(new Filter {
+      def decide(evt: LoggingEvent) = Filter.DENY
+    })
+    m_reporter.doAcceptLog(anyString) returns false
+    target.doAppend(m_evt)
+
+    target.getFilter.getNext !== null
+    there was no(m_reporter).reportLog(any[Log4jEvt])
+  }
+
+  "drop events below the threshold right away" >> new Mock() {
+    create(() => new CrashAppender(m_conf, m_reporter))
+    target.setLogLevel(LogLevel.ERROR)
+    target.getThreshold === Level.ERROR
+
+    val m_warn = mock[LoggingEvent]
+    m_warn.getLevel returns Level.WARN
+    m_warn.getLoggerName returns "com.example"
+    target.doAppend(m_warn)
+
+    there was no(m_reporter).doAcceptLog(anyString)
+    there was no(m_reporter).reportLog(any[Log4jEvt])
+
+    target.setLogLevel(LogLevel.WARN)
+    target.doAppend(m_warn)
+    there was one(m_reporter).reportLog(any[Log4jEvt])
+  }
+
   // SETUP =====================================================================================
 
   override def configure(config: C) = {
@@ -15,7 +15,13 @@
  */
 package com.crashnote.test.logger.unit.logback
 
+import java.lang.management.ManagementFactory
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+import javax.management.Attribute
 import com.crashnote.test.logger.defs._
+import com.crashnote.core.log.LogLogFactory
+import com.crashnote.core.model.types.LogLevel
+import com.crashnote.core.stats.{Monitor, Statistics}
 import com.crashnote.logback.CrashAppender
 import com.crashnote.logback.impl.LogbackEvt
 import ch.qos.logback.classic.Level
@@ -58,6 +64,71 @@ class CrashAppenderSpec
     }
   }
 
+  "append without holding the appender's lock" >> new Mock() {
+    create(() => new CrashAppender(m_conf, m_reporter))
+    target.start()
+
+    val done = new CountDownLatch(1)
+    target.synchronized {
+      new Thread() {
+        override def run() {
+          target.doAppend(m_evt)
+          done.countDown()
+        }
+      }.start()
+      done.await(5, TimeUnit.SECONDS) === true
+    }
+    there was one(m_reporter).reportLog(any[LogbackEvt])
+  }
+
+  "drop events below the log level right away" >> new Mock() {
+    create(() => new CrashAppender(m_conf, m_reporter))
+    target.start()
+    target.setLogLevel(LogLevel.ERROR)
+
+    val m_warn = mock[ILoggingEvent]
+    m_warn.getLevel returns Level.WARN
+    m_warn.getLoggerName returns "com.example"
+    target.doAppend(m_warn)
+
+    there was no(m_reporter).doAcceptLog(anyString)
+    there was no(m_reporter).reportLog(any[LogbackEvt])
+
+    target.setLogLevel(LogLevel.WARN)
+    target.doAppend(m_warn)
+    there was one(m_reporter).reportLog(any[LogbackEvt])
+  }
+
+  "report WARN events once the log level was lowered via JMX" >> new Mock() {
+    create(() => new CrashAppender(m_conf, m_reporter))
+    target.start()
+
+    m_reporter.getStatistics returns new Statistics
+    m_reporter.getLogger returns new LogLogFactory(m_conf).getLogger("")
+    val monitor = new Monitor(m_reporter, LogLevel.ERROR, new Monitor.LogLevelControl {
+      def setLogLevel(lvl: LogLevel) {
+        target.setLogLevel(lvl)
+      }
+    })
+
+    val m_warn = mock[ILoggingEvent]
+    m_warn.getLevel returns Level.WARN
+    m_warn.getLoggerName returns "com.example"
+    target.doAppend(m_warn)
+    there was no(m_reporter).reportLog(any[LogbackEvt])
+
+    monitor.register("Test") === true
+    try {
+      val server = ManagementFactory.getPlatformMBeanServer
+      server.setAttribute(monitor.getName, new Attribute("LogLevel", "WARN"))
+      server.getAttribute(monitor.getName, "LogLevel") === "WARN"
+    } finally {
+      monitor.unregister()
+    }
+    target.doAppend(m_warn)
+    there was one(m_reporter).reportLog(any[LogbackEvt])
+  }
+
   // SETUP =====================================================================================
 
   override def configure(config: C) = {
@@ -15,6 +15,8 @@
  */
 package com.crashnote.web;
 
+import com.crashnote.core.model.types.LogLevel;
+import com.crashnote.core.stats.Monitor;
 import com.crashnote.logger.config.LoggerConfig;
 import com.crashnote.logger.helper.AutoLogConnector;
 import com.crashnote.logger.report.LoggerReporter;
@@ -22,6 +24,8 @@ import com.crashnote.logger.report.LoggerReporter;
 /**
  * A system to capture exceptions in a web application with a lifecycle.
  * Contains a reporter to send the errors and a connector to hook into a logging framework.
+ * <p/>
+ * Each system registers a {@link Monitor} MBean with its statistics (unless disabled).
  */
 public class CrashSystem<C extends LoggerConfig, R extends LoggerReporter> {
 
@@ -33,6 +37,8 @@ public class CrashSystem<C extends LoggerConfig, R extends LoggerReporter> {
 
     private AutoLogConnector connector;
 
+    private Monitor monitor;
+
 
     // INTERFACE ==================================================================================
 
@@ -49,6 +55,12 @@ public class CrashSystem<C extends LoggerConfig, R extends LoggerReporter> {
             connector = config.getLogConnector(reporter);
             connector.start();
 
+            // ... and expose the statistics
+            if (config.isJmxEnabled()) {
+                monitor = createMonitor(config);
+                monitor.register("CrashSystem");
+            }
+
             started = true;
         }
 
@@ -57,6 +69,10 @@ public class CrashSystem<C extends LoggerConfig, R extends LoggerReporter> {
 
     public void stop() {
 
+        // remove the MBean
+        if (monitor != null) monitor.unregister();
+        monitor = null;
+
         // disconnect the appenders
         if (connector != null) connector.stop();
 
@@ -67,12 +83,28 @@ public class CrashSystem<C extends LoggerConfig, R extends LoggerReporter> {
     }
 
 
+    // FACTORY ====================================================================================
+
+    protected Monitor createMonitor(final C config) {
+        return new Monitor(reporter, config.getLogLevel(), new Monitor.LogLevelControl() {
+            @Override
+            public void setLogLevel(final LogLevel lvl) {
+                connector.setLogLevel(lvl);
+            }
+        });
+    }
+
+
     // GET ========================================================================================
 
     public R getReporter() {
         return reporter;
     }
 
+    public Monitor getMonitor() {
+        return monitor;
+    }
+
     public boolean isStarted() {
         return started;
     }